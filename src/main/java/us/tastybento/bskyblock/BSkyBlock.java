@@ -9,6 +9,7 @@ import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import us.tastybento.bskyblock.api.commands.ArgumentHandler;
+import us.tastybento.bskyblock.api.events.BSkyBlockReadyEvent;
 import us.tastybento.bskyblock.commands.AdminCommand;
 import us.tastybento.bskyblock.commands.IslandCommand;
 import us.tastybento.bskyblock.config.BSBLocale;
@@ -20,14 +21,17 @@ import us.tastybento.bskyblock.database.managers.OfflineHistoryMessages;
 import us.tastybento.bskyblock.database.managers.PlayersManager;
 import us.tastybento.bskyblock.database.managers.island.IslandsManager;
 import us.tastybento.bskyblock.generators.IslandWorld;
+import us.tastybento.bskyblock.generators.WorldRegistry;
 import us.tastybento.bskyblock.listeners.JoinLeaveListener;
 import us.tastybento.bskyblock.listeners.NetherPortals;
 import us.tastybento.bskyblock.listeners.PanelListener;
+import us.tastybento.bskyblock.listeners.StartupListener;
 import us.tastybento.bskyblock.listeners.protection.IslandGuard;
 import us.tastybento.bskyblock.listeners.protection.IslandGuard1_8;
 import us.tastybento.bskyblock.listeners.protection.IslandGuard1_9;
 import us.tastybento.bskyblock.listeners.protection.NetherEvents;
 import us.tastybento.bskyblock.schematics.SchematicsMgr;
+import us.tastybento.bskyblock.util.PermissionCache;
 import us.tastybento.bskyblock.util.VaultHelper;
 
 /**
@@ -44,6 +48,9 @@ public class BSkyBlock extends JavaPlugin {
     private IslandsManager islandsManager;
     private OfflineHistoryMessages offlineHistoryMessages;
 
+    // Permission snapshots of online players
+    private PermissionCache permissionCache;
+
     // Schematics
     private SchematicsMgr schematicsManager;
 
@@ -56,6 +63,9 @@ public class BSkyBlock extends JavaPlugin {
 
     private AdminCommand adminCommand;
 
+    // True once the islands are loaded and everything is set up
+    private volatile boolean ready = false;
+
     @Override
     public void onEnable(){
         plugin = this;
@@ -63,8 +73,12 @@ public class BSkyBlock extends JavaPlugin {
         // Load configuration and locales. If there are no errors, load the plugin.
         if(PluginConfig.loadPluginConfig(this)){
             
+            permissionCache = new PermissionCache(this);
+            getServer().getPluginManager().registerEvents(permissionCache, this);
             playersManager = new PlayersManager(this);
             islandsManager = new IslandsManager(this);
+            // Keep players out until the islands are loaded
+            getServer().getPluginManager().registerEvents(new StartupListener(this), this);
             // Only load metrics if set to true in config
             if(Settings.metrics) metrics = new Metrics(plugin);
 
@@ -96,14 +110,13 @@ public class BSkyBlock extends JavaPlugin {
                 public void run() {
                     // Create the world if it does not exist
                     new IslandWorld(plugin);
+                    // Classify worlds by reference from now on
+                    getServer().getPluginManager().registerEvents(new WorldRegistry(), plugin);
                     
                     getServer().getScheduler().runTask(plugin, new Runnable() {
 
                         @Override
                         public void run() {
-                         // Load islands from database
-                            islandsManager.load();
-
                             // Load schematics
                             // TODO: load these from config.yml
                             Settings.chestItems = new ItemStack[] {
@@ -119,33 +132,40 @@ public class BSkyBlock extends JavaPlugin {
                             Settings.defaultLanguage = "en-US";
                             localeManager = new LocaleManager(plugin);
 
-
-
-
-                            // Register Listeners
-                            registerListeners();
-                            /*
-                             *DEBUG CODE
-                            Island loadedIsland = islandsManager.getIsland(owner);
-                            getLogger().info("Island name = " + loadedIsland.getName());
-                            getLogger().info("Island locked = " + loadedIsland.getLocked());
-                            //getLogger().info("Random set = " + randomSet);
-                            getLogger().info("Island coops = " + loadedIsland.getCoops());
-                            for (Entry<SettingsFlag, Boolean> flag: loadedIsland.getFlags().entrySet()) {
-                                getLogger().info("Flag " + flag.getKey().name() + " = " + flag.getValue());
-                            }
-                             */
-                            // Save islands & players data asynchronously every X minutes
-                            Settings.databaseBackupPeriod = 10 * 60 * 20;
-                            plugin.getServer().getScheduler().runTaskTimer(plugin, new Runnable() {
+                            // Load islands from database. This is done async and then the rest of the set up is done.
+                            islandsManager.loadAsync(new Runnable() {
 
                                 @Override
                                 public void run() {
-                                    playersManager.save(true);
-                                    islandsManager.save(true);
-                                    offlineHistoryMessages.save(true);
+                                    // Register Listeners
+                                    registerListeners();
+                                    /*
+                                     *DEBUG CODE
+                                    Island loadedIsland = islandsManager.getIsland(owner);
+                                    getLogger().info("Island name = " + loadedIsland.getName());
+                                    getLogger().info("Island locked = " + loadedIsland.getLocked());
+                                    //getLogger().info("Random set = " + randomSet);
+                                    getLogger().info("Island coops = " + loadedIsland.getCoops());
+                                    for (Entry<SettingsFlag, Boolean> flag: loadedIsland.getFlags().entrySet()) {
+                                        getLogger().info("Flag " + flag.getKey().name() + " = " + flag.getValue());
+                                    }
+                                     */
+                                    // Save islands & players data asynchronously every X minutes
+                                    Settings.databaseBackupPeriod = 10 * 60 * 20;
+                                    plugin.getServer().getScheduler().runTaskTimer(plugin, new Runnable() {
+
+                                        @Override
+                                        public void run() {
+                                            playersManager.save(true);
+                                            islandsManager.save(true);
+                                            offlineHistoryMessages.save(true);
+                                        }
+                                    }, Settings.databaseBackupPeriod, Settings.databaseBackupPeriod);
+
+                                    ready = true;
+                                    getServer().getPluginManager().callEvent(new BSkyBlockReadyEvent());
                                 }
-                            }, Settings.databaseBackupPeriod, Settings.databaseBackupPeriod);
+                            });
                         }
                         // TODO Auto-generated method stub
 
@@ -156,6 +176,13 @@ public class BSkyBlock extends JavaPlugin {
         }
     }
 
+    /**
+     * @return true once the islands are loaded and BSkyBlock is ready to play
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
     public IslandCommand getIslandCommand() {
         return islandCommand;
     }
@@ -174,6 +201,10 @@ public class BSkyBlock extends JavaPlugin {
 
     @Override
     public void onDisable(){
+        // Finish any islands being made, so they are saved with everything else
+        if (schematicsManager != null) {
+            schematicsManager.getPasteScheduler().finishAll();
+        }
         // Save data
         playersManager.shutdown();
         islandsManager.shutdown();
@@ -232,6 +263,14 @@ public class BSkyBlock extends JavaPlugin {
         return islandsManager;
     }
 
+    /**
+     * Returns the permission snapshots of online players
+     * @return the permission cache
+     */
+    public PermissionCache getPermissions(){
+        return permissionCache;
+    }
+
     public static BSkyBlock getPlugin() {
         return plugin;
     }
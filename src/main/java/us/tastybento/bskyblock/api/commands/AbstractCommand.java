@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -108,6 +109,11 @@ public abstract class AbstractCommand implements CommandExecutor, TabCompleter {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!plugin.isReady()) {
+            // Islands are still loading. Locales may not be loaded yet either.
+            sender.sendMessage(ChatColor.RED + "BSkyBlock is still loading. Please try again in a moment.");
+            return true;
+        }
         checkForPlayer(sender);
 
         // Fire command event
@@ -145,6 +151,9 @@ public abstract class AbstractCommand implements CommandExecutor, TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args){
         List<String> options = new ArrayList<>();
+        if (!plugin.isReady()) {
+            return options;
+        }
         checkForPlayer(sender);
         String lastArg = (args.length != 0 ? args[args.length - 1] : "");
         if (canUse(sender).isAllowed()) {
@@ -234,16 +234,19 @@ public class AdminCommand extends AbstractCommand {
                         if (event.isCancelled()) return;
                         // Display info
                         Util.sendMessage(sender, getLocale(sender).get("team.listingMembers"));
-                        // Display members in the list
-                        for (UUID m : getIslands().getMembers(targetPlayer)) {
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: member " + m);
-                            if (getIslands().getTeamLeader(targetPlayer).equals(m)) {
-                                Util.sendMessage(sender, getLocale(sender).get("team.leader-color") + getPlayers().getName(m) + getLocale(sender).get("team.leader"));
-                            } else {
-                                Util.sendMessage(sender, getLocale(sender).get("team.color") + getPlayers().getName(m));
+                        // Load any offline members without holding up the server, then display members in the list
+                        final Set<UUID> members = getIslands().getMembers(targetPlayer);
+                        getPlayers().runWhenLoaded(members, () -> {
+                            for (UUID m : members) {
+                                if (DEBUG)
+                                    plugin.getLogger().info("DEBUG: member " + m);
+                                if (m.equals(getIslands().getTeamLeader(targetPlayer))) {
+                                    Util.sendMessage(sender, getLocale(sender).get("team.leader-color") + getPlayers().getName(m) + getLocale(sender).get("team.leader"));
+                                } else {
+                                    Util.sendMessage(sender, getLocale(sender).get("team.color") + getPlayers().getName(m));
+                                }
                             }
-                        }
+                        });
                         return;
                     case "makeleader":
                         // Check if already leader
@@ -452,7 +455,7 @@ public class AdminCommand extends AbstractCommand {
                                         ChatColor.GREEN + getLocale(sender).get("invite.hasJoinedYourIsland").replace("[name]", player.getName()));
                             }
                         }
-                        getIslands().save(false);
+                        getIslands().save(teamIsland, false);
                         if (DEBUG)
                             plugin.getLogger().info("DEBUG: After save " + getIslands().getIsland(targetPlayer2).getMembers().toString());
                         Util.sendMessage(sender, ChatColor.GREEN + getLocale(sender).get("general.success"));
@@ -31,6 +31,7 @@ import us.tastybento.bskyblock.database.managers.island.NewIsland;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.panels.LanguagePanel;
 import us.tastybento.bskyblock.schematics.Schematic;
+import us.tastybento.bskyblock.util.PermissionCache.ValueNode;
 import us.tastybento.bskyblock.util.Util;
 import us.tastybento.bskyblock.util.VaultHelper;
 
@@ -77,7 +78,12 @@ public class IslandCommand extends AbstractCommand {
     @Override
     public void execute(CommandSender sender, String[] args) {
         if (getPlayers().inTeam(playerUUID) || getIslands().hasIsland(playerUUID)) {
-            // Has island
+            // Has island, but it may still be being made
+            String pasting = getPasting(sender);
+            if (pasting != null) {
+                Util.sendMessage(sender, ChatColor.GREEN + pasting);
+                return;
+            }
             getIslands().homeTeleport(player);
         } else {
             // Create island
@@ -150,6 +156,11 @@ public class IslandCommand extends AbstractCommand {
                 if (!getIslands().hasIsland(playerUUID)) {
                     return new CanUseResp(getLocale(sender).get("general.errors.no-island"));
                 }
+                // There is no home to go to until the island is made
+                String pasting = getPasting(sender);
+                if (pasting != null) {
+                    return new CanUseResp(pasting);
+                }
 
                 return new CanUseResp(true);
             }
@@ -159,7 +170,7 @@ public class IslandCommand extends AbstractCommand {
                 if (isPlayer) {
                     if (args.length == 1 && NumberUtils.isDigits(args[0])) {
                         int homeValue = Integer.valueOf(args[0]);
-                        int maxHomes = Util.getPermValue(player, Settings.PERMPREFIX + "island.maxhomes", Settings.maxHomes);
+                        int maxHomes = plugin.getPermissions().getPermValue(player, ValueNode.MAX_HOMES);
                         if (homeValue > 1  && homeValue <= maxHomes) {
                             getIslands().homeTeleport(player, homeValue);
                             return;
@@ -176,7 +187,7 @@ public class IslandCommand extends AbstractCommand {
 
             @Override
             public String[] usage(CommandSender sender) {
-                int maxHomes = Util.getPermValue((Player)sender, Settings.PERMPREFIX + "island.maxhomes", Settings.maxHomes);
+                int maxHomes = plugin.getPermissions().getPermValue((Player)sender, ValueNode.MAX_HOMES);
                 if (isPlayer && maxHomes > 1) {
                     return new String[]{"[1 - " + maxHomes + "]", getLocale(player).get("help.island.go-homes")};
                 }
@@ -315,6 +326,11 @@ public class IslandCommand extends AbstractCommand {
                 if (inTeam) {
                     return new CanUseResp(getLocale(sender).get("island.reset.MustRemovePlayers"));
                 }
+                // Do not reset an island that is still being made
+                String pasting = getPasting(sender);
+                if (pasting != null) {
+                    return new CanUseResp(pasting);
+                }
                 return new CanUseResp(true);
             }
 
@@ -386,7 +402,7 @@ public class IslandCommand extends AbstractCommand {
                     return;
                 } else if (args.length == 1) {
                     // Dynamic home sizes with permissions
-                    int maxHomes = Util.getPermValue(player, Settings.PERMPREFIX + "island.maxhomes", Settings.maxHomes);
+                    int maxHomes = plugin.getPermissions().getPermValue(player, ValueNode.MAX_HOMES);
                     if (maxHomes > 1) {
                         // Check the number given is a number
                         int number = 0;
@@ -414,7 +430,7 @@ public class IslandCommand extends AbstractCommand {
 
             @Override
             public String[] usage(CommandSender sender) {
-                int maxHomes = Util.getPermValue((Player)sender, Settings.PERMPREFIX + "island.maxhomes", Settings.maxHomes);
+                int maxHomes = plugin.getPermissions().getPermValue((Player)sender, ValueNode.MAX_HOMES);
                 if (isPlayer && maxHomes > 1) {
                     return new String[]{"[1 - " + maxHomes + "]", getLocale(sender).get("help.island.sethome")};
                 }
@@ -999,7 +1015,7 @@ public class IslandCommand extends AbstractCommand {
                     Util.sendMessage(plugin.getServer().getPlayer(inviteList.get(playerUUID)),
                             ChatColor.GREEN + getLocale(sender).get("invite.hasJoinedYourIsland").replace("[name]", player.getName()));
                 }
-                getIslands().save(false);
+                getIslands().save(teamIsland, false);
                 if (DEBUG)
                     plugin.getLogger().info("DEBUG: After save " + getIslands().getIsland(prospectiveTeamLeaderUUID).getMembers().toString());
             }
@@ -1520,6 +1536,18 @@ public class IslandCommand extends AbstractCommand {
         resetWaitTime.put(player.getUniqueId(), Calendar.getInstance().getTimeInMillis() + Settings.resetWait * 1000);
     }
 
+    /**
+     * @param sender
+     * @return a message saying how far along the player's island is, or null if it is not being pasted
+     */
+    private String getPasting(CommandSender sender) {
+        int progress = plugin.getSchematics().getPasteScheduler().getProgress(playerUUID);
+        if (progress < 0) {
+            return null;
+        }
+        return getLocale(sender).get("island.pasting").replace("[percent]", String.valueOf(progress));
+    }
+
     /**
      * Creates an island for player
      *
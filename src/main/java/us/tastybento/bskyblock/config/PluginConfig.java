@@ -67,6 +67,11 @@ public class PluginConfig {
         Settings.dbName = plugin.getConfig().getString("general.database.name", "BSkyBlock");
         Settings.dbUsername = plugin.getConfig().getString("general.database.username");
         Settings.dbPassword = plugin.getConfig().getString("general.database.password");
+        Settings.dbPoolSize = plugin.getConfig().getInt("general.database.pool-size", 4);
+        Settings.dbFetchSize = plugin.getConfig().getInt("general.database.fetch-size", 1000);
+        Settings.islandCacheSize = plugin.getConfig().getInt("general.database.island-cache-size", 2000);
+        Settings.playerCacheSize = plugin.getConfig().getInt("general.database.player-cache-size", 1000);
+        Settings.playerCacheIdle = plugin.getConfig().getInt("general.database.player-cache-idle", 10);
 
         
         Settings.recoverSuperFlat = plugin.getConfig().getBoolean("general.recover-super-flat", false);
@@ -126,6 +131,9 @@ public class PluginConfig {
         Settings.maxTeamSize = plugin.getConfig().getInt("island.max-team-size", 4);
         Settings.leaveConfirmation = plugin.getConfig().getBoolean("require-confirmation.leave", true);
         Settings.leaveConfirmWait = plugin.getConfig().getLong("require-confirmation.leave-wait", 10) * 20;
+
+        // Schematics
+        Settings.pasteBudget = plugin.getConfig().getInt("schematics.paste-budget", 10);
         
         //TODO end loading
         
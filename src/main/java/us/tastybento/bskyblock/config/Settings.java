@@ -185,6 +185,7 @@ public class Settings {
     public static EntityType companionType;
     public static boolean useSchematicPanel;
     public static boolean chooseIslandRandomly;
+    public static int pasteBudget;
     
     // TODO added this just to avoid compilation errors, but will be changed in the future
     public static List<HistoryMessageType> historyMessagesTypes;
@@ -196,6 +197,11 @@ public class Settings {
     public static String dbName;
     public static String dbUsername;
     public static String dbPassword;
+    public static int dbPoolSize;
+    public static int dbFetchSize;
+    public static int islandCacheSize;
+    public static int playerCacheSize;
+    public static int playerCacheIdle;
 
     public static boolean useOwnGenerator;
 
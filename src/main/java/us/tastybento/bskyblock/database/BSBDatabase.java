@@ -4,6 +4,7 @@ import org.bukkit.plugin.Plugin;
 
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.flatfile.FlatFileDatabase;
+import us.tastybento.bskyblock.database.journal.JournalDatabase;
 import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
 import us.tastybento.bskyblock.database.mongodb.MongoDBDatabase;
 import us.tastybento.bskyblock.database.mysql.MySQLDatabase;
@@ -13,7 +14,7 @@ public abstract class BSBDatabase {
 
     /**
      * Gets the type of database being used. Currently supported options are
-     * FLATFILE and MYSQL. Default is FLATFILE
+     * FLATFILE, JOURNAL, MYSQL and SQLITE. Default is FLATFILE
      * @return Database type
      */
     public static BSBDatabase getDatabase(){
@@ -25,6 +26,7 @@ public abstract class BSBDatabase {
 
     public enum DatabaseType{
         FLATFILE(new FlatFileDatabase()),
+        JOURNAL(new JournalDatabase()),
         MONGODB(new MongoDBDatabase()),
         MYSQL(new MySQLDatabase()),
         SQLITE(new SQLiteDatabase());
@@ -8,6 +8,8 @@ public class DatabaseConnectionSettingsImpl {
     private String databaseName;
     private String username;
     private String password;
+    private int poolSize = 4;
+    private int fetchSize = 1000;
 
     /**
      * Hosts database settings
@@ -31,6 +33,8 @@ public class DatabaseConnectionSettingsImpl {
         this.databaseName = Settings.dbName;
         this.username = Settings.dbUsername;
         this.password = Settings.dbPassword;
+        this.poolSize = Settings.dbPoolSize;
+        this.fetchSize = Settings.dbFetchSize;
     }
 
     /**
@@ -103,4 +107,32 @@ public class DatabaseConnectionSettingsImpl {
         this.password = password;
     }
 
+    /**
+     * @return the maximum number of connections that may be open at once
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @param poolSize the maximum number of connections that may be open at once
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * @return the number of rows read from the database at a time when loading everything
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize the number of rows read from the database at a time when loading everything
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
 }
@@ -1,13 +1,9 @@
 package us.tastybento.bskyblock.database.flatfile;
 
 import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
 import java.io.File;
 import java.io.FilenameFilter;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -16,6 +12,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -25,6 +25,9 @@ import org.bukkit.plugin.Plugin;
 
 import us.tastybento.bskyblock.database.DatabaseConnecter;
 import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Kind;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Property;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.ValueType;
 import us.tastybento.bskyblock.util.Util;
 
 /**
@@ -80,7 +83,8 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     }
 
     /**
-     * Loads all the records in this table and returns a list of them
+     * Loads all the records in this table and returns a list of them.
+     * Files are read and parsed in parallel. A file that cannot be loaded is logged and skipped.
      * @return list of <T>
      * @throws InstantiationException
      * @throws IllegalAccessException
@@ -109,10 +113,39 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             // Nothing there...
             tableFolder.mkdirs();
         }
-        for (File file: tableFolder.listFiles(ymlFilter)) {
-            YamlConfiguration config = databaseConnecter.loadYamlFile(type.getSimpleName(), file.getName());
-            list.add(createObject(config));
+        File[] files = tableFolder.listFiles(ymlFilter);
+        if (files == null || files.length == 0) {
+            return list;
         }
+        List<Callable<T>> tasks = new ArrayList<>(files.length);
+        for (final File file: files) {
+            tasks.add(new Callable<T>() {
+
+                @Override
+                public T call() throws Exception {
+                    YamlConfiguration config = databaseConnecter.loadYamlFile(type.getSimpleName(), file.getName());
+                    return createObject(config);
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+        try {
+            for (Future<T> result : pool.invokeAll(tasks)) {
+                try {
+                    list.add(result.get());
+                } catch (ExecutionException e) {
+                    plugin.getLogger().severe("Could not load a " + type.getSimpleName() + " file!");
+                    e.getCause().printStackTrace();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: loaded " + list.size() + " of " + files.length + " files");
         return list;
     }
     /**
@@ -131,92 +164,54 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
      * @throws ClassNotFoundException
      */
     private T createObject(YamlConfiguration config) throws InstantiationException, IllegalAccessException, IntrospectionException, IllegalArgumentException, InvocationTargetException, ClassNotFoundException {
-        T instance = type.newInstance();
-
-        for (Field field : type.getDeclaredFields()) {
+        T instance = schema.newInstance();
 
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-            Method method = propertyDescriptor.getWriteMethod();
+        for (Property property : schema.getProperties()) {
+            String name = property.getName();
             if (DEBUG)
-                plugin.getLogger().info("DEBUG: " + field.getName() + ": " + propertyDescriptor.getPropertyType().getTypeName());
-            if (config.contains(field.getName())) {
-                if (propertyDescriptor.getPropertyType().equals(HashMap.class)) {
-
-                    // Note that we have no idea what type this is
-                    List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                    // collectionTypes should be 2 long
-                    Type keyType = collectionTypes.get(0);
-                    Type valueType = collectionTypes.get(1);
+                plugin.getLogger().info("DEBUG: " + name + ": " + property.getPropertyType().getTypeName());
+            if (config.contains(name)) {
+                if (property.getKind() == Kind.MAP) {
+                    // The key and value types were found when the schema was made
                     if (DEBUG)
-                        plugin.getLogger().info("DEBUG: is HashMap<" + keyType.getTypeName() + ", " + valueType.getTypeName() + ">");
+                        plugin.getLogger().info("DEBUG: is HashMap<" + property.getElementClass(0).getTypeName() + ", " + property.getElementClass(1).getTypeName() + ">");
                     // TODO: this may not work with all keys. Further serialization may be required.
                     HashMap<Object,Object> value = new HashMap<Object, Object>();
-                    for (String key : config.getConfigurationSection(field.getName()).getKeys(false)) {
-                        Object mapKey = deserialize(key,Class.forName(keyType.getTypeName()));
-                        Object mapValue = deserialize(config.get(field.getName() + "." + key), Class.forName(valueType.getTypeName()));
+                    for (String key : config.getConfigurationSection(name).getKeys(false)) {
+                        Object mapKey = deserialize(key, property.getElementClass(0), property.getElementValueType(0));
+                        Object mapValue = deserialize(config.get(name + "." + key), property.getElementClass(1), property.getElementValueType(1));
                         if (DEBUG) {
                             plugin.getLogger().info("DEBUG: mapKey = " + mapKey + " (" + mapKey.getClass().getCanonicalName() + ")");
                             plugin.getLogger().info("DEBUG: mapValue = " + mapValue + " (" + mapValue.getClass().getCanonicalName() + ")");
                         }
                         value.put(mapKey, mapValue);
                     }
-                    method.invoke(instance, value);
-                } else if (propertyDescriptor.getPropertyType().equals(Set.class)) {
-                    if (DEBUG) {
-                        plugin.getLogger().info("DEBUG: is Set " + propertyDescriptor.getReadMethod().getGenericReturnType().getTypeName());
-                        plugin.getLogger().info("DEBUG: adding a set");
-                    }
-                    // Loop through the collection resultset 
-                    // Note that we have no idea what type this is
-                    List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                    // collectionTypes should be only 1 long
-                    Type setType = collectionTypes.get(0);
+                    property.set(instance, value);
+                } else if (property.getKind() == Kind.SET) {
                     if (DEBUG)
-                        plugin.getLogger().info("DEBUG: is HashSet<" + setType.getTypeName() + ">");
+                        plugin.getLogger().info("DEBUG: is HashSet<" + property.getElementClass(0).getTypeName() + ">");
                     Set<Object> value = new HashSet<Object>();
-                    if (DEBUG) {
-                        plugin.getLogger().info("DEBUG: collection type argument = " + collectionTypes);
-                        plugin.getLogger().info("DEBUG: setType = " + setType.getTypeName());
-                    }
-                    for (Object listValue: config.getList(field.getName())) {
-                        //plugin.getLogger().info("DEBUG: collectionResultSet size = " + collectionResultSet.getFetchSize());
-                        ((Set<Object>) value).add(deserialize(listValue,Class.forName(setType.getTypeName())));
+                    for (Object listValue: config.getList(name)) {
+                        value.add(deserialize(listValue, property.getElementClass(0), property.getElementValueType(0)));
                     }
-
-                    // TODO: this may not work with all keys. Further serialization may be required.
-                    //Set<Object> value = new HashSet((List<Object>) config.getList(field.getName()));                    
-                    method.invoke(instance, value);
-                } else if (propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                    //plugin.getLogger().info("DEBUG: is Set " + propertyDescriptor.getReadMethod().getGenericReturnType().getTypeName());
+                    property.set(instance, value);
+                } else if (property.getKind() == Kind.LIST) {
                     if (DEBUG)
-                        plugin.getLogger().info("DEBUG: adding a set");
-                    // Loop through the collection resultset 
-                    // Note that we have no idea what type this is
-                    List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                    // collectionTypes should be only 1 long
-                    Type setType = collectionTypes.get(0);
+                        plugin.getLogger().info("DEBUG: is ArrayList<" + property.getElementClass(0).getTypeName() + ">");
                     List<Object> value = new ArrayList<Object>();
-                    //plugin.getLogger().info("DEBUG: collection type argument = " + collectionTypes);
-                    //plugin.getLogger().info("DEBUG: setType = " + setType.getTypeName());
-                    for (Object listValue: config.getList(field.getName())) {
-                        //plugin.getLogger().info("DEBUG: collectionResultSet size = " + collectionResultSet.getFetchSize());
-                        ((List<Object>) value).add(deserialize(listValue,Class.forName(setType.getTypeName())));
+                    for (Object listValue: config.getList(name)) {
+                        value.add(deserialize(listValue, property.getElementClass(0), property.getElementValueType(0)));
                     }
-                    // TODO: this may not work with all keys. Further serialization may be required.
-                    //Set<Object> value = new HashSet((List<Object>) config.getList(field.getName()));                    
-                    method.invoke(instance, value);
+                    property.set(instance, value);
                 } else {
                     // Not a collection
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: not a collection");
-                    Object value = config.get(field.getName());
+                    Object value = config.get(name);
                     if (DEBUG) {
                         plugin.getLogger().info("DEBUG: value = " + value);
-                        plugin.getLogger().info("DEBUG: property type = " + propertyDescriptor.getPropertyType());
-                        plugin.getLogger().info("DEBUG: " + value.getClass());
+                        plugin.getLogger().info("DEBUG: property type = " + property.getPropertyType());
                     }
                     if (value != null && !value.getClass().equals(MemorySection.class)) {
-                        method.invoke(instance, deserialize(value,propertyDescriptor.getPropertyType()));
+                        property.set(instance, deserialize(value, property.getPropertyType(), property.getValueType()));
                     }
                 }
             }
@@ -242,33 +237,24 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
         // The file name of the Yaml file.
         String filename = "";
         // Run through all the fields in the class that is being stored. EVERY field must have a get and set method
-        for (Field field : type.getDeclaredFields()) {
-            // Get the property descriptor for this field
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-            // Get the read method, i.e., getXXXX();
-            Method method = propertyDescriptor.getReadMethod();
-            // Invoke the read method to get the value. We have no idea what type of value it is.
-            Object value = method.invoke(instance);
-            //plugin.getLogger().info("DEBUG: writing " + field.getName());
-            //plugin.getLogger().info("DEBUG: property desc = " + propertyDescriptor.getPropertyType().getTypeName());
-            // Depending on the vale type, it'll need serializing differenty
+        for (Property property : schema.getProperties()) {
+            // Get the value. We have no idea what type of value it is.
+            Object value = property.get(instance);
             // Check if this field is the mandatory UniqueId field. This is used to identify this instantiation of the class
-            if (method.getName().equals("getUniqueId")) {
+            if (property == schema.getUniqueId()) {
                 // If the object does not have a unique name assigned to it already, one is created at random
-                //plugin.getLogger().info("DEBUG: uniqueId = " + value);
                 String id = (String)value;
                 if (id.isEmpty()) {
                     id = databaseConnecter.getUniqueId(type.getSimpleName());
                     // Set it in the class so that it will be used next time
-                    propertyDescriptor.getWriteMethod().invoke(instance, id);
+                    property.set(instance, id);
                 }
                 // Save the name for when the file is saved
                 filename = id;
             }
             // Collections need special serialization
-            if (propertyDescriptor.getPropertyType().equals(HashMap.class) || propertyDescriptor.getPropertyType().equals(Map.class)) {
+            if (property.getKind() == Kind.MAP) {
                 // Maps need to have keys serialized
-                //plugin.getLogger().info("DEBUG: Map for " + field.getName());
                 if (value != null) {
                     Map<Object, Object> result = new HashMap<Object, Object>();
                     for (Entry<Object, Object> object : ((Map<Object,Object>)value).entrySet()) {
@@ -277,23 +263,23 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
                         result.put(serialize(object.getKey()), object.getValue());
                     }
                     // Save the list in the config file
-                    config.set(field.getName(), result);
+                    config.set(property.getName(), result);
                 }
-            } else if (propertyDescriptor.getPropertyType().equals(Set.class)) {
+            } else if (property.getKind() == Kind.SET) {
                 // Sets need to be serialized as string lists
                 if (DEBUG)
-                    plugin.getLogger().info("DEBUG: Set for " + field.getName());
+                    plugin.getLogger().info("DEBUG: Set for " + property.getName());
                 if (value != null) {
                     List<Object> list = new ArrayList<Object>();
                     for (Object object : (Set<Object>)value) {
                         list.add(serialize(object));
                     }
                     // Save the list in the config file
-                    config.set(field.getName(), list);
+                    config.set(property.getName(), list);
                 }
             } else {
                 // For all other data that doesn't need special serialization
-                config.set(field.getName(), serialize(value));
+                config.set(property.getName(), serialize(value));
             }
         }
         if (filename.isEmpty()) {
@@ -330,7 +316,15 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
         return object;
     }
 
-    private Object deserialize(Object value, Class<? extends Object> clazz) {
+    /**
+     * Deserialize a value read from the config
+     * @param value
+     * @param clazz - the class the value should be
+     * @param valueType - how the class is stored, from the schema
+     * @return the deserialized value
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object deserialize(Object value, Class<? extends Object> clazz, ValueType valueType) {
         if (DEBUG) {
             plugin.getLogger().info("DEBUG: deserialize - class is " + clazz.getCanonicalName());
             plugin.getLogger().info("DEBUG: value  is " + value);
@@ -346,43 +340,41 @@ public class FlatFileDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             return value;
         }
         // Types that need to be deserialized
-        if (clazz.equals(Long.class) && value.getClass().equals(Integer.class)) {
-            return new Long((Integer)value); 
-        }
-        if (clazz.equals(UUID.class)) {
-            value = UUID.fromString((String)value);
-        }
-        // Bukkit Types
-        if (clazz.equals(Location.class)) {
+        switch (valueType) {
+        case LONG:
+            if (value.getClass().equals(Integer.class)) {
+                return new Long((Integer)value);
+            }
+            return value;
+        case UUID:
+            return UUID.fromString((String)value);
+        case LOCATION:
             // Get Location from String - may be null...
-            value = Util.getLocationString(((String)value));
-        }
-        if (clazz.equals(World.class)) {
+            return Util.getLocationString(((String)value));
+        case WORLD:
             // Get world by name - may be null...
-            value = plugin.getServer().getWorld((String)value);
-        }
-        // Enums
-        if (clazz.getSuperclass() != null && clazz.getSuperclass().equals(Enum.class)) {
+            return plugin.getServer().getWorld((String)value);
+        case ENUM:
             //Custom enums are a child of the Enum class.
             // Find out the value
             try {
                 Class<Enum> enumClass = (Class<Enum>)clazz;
-                value = Enum.valueOf(enumClass, (String)value);
+                return Enum.valueOf(enumClass, (String)value);
             } catch (Exception e) {
                 // Maybe this value does not exist?
                 // TODO return something?
                 e.printStackTrace();
             }
+            return value;
+        default:
+            return value;
         }
-        return value;
     }
 
     @Override
     public void deleteObject(T instance) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IntrospectionException {
         // The file name of the Yaml file.
-        PropertyDescriptor propertyDescriptor = new PropertyDescriptor("uniqueId", type);
-        Method method = propertyDescriptor.getReadMethod();
-        String fileName = (String) method.invoke(instance);
+        String fileName = (String) schema.getUniqueId().get(instance);
         if (!fileName.endsWith(".yml")) {
             fileName = fileName + ".yml";
         }
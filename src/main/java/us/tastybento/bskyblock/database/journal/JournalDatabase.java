@@ -0,0 +1,16 @@
+package us.tastybento.bskyblock.database.journal;
+
+import org.bukkit.plugin.Plugin;
+
+import us.tastybento.bskyblock.database.BSBDatabase;
+import us.tastybento.bskyblock.database.flatfile.FlatFileDatabaseConnecter;
+import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+
+public class JournalDatabase extends BSBDatabase{
+
+    @Override
+    public AbstractDatabaseHandler<?> getHandler(Plugin plugin, Class<?> type) {
+        return new JournalDatabaseHandler<>(plugin, type, new FlatFileDatabaseConnecter(plugin, null));
+    }
+
+}
@@ -0,0 +1,884 @@
+package us.tastybento.bskyblock.database.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import us.tastybento.bskyblock.database.DatabaseConnecter;
+import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Kind;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Property;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.ValueType;
+import us.tastybento.bskyblock.util.Util;
+
+/**
+ * Stores <T>s as binary records in an append-only journal.
+ * A save appends the new state of each object and a delete appends a tombstone. When the journal
+ * grows bigger than the snapshot, the live records are written to a new snapshot and a new, empty
+ * journal is started. Each snapshot and journal pair is a generation, so files are only ever
+ * appended to or deleted, never rewritten in place.
+ * On startup the snapshot and then the journal are read straight through with memory-mapped reads.
+ * Only the position of the latest record of each object is kept in memory.
+ *
+ * @param <T>
+ */
+public class JournalDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
+
+    private static final boolean DEBUG = false;
+    private static final String DATABASE_FOLDER_NAME = "database";
+    private static final int MAGIC = 0x42534B4A;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // Length and checksum in front of each record
+    private static final int RECORD_HEADER_SIZE = 8;
+    // The journal is compacted when it is bigger than this and bigger than the snapshot
+    private static final long COMPACT_THRESHOLD = 1024L * 1024L;
+
+    // Record types
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    // Value tags
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte COLLECTION = 8;
+    private static final byte MAP = 9;
+
+    /**
+     * Where the body of the latest record for an object is
+     */
+    private static class Pointer {
+        private final boolean inSnapshot;
+        private final long position;
+        private final int length;
+
+        private Pointer(boolean inSnapshot, long position, int length) {
+            this.inSnapshot = inSnapshot;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private final File folder;
+    private final String tableName;
+    private final Pattern generationFile;
+    private final ConcurrentHashMap<String, Pointer> index = new ConcurrentHashMap<>();
+    // Held for writing only while the files are being switched to a new generation
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int generation;
+    // Null if this generation has no snapshot
+    private FileChannel snapshot;
+    private FileChannel journal;
+    private volatile boolean opened = false;
+
+    /**
+     * @param plugin
+     * @param type - the type of class to be stored in the database. Must inherit DataObject
+     * @param databaseConnecter
+     */
+    public JournalDatabaseHandler(Plugin plugin, Class<T> type, DatabaseConnecter databaseConnecter) {
+        super(plugin, type, databaseConnecter);
+        this.folder = new File(plugin.getDataFolder(), DATABASE_FOLDER_NAME);
+        this.tableName = type.getCanonicalName();
+        this.generationFile = Pattern.compile(Pattern.quote(tableName) + "\\.(\\d+)\\.(snapshot|journal|snapshot\\.tmp)");
+    }
+
+    @Override
+    protected String createSelectQuery() {
+        return ""; // not used
+    }
+    @Override
+    protected String createInsertQuery() {
+        return ""; // not used
+    }
+    @Override
+    protected String createDeleteQuery() {
+        return ""; // Not used
+    }
+
+    private File getSnapshotFile(int generation) {
+        return new File(folder, tableName + "." + generation + ".snapshot");
+    }
+
+    private File getJournalFile(int generation) {
+        return new File(folder, tableName + "." + generation + ".journal");
+    }
+
+    /**
+     * Opens the files of the latest generation and reads them to find the latest record of each object
+     * @param bodies - if not null, the body of the latest record of each object is put in here
+     * @throws IOException
+     */
+    private synchronized void open(Map<String, ByteBuffer> bodies) throws IOException {
+        // Nothing can be read until this is done
+        lock.writeLock().lock();
+        try {
+            closeFiles();
+            openFiles(bodies);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openFiles(Map<String, ByteBuffer> bodies) throws IOException {
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        // The latest generation is the one with the newest complete snapshot
+        generation = 0;
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = generationFile.matcher(file.getName());
+                if (matcher.matches() && matcher.group(2).equals("snapshot")) {
+                    generation = Math.max(generation, Integer.parseInt(matcher.group(1)));
+                }
+            }
+            // Anything left from older generations or unfinished compactions
+            for (File file : files) {
+                Matcher matcher = generationFile.matcher(file.getName());
+                if (matcher.matches() && (Integer.parseInt(matcher.group(1)) != generation || matcher.group(2).equals("snapshot.tmp"))) {
+                    if (DEBUG)
+                        plugin.getLogger().info("DEBUG: deleting " + file.getName());
+                    file.delete();
+                }
+            }
+        }
+        index.clear();
+        File snapshotFile = getSnapshotFile(generation);
+        if (snapshotFile.exists()) {
+            snapshot = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+            long end = replay(map(snapshot), true, bodies);
+            if (end < snapshot.size()) {
+                // A snapshot is only used once it is complete, so this is damage. The next compaction drops the
+                // records after it, so keep a copy.
+                plugin.getLogger().severe(snapshotFile.getName() + " is damaged after " + end + " bytes! Records after that are lost.");
+                keepCopy(snapshotFile);
+            }
+        }
+        File journalFile = getJournalFile(generation);
+        journal = openJournal(journalFile);
+        ByteBuffer buffer = map(journal);
+        long end = replay(buffer, false, bodies);
+        if (end < journal.size()) {
+            if (isTornTail(buffer, (int)end)) {
+                // Most likely the server stopped part way through a write
+                plugin.getLogger().warning("Ignoring " + (journal.size() - end) + " bytes at the end of " + journalFile.getName());
+            } else {
+                // A bad record with more after it is damage, not an unfinished write
+                plugin.getLogger().severe(journalFile.getName() + " is damaged after " + end + " bytes! Records after that are lost.");
+                keepCopy(journalFile);
+            }
+            journal.truncate(end);
+        }
+        opened = true;
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: opened generation " + generation + " with " + index.size() + " records");
+    }
+
+    /**
+     * @param buffer - the whole file
+     * @param end - where replay stopped
+     * @return true if the bad record at end is cut short by the end of the file, i.e., it was never finished
+     */
+    private static boolean isTornTail(ByteBuffer buffer, int end) {
+        int remaining = buffer.limit() - end;
+        return remaining < RECORD_HEADER_SIZE || buffer.getInt(end) > remaining - RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * Copies a damaged file aside so that the records in it can be recovered by hand
+     * @param file
+     */
+    private void keepCopy(File file) {
+        File copy = new File(folder, file.getName() + "." + System.currentTimeMillis() + ".corrupt");
+        try {
+            Files.copy(file.toPath(), copy.toPath());
+            plugin.getLogger().severe("A copy of the damaged file has been kept as " + copy.getName());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not keep a copy of " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!opened) {
+            synchronized (this) {
+                if (!opened) {
+                    open(null);
+                }
+            }
+        }
+    }
+
+    private static FileChannel openJournal(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            // New, or the header was never finished
+            channel.truncate(0);
+            writeHeader(channel);
+            channel.force(true);
+        }
+        return channel;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header, 0);
+    }
+
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Database file is too big to read");
+        }
+        return channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    /**
+     * Reads the records in a file in order, updating the index
+     * @param buffer - the whole file
+     * @param inSnapshot - true if the file is the snapshot
+     * @param bodies - if not null, the body of the latest record of each object is put in here
+     * @return the position after the last good record
+     * @throws IOException if the file is not a journal or snapshot
+     */
+    private long replay(ByteBuffer buffer, boolean inSnapshot, Map<String, ByteBuffer> bodies) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a BSkyBlock database file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown database file version " + buffer.getInt(4));
+        }
+        CRC32 crc = new CRC32();
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            int checksum = buffer.getInt(position + 4);
+            int start = position + RECORD_HEADER_SIZE;
+            if (length <= 0 || length > buffer.limit() - start) {
+                break;
+            }
+            ByteBuffer body = slice(buffer, start, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int)crc.getValue() != checksum) {
+                break;
+            }
+            byte op = body.get(0);
+            String uniqueId = readString((ByteBuffer)body.duplicate().position(1));
+            if (op == PUT) {
+                index.put(uniqueId, new Pointer(inSnapshot, start, length));
+                if (bodies != null) {
+                    bodies.put(uniqueId, body);
+                }
+            } else {
+                index.remove(uniqueId);
+                if (bodies != null) {
+                    bodies.remove(uniqueId);
+                }
+            }
+            position = start + length;
+        }
+        return position;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start);
+        duplicate.limit(start + length);
+        return duplicate.slice();
+    }
+
+    /**
+     * Loads all the objects by reading the snapshot and then the journal from start to end
+     */
+    @Override
+    public synchronized List<T> loadObjects() throws SQLException, InstantiationException, InvocationTargetException {
+        Map<String, ByteBuffer> bodies = new LinkedHashMap<>();
+        try {
+            open(bodies);
+        } catch (IOException e) {
+            throw new SQLException("Could not read the " + type.getSimpleName() + " database", e);
+        }
+        List<T> list = new ArrayList<>(bodies.size());
+        for (ByteBuffer body : bodies.values()) {
+            list.add(decode(body));
+        }
+        return list;
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#loadObject(java.lang.String)
+     */
+    @Override
+    public T loadObject(String uniqueId) throws SQLException, InstantiationException, InvocationTargetException {
+        ByteBuffer body;
+        try {
+            ensureOpen();
+            lock.readLock().lock();
+            try {
+                // The files may have been closed since ensureOpen
+                if (!opened) {
+                    throw new SQLException("The " + type.getSimpleName() + " database is closed");
+                }
+                Pointer pointer = index.get(uniqueId);
+                if (pointer == null) {
+                    return null;
+                }
+                body = read(pointer);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read " + uniqueId + " from the " + type.getSimpleName() + " database", e);
+        }
+        return decode(body);
+    }
+
+    /**
+     * Reads the body of a record. The read lock must be held.
+     * @param pointer
+     * @return body
+     * @throws IOException
+     */
+    private ByteBuffer read(Pointer pointer) throws IOException {
+        FileChannel channel = pointer.inSnapshot ? snapshot : journal;
+        ByteBuffer body = ByteBuffer.allocate(pointer.length);
+        long position = pointer.position;
+        while (body.hasRemaining()) {
+            int read = channel.read(body, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of database file");
+            }
+            position += read;
+        }
+        body.flip();
+        return body;
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#objectExits(java.lang.String)
+     */
+    @Override
+    public boolean objectExits(String key) {
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return index.containsKey(key);
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#saveObject(java.lang.Object)
+     */
+    @Override
+    public void saveObject(T instance) throws SQLException, InvocationTargetException {
+        saveObjects(Collections.singletonList(instance));
+    }
+
+    /**
+     * Appends the <T>s to the journal in one write
+     */
+    @Override
+    public synchronized void saveObjects(Collection<T> instances) throws SQLException, InvocationTargetException {
+        if (instances.isEmpty()) {
+            return;
+        }
+        List<String> uniqueIds = new ArrayList<>(instances.size());
+        List<ByteBuffer> records = new ArrayList<>(instances.size());
+        for (T instance : instances) {
+            String uniqueId = (String) schema.getUniqueId().get(instance);
+            if (uniqueId == null || uniqueId.isEmpty()) {
+                throw new SQLException("uniqueId is blank");
+            }
+            uniqueIds.add(uniqueId);
+            records.add(encode(PUT, uniqueId, instance));
+        }
+        append(uniqueIds, records);
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#deleteObject(java.lang.Object)
+     */
+    @Override
+    public synchronized void deleteObject(T instance) throws SQLException, InvocationTargetException {
+        String uniqueId = (String) schema.getUniqueId().get(instance);
+        if (uniqueId == null || uniqueId.isEmpty()) {
+            throw new SQLException("uniqueId is blank");
+        }
+        try {
+            ensureOpen();
+        } catch (IOException e) {
+            throw new SQLException("Could not open the " + type.getSimpleName() + " database", e);
+        }
+        if (index.containsKey(uniqueId)) {
+            // Tombstone
+            append(Collections.singletonList(uniqueId), Collections.singletonList(encode(DELETE, uniqueId, null)));
+        }
+    }
+
+    /**
+     * Writes the records to the end of the journal and makes sure they are on disk
+     * @param uniqueIds
+     * @param records - encoded records in the same order as uniqueIds
+     * @throws SQLException
+     */
+    private void append(List<String> uniqueIds, List<ByteBuffer> records) throws SQLException {
+        long start = 0;
+        try {
+            ensureOpen();
+            start = journal.size();
+            long position = start;
+            for (ByteBuffer record : records) {
+                writeFully(journal, record, position);
+                position += record.limit();
+            }
+            journal.force(false);
+        } catch (IOException e) {
+            // Do not leave half a record behind
+            try {
+                if (journal != null) {
+                    journal.truncate(start);
+                }
+            } catch (IOException e1) {
+                e1.printStackTrace();
+            }
+            throw new SQLException("Could not write to the " + type.getSimpleName() + " database", e);
+        }
+        long position = start;
+        for (int i = 0; i < records.size(); i++) {
+            ByteBuffer record = records.get(i);
+            if (record.get(RECORD_HEADER_SIZE) == PUT) {
+                index.put(uniqueIds.get(i), new Pointer(false, position + RECORD_HEADER_SIZE, record.limit() - RECORD_HEADER_SIZE));
+            } else {
+                index.remove(uniqueIds.get(i));
+            }
+            position += record.limit();
+        }
+        try {
+            long journalSize = journal.size();
+            if (journalSize > COMPACT_THRESHOLD && journalSize > (snapshot == null ? 0 : snapshot.size())) {
+                compact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Writes the latest record of every object to a new snapshot and starts a new journal.
+     * The old files are only deleted once the new ones are in place, so a crash at any point
+     * leaves a complete generation behind.
+     */
+    private synchronized void compact() {
+        int next = generation + 1;
+        File tmpFile = new File(folder, tableName + "." + next + ".snapshot.tmp");
+        File snapshotFile = getSnapshotFile(next);
+        Map<String, Pointer> moved = new HashMap<>();
+        long time = System.currentTimeMillis();
+        FileChannel out = null;
+        try {
+            out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            writeHeader(out);
+            long position = HEADER_SIZE;
+            ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            for (Entry<String, Pointer> en : index.entrySet()) {
+                // Nothing else changes the files or the index while this runs, so no lock is needed to read
+                ByteBuffer body = read(en.getValue());
+                crc.reset();
+                crc.update(body.duplicate());
+                recordHeader.clear();
+                recordHeader.putInt(body.limit()).putInt((int)crc.getValue()).flip();
+                writeFully(out, recordHeader, position);
+                writeFully(out, body, position + RECORD_HEADER_SIZE);
+                moved.put(en.getKey(), new Pointer(true, position + RECORD_HEADER_SIZE, body.limit()));
+                position += RECORD_HEADER_SIZE + body.limit();
+            }
+            out.force(true);
+            out.close();
+            out = null;
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not compact the " + type.getSimpleName() + " database: " + e.getMessage());
+            e.printStackTrace();
+            closeQuietly(out);
+            tmpFile.delete();
+            return;
+        }
+        FileChannel newSnapshot = null;
+        FileChannel newJournal = null;
+        try {
+            newSnapshot = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ);
+            newJournal = openJournal(getJournalFile(next));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not start a new " + type.getSimpleName() + " journal: " + e.getMessage());
+            e.printStackTrace();
+            closeQuietly(newSnapshot);
+            closeQuietly(newJournal);
+            // Keep using this generation. The new snapshot must go or it would be used on the next startup.
+            if (!snapshotFile.delete()) {
+                plugin.getLogger().severe("Could not delete " + snapshotFile.getName() + ". Saves after this will be lost on restart!");
+            }
+            getJournalFile(next).delete();
+            return;
+        }
+        int old = generation;
+        lock.writeLock().lock();
+        try {
+            closeFiles();
+            snapshot = newSnapshot;
+            journal = newJournal;
+            generation = next;
+            index.putAll(moved);
+            opened = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // If these cannot be deleted now, for example because they are still mapped, they go on the next startup
+        getSnapshotFile(old).delete();
+        getJournalFile(old).delete();
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: compacted " + moved.size() + " records in " + (System.currentTimeMillis() - time) + " ms");
+    }
+
+    private void closeFiles() {
+        closeQuietly(snapshot);
+        closeQuietly(journal);
+        snapshot = null;
+        journal = null;
+        opened = false;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Closes the files
+     */
+    @Override
+    public synchronized void close() {
+        lock.writeLock().lock();
+        try {
+            closeFiles();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Encodes a record with its length and checksum in front
+     * @param op - PUT or DELETE
+     * @param uniqueId
+     * @param instance - null for a DELETE
+     * @return the record
+     * @throws InvocationTargetException
+     * @throws SQLException
+     */
+    private ByteBuffer encode(byte op, String uniqueId, T instance) throws InvocationTargetException, SQLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            // Length and checksum are filled in at the end
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(op);
+            writeString(out, uniqueId);
+            if (op == PUT) {
+                // Fields are stored by name so that fields can be added to or removed from the class
+                out.writeInt(schema.getProperties().size());
+                for (Property property : schema.getProperties()) {
+                    writeString(out, property.getName());
+                    writeProperty(out, property, property.get(instance));
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new SQLException("Could not encode " + uniqueId, e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int length = record.limit() - RECORD_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, length);
+        record.putInt(0, length);
+        record.putInt(4, (int)crc.getValue());
+        return record;
+    }
+
+    private void writeProperty(DataOutputStream out, Property property, Object value) throws IOException {
+        if (!property.isCollection() || value == null) {
+            writeValue(out, serialize(value, property.getValueType()));
+        } else if (property.getKind() == Kind.MAP) {
+            Map<?,?> map = (Map<?,?>)value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Entry<?,?> en : map.entrySet()) {
+                writeValue(out, serialize(en.getKey(), property.getElementValueType(0)));
+                writeValue(out, serialize(en.getValue(), property.getElementValueType(1)));
+            }
+        } else {
+            Collection<?> collection = (Collection<?>)value;
+            out.writeByte(COLLECTION);
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, serialize(element, property.getElementValueType(0)));
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean)value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number)value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long)value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)value);
+        } else {
+            // Anything else is stored as a string
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+        case NULL:
+            return null;
+        case TRUE:
+            return true;
+        case FALSE:
+            return false;
+        case INT:
+            return buffer.getInt();
+        case LONG:
+            return buffer.getLong();
+        case DOUBLE:
+            return buffer.getDouble();
+        case FLOAT:
+            return buffer.getFloat();
+        case STRING:
+            return readString(buffer);
+        case COLLECTION:
+            int size = buffer.getInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(buffer));
+            }
+            return list;
+        case MAP:
+            int entries = buffer.getInt();
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                map.put(readValue(buffer), readValue(buffer));
+            }
+            return map;
+        default:
+            throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+
+    /**
+     * Creates a <T> from the body of a PUT record
+     * @param body
+     * @return <T>
+     * @throws InstantiationException
+     * @throws InvocationTargetException
+     */
+    private T decode(ByteBuffer body) throws InstantiationException, InvocationTargetException {
+        ByteBuffer buffer = body.duplicate();
+        buffer.position(1);
+        readString(buffer);
+        T instance = schema.newInstance();
+        int fields = buffer.getInt();
+        for (int i = 0; i < fields; i++) {
+            Property property = schema.getProperty(readString(buffer));
+            Object value = readValue(buffer);
+            if (property == null) {
+                // This field has been removed from the class
+                continue;
+            }
+            if (property.isCollection()) {
+                property.set(instance, toCollection(property, value));
+            } else {
+                property.set(instance, deserialize(value, property.getPropertyType(), property.getValueType()));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param property
+     * @param value - the list or map read from the record
+     * @return a collection of the right kind for this property with deserialized elements
+     */
+    private Object toCollection(Property property, Object value) {
+        if (property.getKind() == Kind.MAP) {
+            Map<Object, Object> map = new HashMap<>();
+            if (value instanceof Map) {
+                for (Entry<?,?> en : ((Map<?,?>)value).entrySet()) {
+                    map.put(deserialize(en.getKey(), property.getElementClass(0), property.getElementValueType(0)),
+                            deserialize(en.getValue(), property.getElementClass(1), property.getElementValueType(1)));
+                }
+            }
+            return map;
+        }
+        Collection<Object> collection = property.getKind() == Kind.SET ? new HashSet<>() : new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>)value) {
+                collection.add(deserialize(element, property.getElementClass(0), property.getElementValueType(0)));
+            }
+        }
+        return collection;
+    }
+
+    /**
+     * Converts a value to something that can be written
+     * @param value
+     * @param valueType - how the known class of value is stored
+     * @return the object to write
+     */
+    private Object serialize(Object value, ValueType valueType) {
+        if (value == null) {
+            return null;
+        }
+        switch (valueType) {
+        case UUID:
+            return value.toString();
+        case LOCATION:
+            return Util.getStringLocation(((Location)value));
+        case WORLD:
+            return ((World)value).getName();
+        case ENUM:
+            return ((Enum<?>)value).name();
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Converts a value that has been read back to its class
+     * @param value
+     * @param clazz
+     * @param valueType - how clazz is stored, from the schema
+     * @return the deserialized value
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object deserialize(Object value, Class<?> clazz, ValueType valueType) {
+        if (value == null) {
+            return null;
+        }
+        switch (valueType) {
+        case UUID:
+            return UUID.fromString((String)value);
+        case LOCATION:
+            // May be null if the world is not loaded
+            return Util.getLocationString(((String)value));
+        case WORLD:
+            return plugin.getServer().getWorld((String)value);
+        case ENUM:
+            try {
+                return Enum.valueOf((Class<Enum>)clazz, (String)value);
+            } catch (Exception e) {
+                // Maybe this value does not exist any more
+                e.printStackTrace();
+                return null;
+            }
+        default:
+            break;
+        }
+        // The type of a field may have changed since it was written
+        if (value instanceof Number) {
+            Number number = (Number)value;
+            if (clazz == int.class || clazz == Integer.class) {
+                return number.intValue();
+            } else if (clazz == long.class || clazz == Long.class) {
+                return number.longValue();
+            } else if (clazz == double.class || clazz == Double.class) {
+                return number.doubleValue();
+            } else if (clazz == float.class || clazz == Float.class) {
+                return number.floatValue();
+            } else if (clazz == short.class || clazz == Short.class) {
+                return number.shortValue();
+            } else if (clazz == byte.class || clazz == Byte.class) {
+                return number.byteValue();
+            }
+        }
+        return value;
+    }
+
+}
@@ -3,6 +3,7 @@ package us.tastybento.bskyblock.database.managers;
 import java.beans.IntrospectionException;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 
 import org.bukkit.plugin.Plugin;
@@ -31,6 +32,12 @@ public abstract class AbstractDatabaseHandler<T> {
      */
     protected DatabaseConnecter     databaseConnecter;
 
+    /**
+     * The fields of type and how to get, set and serialize them.
+     * Worked out once so that loads and saves do not need introspection.
+     */
+    protected final DataObjectSchema<T> schema;
+
     /** The SQL-select- and insert query */
     protected final String     selectQuery;
     protected final String     insertQuery;
@@ -54,6 +61,11 @@ public abstract class AbstractDatabaseHandler<T> {
         this.plugin = plugin;
         this.databaseConnecter = databaseConnecter;
         this.type = type;
+        try {
+            this.schema = DataObjectSchema.of(type);
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(type.getName() + " cannot be stored in the database: " + e.getMessage(), e);
+        }
         this.selectQuery = createSelectQuery();
         this.insertQuery = createInsertQuery();
         this.deleteQuery = createDeleteQuery();
@@ -113,6 +125,26 @@ public abstract class AbstractDatabaseHandler<T> {
      */
     public abstract void saveObject(T instance) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IntrospectionException, SQLException, SecurityException, InstantiationException, NoSuchMethodException;
 
+    /**
+     * Save a batch of T into the corresponding database.
+     * Databases that support it write the whole batch in one transaction, otherwise each is saved in turn.
+     *
+     * @param instances that should be inserted into the database
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws InvocationTargetException
+     * @throws IntrospectionException
+     * @throws InstantiationException
+     * @throws SecurityException
+     * @throws SQLException
+     * @throws NoSuchMethodException
+     */
+    public void saveObjects(Collection<T> instances) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IntrospectionException, SQLException, SecurityException, InstantiationException, NoSuchMethodException {
+        for (T instance : instances) {
+            saveObject(instance);
+        }
+    }
+
     /**
      * Deletes the object with the unique id from the database
      * @param instance
@@ -133,4 +165,12 @@ public abstract class AbstractDatabaseHandler<T> {
      */
     public abstract boolean objectExits(String key);
 
+    /**
+     * Releases anything held open by this handler, such as database connections.
+     * Called when the plugin shuts down, after everything has been saved.
+     */
+    public void close() {
+        // Nothing to close by default
+    }
+
 }
@@ -0,0 +1,421 @@
+package us.tastybento.bskyblock.database.managers;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import us.tastybento.bskyblock.util.Util;
+
+/**
+ * Describes how a data object class is stored. The fields, their getters and setters, collection
+ * element types and how each value is serialized are worked out once per class with introspection
+ * and then reused for every load and save. Getters and setters are called through method handles
+ * so no reflection lookups happen per object.
+ *
+ * @param <T> data object type
+ */
+public class DataObjectSchema<T> {
+
+    private static final Map<Class<?>, DataObjectSchema<?>> SCHEMAS = new ConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * How a property is stored
+     */
+    public enum Kind {
+        /**
+         * A single value
+         */
+        VALUE,
+        /**
+         * A Set
+         */
+        SET,
+        /**
+         * An ArrayList
+         */
+        LIST,
+        /**
+         * A Map or HashMap
+         */
+        MAP
+    }
+
+    /**
+     * How a single value is converted to and from its stored form
+     */
+    public enum ValueType {
+        PLAIN,
+        LONG,
+        UUID,
+        LOCATION,
+        WORLD,
+        ENUM;
+
+        /**
+         * @param clazz
+         * @return the value type used to store this class
+         */
+        public static ValueType of(Class<?> clazz) {
+            if (clazz.equals(Long.class)) {
+                return LONG;
+            }
+            if (clazz.equals(java.util.UUID.class)) {
+                return UUID;
+            }
+            if (clazz.equals(Location.class)) {
+                return LOCATION;
+            }
+            if (clazz.equals(World.class)) {
+                return WORLD;
+            }
+            if (clazz.getSuperclass() != null && clazz.getSuperclass().equals(Enum.class)) {
+                return ENUM;
+            }
+            return PLAIN;
+        }
+    }
+
+    /**
+     * A stored field of the data object
+     */
+    public static class Property {
+        private final String name;
+        private final Class<?> propertyType;
+        private final Kind kind;
+        private final ValueType valueType;
+        private final Type[] elementTypes;
+        private final Class<?>[] elementClasses;
+        private final ValueType[] elementValueTypes;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private Property(String name, Class<?> propertyType, Method readMethod, Method writeMethod) throws IntrospectionException {
+            this.name = name;
+            this.propertyType = propertyType;
+            if (propertyType.equals(Set.class)) {
+                kind = Kind.SET;
+            } else if (propertyType.equals(ArrayList.class)) {
+                kind = Kind.LIST;
+            } else if (propertyType.equals(Map.class) || propertyType.equals(HashMap.class)) {
+                kind = Kind.MAP;
+            } else {
+                kind = Kind.VALUE;
+            }
+            this.valueType = ValueType.of(propertyType);
+            // Element types come from the generic parameters of the write method, e.g., HashMap<Location, Long>
+            List<Type> types = Util.getCollectionParameterTypes(writeMethod);
+            elementTypes = types.toArray(new Type[types.size()]);
+            elementClasses = new Class<?>[elementTypes.length];
+            elementValueTypes = new ValueType[elementTypes.length];
+            for (int i = 0; i < elementTypes.length; i++) {
+                try {
+                    elementClasses[i] = Class.forName(elementTypes[i].getTypeName());
+                } catch (ClassNotFoundException e) {
+                    throw new IntrospectionException("Cannot store " + elementTypes[i].getTypeName() + " in " + name);
+                }
+                elementValueTypes[i] = ValueType.of(elementClasses[i]);
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                this.getter = lookup.unreflect(readMethod).asType(GETTER_TYPE);
+                this.setter = lookup.unreflect(writeMethod).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IntrospectionException("Getter and setter for " + name + " must be public");
+            }
+        }
+
+        /**
+         * @return the field name, which is also the name it is stored under
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the declared type of the property
+         */
+        public Class<?> getPropertyType() {
+            return propertyType;
+        }
+
+        /**
+         * @return how the property is stored
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return true if the property is a Set, ArrayList or Map
+         */
+        public boolean isCollection() {
+            return kind != Kind.VALUE;
+        }
+
+        /**
+         * @return how a single value of this property is converted
+         */
+        public ValueType getValueType() {
+            return valueType;
+        }
+
+        /**
+         * @return the generic parameter types of a collection property, e.g., Location and Long for HashMap<Location, Long>
+         */
+        public Type[] getElementTypes() {
+            return elementTypes;
+        }
+
+        /**
+         * @param index
+         * @return the class of the collection element type at index
+         */
+        public Class<?> getElementClass(int index) {
+            return elementClasses[index];
+        }
+
+        /**
+         * @param index
+         * @return how the collection element type at index is converted
+         */
+        public ValueType getElementValueType(int index) {
+            return elementValueTypes[index];
+        }
+
+        /**
+         * Gets the value of this property from the instance
+         * @param instance
+         * @return value
+         * @throws InvocationTargetException if the getter throws anything
+         */
+        public Object get(Object instance) throws InvocationTargetException {
+            try {
+                return (Object) getter.invokeExact(instance);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        /**
+         * Sets the value of this property in the instance
+         * @param instance
+         * @param value
+         * @throws InvocationTargetException if the setter throws anything, or the value is the wrong type
+         */
+        public void set(Object instance, Object value) throws InvocationTargetException {
+            try {
+                setter.invokeExact(instance, value);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final List<Property> properties;
+    private final Map<String, Property> byName;
+    // The fields behind the properties, for copying
+    private final List<Field> fields;
+
+    /**
+     * Gets the schema for a class, working it out the first time it is asked for
+     * @param type
+     * @return schema
+     * @throws IntrospectionException if a field does not have a public getter and setter
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DataObjectSchema<T> of(Class<T> type) throws IntrospectionException {
+        DataObjectSchema<?> schema = SCHEMAS.get(type);
+        if (schema == null) {
+            schema = new DataObjectSchema<>(type);
+            DataObjectSchema<?> existing = SCHEMAS.putIfAbsent(type, schema);
+            if (existing != null) {
+                schema = existing;
+            }
+        }
+        return (DataObjectSchema<T>) schema;
+    }
+
+    private DataObjectSchema(Class<T> type) throws IntrospectionException {
+        this.type = type;
+        try {
+            this.constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IntrospectionException(type.getSimpleName() + " must have a public no argument constructor");
+        }
+        List<Property> list = new ArrayList<>();
+        Map<String, Property> map = new LinkedHashMap<>();
+        List<Field> fieldList = new ArrayList<>();
+        // Every declared field is stored, so EVERY field must have a get and set method
+        for (Field field : type.getDeclaredFields()) {
+            if (field.isSynthetic() || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
+            Property property = new Property(field.getName(), propertyDescriptor.getPropertyType(),
+                    propertyDescriptor.getReadMethod(), propertyDescriptor.getWriteMethod());
+            list.add(property);
+            map.put(field.getName(), property);
+            field.setAccessible(true);
+            fieldList.add(field);
+        }
+        this.properties = Collections.unmodifiableList(list);
+        this.fields = fieldList;
+        this.byName = Collections.unmodifiableMap(map);
+        if (!byName.containsKey("uniqueId")) {
+            throw new IntrospectionException(type.getSimpleName() + " has no uniqueId field");
+        }
+    }
+
+    /**
+     * @return the class this schema describes
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the stored properties in field declaration order
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param name
+     * @return the property with this name or null if there is none
+     */
+    public Property getProperty(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @return the uniqueId property
+     */
+    public Property getUniqueId() {
+        return byName.get("uniqueId");
+    }
+
+    /**
+     * Creates an empty instance of the class
+     * @return new instance
+     * @throws InstantiationException if the constructor throws anything
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() throws InstantiationException {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            InstantiationException ex = new InstantiationException("Could not create " + type.getSimpleName());
+            ex.initCause(e);
+            throw ex;
+        }
+    }
+
+    /**
+     * Makes a copy of an instance that shares nothing that can be changed with it, e.g., so that it can be
+     * written on another thread while the instance keeps changing. Fields are copied directly, so setters
+     * are not called. Collections, maps, arrays and locations are copied, including the ones inside them.
+     * Call it on the thread that changes the instance.
+     * @param instance
+     * @return copy
+     * @throws InstantiationException if the copy could not be made
+     */
+    public T copy(T instance) throws InstantiationException {
+        T copy = newInstance();
+        try {
+            for (Field field : fields) {
+                field.set(copy, copyValue(field.get(instance)));
+            }
+        } catch (ReflectiveOperationException e) {
+            InstantiationException ex = new InstantiationException("Could not copy " + type.getSimpleName());
+            ex.initCause(e);
+            throw ex;
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) throws ReflectiveOperationException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Location) {
+            return ((Location) value).clone();
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            if (value.getClass().getComponentType().isPrimitive()) {
+                System.arraycopy(value, 0, copy, 0, length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    Array.set(copy, i, copyValue(Array.get(value, i)));
+                }
+            }
+            return copy;
+        }
+        if (value instanceof Collection) {
+            Collection<Object> copy = (Collection<Object>) newContainer(value,
+                    value instanceof Set ? LinkedHashSet.class : ArrayList.class);
+            for (Object element : (Collection<Object>) value) {
+                copy.add(copyValue(element));
+            }
+            return copy;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = (Map<Object, Object>) newContainer(value, LinkedHashMap.class);
+            for (Entry<Object, Object> en : ((Map<Object, Object>) value).entrySet()) {
+                copy.put(copyValue(en.getKey()), copyValue(en.getValue()));
+            }
+            return copy;
+        }
+        // Strings, boxed numbers, UUIDs, enums and worlds are not changed in place
+        return value;
+    }
+
+    /**
+     * @param container - collection or map
+     * @param fallback - used if the class of the container cannot be made empty, e.g., an unmodifiable view
+     * @return a new empty container of the same class if possible
+     */
+    private static Object newContainer(Object container, Class<?> fallback) throws ReflectiveOperationException {
+        try {
+            return container.getClass().getConstructor().newInstance();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return fallback.getConstructor().newInstance();
+        }
+    }
+
+}
@@ -1,14 +1,16 @@
 package us.tastybento.bskyblock.database.managers;
 
-import java.beans.IntrospectionException;
-import java.lang.reflect.InvocationTargetException;
-import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -19,22 +21,56 @@ import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.BSBDatabase;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.database.objects.Players;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 public class PlayersManager{
 
     private static final boolean DEBUG = false;
+    // How often idle players are let go, in ticks
+    private static final long EVICT_PERIOD = 60 * 20L;
     private BSkyBlock plugin;
     private BSBDatabase database;
     private AbstractDatabaseHandler<Players> handler;
+    private WriteBehindQueue<Players> writeQueue;
 
-    private HashMap<UUID, Players> playerCache;
+    /**
+     * Players in memory. Online players are always kept. Offline players are let go when they have
+     * not been used for a while or when there are too many. Loads can add to it from any thread.
+     */
+    private ConcurrentHashMap<UUID, CachedPlayer> playerCache;
+    // Players being loaded async, so that one player is only loaded once at a time
+    private ConcurrentHashMap<UUID, CompletableFuture<Players>> loading;
+    // Players found not to be in the database when they logged in, so that joining does not look again
+    private Set<UUID> unknownPlayers;
     private Set<UUID> inTeleport;
+    // What to do for players when they next join, e.g., if they left while their island was being made
+    private HashMap<UUID, Consumer<Player>> onJoin;
+
+    /**
+     * A player in the cache and when it was last used
+     */
+    private static class CachedPlayer {
+        private final Players player;
+        private volatile long lastUsed;
+        // Copy of lastUsed that does not change while the cache is being sorted
+        private long sortKey;
+
+        private CachedPlayer(Players player) {
+            this.player = player;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        private Players touch() {
+            lastUsed = System.currentTimeMillis();
+            return player;
+        }
+    }
 
     /**
      * Provides a memory cache of online player information
      * This is the one-stop-shop of player info
      * If the player is not cached, then a request is made to Players to obtain it
+     * Offline players are let go from the cache after general.database.player-cache-idle minutes
+     * or when there are more than general.database.player-cache-size players in it
      *
      * @param plugin
      */
@@ -44,8 +80,13 @@ public class PlayersManager{
         database = BSBDatabase.getDatabase();
         // Set up the database handler to store and retrieve Players classes
         handler = (AbstractDatabaseHandler<Players>) database.getHandler(plugin, Players.class);
-        playerCache = new HashMap<>();
+        writeQueue = new WriteBehindQueue<>(plugin, handler, "Players");
+        playerCache = new ConcurrentHashMap<>();
+        loading = new ConcurrentHashMap<>();
+        unknownPlayers = ConcurrentHashMap.newKeySet();
         inTeleport = new HashSet<>();
+        onJoin = new HashMap<>();
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> evict(), EVICT_PERIOD, EVICT_PERIOD);
     }
 
     /**
@@ -56,7 +97,8 @@ public class PlayersManager{
         inTeleport.clear();
         try {
             for (Players player : handler.loadObjects()) {
-                playerCache.put(player.getPlayerUUID(), player);
+                player.setDirty(false);
+                playerCache.put(player.getPlayerUUID(), new CachedPlayer(player));
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -64,49 +106,41 @@ public class PlayersManager{
     }
 
     /**
-     * Save all players
+     * Save all players that have changed since they were last saved
      * @param async - if true, save async
      */
     public void save(boolean async){
         if (DEBUG)
             plugin.getLogger().info("DEBUG: saving " + async);
-        Collection<Players> set = Collections.unmodifiableCollection(playerCache.values());
-        if(async){
-            Runnable save = () -> {
-                for(Players player : set){
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: saving player " + player.getPlayerName() + " "+ player.getUniqueId());
-                    try {
-                        handler.saveObject(player);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            };
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, save);
-        } else {
-            for(Players player : set){
+        for (CachedPlayer cached : playerCache.values()) {
+            Players player = cached.player;
+            if (player.isDirty()) {
                 if (DEBUG)
                     plugin.getLogger().info("DEBUG: saving player " + player.getPlayerName() + " "+ player.getUniqueId());
-                try {
-                    handler.saveObject(player);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+                // Clear now so that changes made while saving are picked up next time
+                player.setDirty(false);
+                writeQueue.save(player);
             }
         }
+        if(!async){
+            writeQueue.flush();
+        }
     }
 
     public void shutdown(){
-        save(false);
+        save(true);
+        // Wait for everything to be written
+        if (writeQueue.shutdown()) {
+            handler.close();
+        } else {
+            // Closing it under the writer could damage the database
+            plugin.getLogger().severe("Not closing the player database while it is still being written to");
+        }
         playerCache.clear();
     }
 
     public Players getPlayer(UUID uuid){
-        if (!playerCache.containsKey(uuid)) {
-            addPlayer(uuid);
-        }
-        return playerCache.get(uuid);
+        return addPlayer(uuid);
     }
 
     /*
@@ -114,7 +148,8 @@ public class PlayersManager{
      */
 
     /**
-     * Adds a player to the cache
+     * Adds a player to the cache. If the player is not in the cache, they are loaded on this thread.
+     * Use {@link #getPlayerAsync(UUID)} to load a player without holding up the server.
      * @param playerUUID
      * @return the players object
      */
@@ -123,31 +158,193 @@ public class PlayersManager{
             return null;
         if (DEBUG)
             plugin.getLogger().info("DEBUG: adding player " + playerUUID);
-        if (!playerCache.containsKey(playerUUID)) {
+        CachedPlayer cached = playerCache.get(playerUUID);
+        if (cached != null) {
             if (DEBUG)
-                plugin.getLogger().info("DEBUG: player not in cache");
-            Players player = null;
+                plugin.getLogger().info("DEBUG: known player");
+            return cached.touch();
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: player not in cache");
+        Players player = loadPlayer(playerUUID);
+        if (player == null) {
+            return null;
+        }
+        return cache(playerUUID, player);
+    }
+
+    /**
+     * Gets the player, loading them on another thread if they are not in the cache.
+     * The future completes at once if the player is cached, otherwise it completes on the loading thread,
+     * so use the scheduler to get back onto the main thread before touching the server.
+     * It completes with null if the player could not be loaded.
+     * @param playerUUID
+     * @return future for the players object
+     */
+    public CompletableFuture<Players> getPlayerAsync(final UUID playerUUID) {
+        CachedPlayer cached = playerCache.get(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.touch());
+        }
+        CompletableFuture<Players> future = new CompletableFuture<>();
+        CompletableFuture<Players> inProgress = loading.putIfAbsent(playerUUID, future);
+        if (inProgress != null) {
+            return inProgress;
+        }
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                Players player = loadPlayer(playerUUID);
+                future.complete(player == null ? null : cache(playerUUID, player));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                loading.remove(playerUUID, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Loads the player into the cache before they join. This is called on the login thread, so it can wait for the database.
+     * Players who are not in the database are not added, but are remembered as unknown until they join.
+     * @param playerUUID
+     * @return true if the player is known
+     */
+    public boolean preloadPlayer(UUID playerUUID) {
+        CachedPlayer cached = playerCache.get(playerUUID);
+        if (cached != null) {
+            cached.touch();
+            return true;
+        }
+        if (!writeQueue.isPendingSave(playerUUID.toString()) && !handler.objectExits(playerUUID.toString())) {
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: preload - new player " + playerUUID);
+            unknownPlayers.add(playerUUID);
+            return false;
+        }
+        Players player = loadPlayer(playerUUID);
+        if (player != null) {
+            cache(playerUUID, player);
+        }
+        return true;
+    }
+
+    /**
+     * Loads any of these players that are not in the cache on another thread and then runs the task on the main thread.
+     * If they are all cached, the task is run now.
+     * @param playerUUIDs
+     * @param task
+     */
+    public void runWhenLoaded(Collection<UUID> playerUUIDs, Runnable task) {
+        List<CompletableFuture<Players>> futures = new ArrayList<>();
+        for (UUID playerUUID : playerUUIDs) {
+            if (playerUUID != null && !playerCache.containsKey(playerUUID)) {
+                futures.add(getPlayerAsync(playerUUID));
+            }
+        }
+        if (futures.isEmpty()) {
+            task.run();
+            return;
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+        .whenComplete((result, error) -> plugin.getServer().getScheduler().runTask(plugin, task));
+    }
+
+    /**
+     * Loads a player without adding them to the cache. Can be called from any thread.
+     * @param playerUUID
+     * @return the player, a new player if they are not in the database, or null if they could not be loaded
+     */
+    private Players loadPlayer(final UUID playerUUID) {
+        // If the player is still waiting to be written, use that rather than the out of date copy in the database
+        Players player = writeQueue.getPending(playerUUID.toString());
+        if (player != null) {
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: player waiting to be saved");
+        } else if (handler.objectExits(playerUUID.toString())) {
             // If the player is in the database, load it, otherwise create a new player
-            if (handler.objectExits(playerUUID.toString())) {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: player in database");
-                try {
-                    player = handler.loadObject(playerUUID.toString());
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            } else {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: new player");
-                player = new Players(playerUUID);
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: player in database");
+            try {
+                player = handler.loadObject(playerUUID.toString());
+                player.setDirty(false);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Could not load player " + playerUUID);
+                e.printStackTrace();
             }
-            playerCache.put(playerUUID, player);
-            return player;
         } else {
             if (DEBUG)
-                plugin.getLogger().info("DEBUG: known player");
-            return playerCache.get(playerUUID);
+                plugin.getLogger().info("DEBUG: new player");
+            player = new Players(playerUUID);
         }
+        return player;
+    }
+
+    /**
+     * Puts a loaded player in the cache, unless another thread put them there first
+     * @param playerUUID
+     * @param player
+     * @return the player that is in the cache
+     */
+    private Players cache(UUID playerUUID, Players player) {
+        unknownPlayers.remove(playerUUID);
+        CachedPlayer cached = playerCache.putIfAbsent(playerUUID, new CachedPlayer(player));
+        if (cached != null) {
+            return cached.touch();
+        }
+        if (playerCache.size() > Settings.playerCacheSize && Bukkit.isPrimaryThread()) {
+            evict();
+        }
+        return player;
+    }
+
+    /**
+     * Lets go of offline players that have been idle too long, and then of the least recently used
+     * offline players until the cache is back to size. Changes are saved first. Must be called on the main thread.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        long maxIdle = Settings.playerCacheIdle * 60000L;
+        List<CachedPlayer> candidates = new ArrayList<>();
+        for (Entry<UUID, CachedPlayer> en : playerCache.entrySet()) {
+            if (plugin.getServer().getPlayer(en.getKey()) == null && !inTeleport.contains(en.getKey())) {
+                en.getValue().sortKey = en.getValue().lastUsed;
+                candidates.add(en.getValue());
+            }
+        }
+        // Least recently used first
+        candidates.sort((a, b) -> Long.compare(a.sortKey, b.sortKey));
+        // Forget players who were checked at login but never joined
+        unknownPlayers.removeIf(uuid -> plugin.getServer().getPlayer(uuid) == null);
+        int excess = playerCache.size() - Settings.playerCacheSize;
+        int evicted = 0;
+        for (CachedPlayer cached : candidates) {
+            if (excess <= 0 && now - cached.sortKey < maxIdle) {
+                // Everyone after this was used more recently
+                break;
+            }
+            if (excess <= 0 && now - cached.lastUsed < maxIdle) {
+                // Used since the cache was sorted
+                continue;
+            }
+            Players player = cached.player;
+            if (player.isDirty()) {
+                // Write it first and let go of it on a later pass
+                player.setDirty(false);
+                writeQueue.save(player);
+                continue;
+            }
+            if (writeQueue.isPendingSave(player.getUniqueId())) {
+                // Still being written, so keep the live copy until the database has caught up
+                continue;
+            }
+            if (playerCache.remove(player.getPlayerUUID(), cached)) {
+                excess--;
+                evicted++;
+            }
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: let go of " + evicted + " players, " + playerCache.size() + " in cache");
     }
 
     /**
@@ -158,15 +355,13 @@ public class PlayersManager{
      */
     public void removeOnlinePlayer(final UUID player) {
         // plugin.getLogger().info("Removing player from cache: " + player);
-        if (playerCache.containsKey(player)) {
-            try {
-                handler.saveObject(playerCache.get(player));
-                playerCache.remove(player);
-            } catch (IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | SecurityException
-                    | InstantiationException | NoSuchMethodException
-                    | IntrospectionException | SQLException e) {
-                e.printStackTrace();
+        unknownPlayers.remove(player);
+        CachedPlayer cached = playerCache.remove(player);
+        if (cached != null) {
+            Players players = cached.player;
+            if (players.isDirty()) {
+                players.setDirty(false);
+                writeQueue.save(players);
             }
         }
     }
@@ -175,7 +370,7 @@ public class PlayersManager{
      * Removes all players on the server now from cache and saves their info
      */
     public void removeAllPlayers() {
-        for (UUID pl : playerCache.keySet()) {
+        for (UUID pl : new ArrayList<>(playerCache.keySet())) {
             removeOnlinePlayer(pl);
         }
         playerCache.clear();
@@ -196,8 +391,11 @@ public class PlayersManager{
             return false;
         }
         // Try cache
-        if (playerCache.containsKey(uniqueID)) {
+        if (playerCache.containsKey(uniqueID) || writeQueue.isPendingSave(uniqueID.toString())) {
             return true;
+        } else if (unknownPlayers.contains(uniqueID)) {
+            // Already looked for when they logged in
+            return false;
         } else {
             // Get from the database - do not add to cache yet
             return handler.objectExits(uniqueID.toString());
@@ -212,8 +410,7 @@ public class PlayersManager{
      * @return - player object
      */
     public Players get(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID);
+        return addPlayer(playerUUID);
     }
 
     /**
@@ -260,9 +457,8 @@ public class PlayersManager{
      * @param number - 1 is default. Can be any number.
      */
     public void setHomeLocation(UUID playerUUID, Location location, int number) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setHomeLocation(location,number);
-        this.save(true);
+        addPlayer(playerUUID).setHomeLocation(location,number);
+        this.save(playerUUID);
     }
 
     /**
@@ -271,9 +467,8 @@ public class PlayersManager{
      * @param location
      */
     public void setHomeLocation(UUID playerUUID, Location location) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setHomeLocation(location,1);
-        this.save(true);
+        addPlayer(playerUUID).setHomeLocation(location,1);
+        this.save(playerUUID);
     }
 
     /**
@@ -281,8 +476,7 @@ public class PlayersManager{
      * @param playerUUID
      */
     public void clearHomeLocations(UUID playerUUID) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).clearHomeLocations();
+        addPlayer(playerUUID).clearHomeLocations();
     }
 
     /**
@@ -293,8 +487,7 @@ public class PlayersManager{
      * @return Home location or null if none
      */
     public Location getHomeLocation(UUID playerUUID, int number) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getHomeLocation(number);
+        return addPlayer(playerUUID).getHomeLocation(number);
     }
 
     /**
@@ -303,8 +496,7 @@ public class PlayersManager{
      * @return Home location or null if none
      */
     public Location getHomeLocation(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getHomeLocation(1);
+        return addPlayer(playerUUID).getHomeLocation(1);
     }
 
     /**
@@ -313,8 +505,7 @@ public class PlayersManager{
      * @return List of home locations
      */
     public HashMap<Integer, Location> getHomeLocations(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getHomeLocations();
+        return addPlayer(playerUUID).getHomeLocations();
     }
 
     /**
@@ -349,8 +540,7 @@ public class PlayersManager{
     public void setPlayerName(UUID uniqueId, String name) {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: Setting player name to " + name + " for " + uniqueId);
-        addPlayer(uniqueId);
-        playerCache.get(uniqueId).setPlayerName(name);
+        addPlayer(uniqueId).setPlayerName(name);
         //database.savePlayerName(name, uniqueId);
     }
 
@@ -367,10 +557,10 @@ public class PlayersManager{
         if (playerUUID == null) {
             return "";
         }
-        addPlayer(playerUUID);
+        Players player = addPlayer(playerUUID);
         if (DEBUG)
-            plugin.getLogger().info("DEBUG: name is " + playerCache.get(playerUUID).getPlayerName());
-        return playerCache.get(playerUUID).getPlayerName();
+            plugin.getLogger().info("DEBUG: name is " + player.getPlayerName());
+        return player.getPlayerName();
     }
 
     /**
@@ -397,8 +587,7 @@ public class PlayersManager{
      * @return number of resets
      */
     public int getResetsLeft(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getResetsLeft();
+        return addPlayer(playerUUID).getResetsLeft();
     }
 
     /**
@@ -408,8 +597,7 @@ public class PlayersManager{
      * @param resets
      */
     public void setResetsLeft(UUID playerUUID, int resets) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setResetsLeft(resets);
+        addPlayer(playerUUID).setResetsLeft(resets);
     }
 
     /**
@@ -421,8 +609,7 @@ public class PlayersManager{
      * @return time to wait in minutes/hours
      */
     public long getInviteCoolDownTime(UUID playerUUID, Location location) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getInviteCoolDownTime(location);
+        return addPlayer(playerUUID).getInviteCoolDownTime(location);
     }
 
     /**
@@ -434,8 +621,7 @@ public class PlayersManager{
      * @param location
      */
     public void startInviteCoolDownTimer(UUID playerUUID, Location location) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).startInviteCoolDownTimer(location);
+        addPlayer(playerUUID).startInviteCoolDownTimer(location);
     }
 
     /**
@@ -444,9 +630,8 @@ public class PlayersManager{
      * @return name of the locale this player uses
      */
     public String getLocale(UUID playerUUID) {
-        addPlayer(playerUUID);
         if (playerUUID == null) return "";
-        return playerCache.get(playerUUID).getLocale();
+        return addPlayer(playerUUID).getLocale();
     }
 
     /**
@@ -455,8 +640,7 @@ public class PlayersManager{
      * @param localeName
      */
     public void setLocale(UUID playerUUID, String localeName) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setLocale(localeName);
+        addPlayer(playerUUID).setLocale(localeName);
     }
 
     /**
@@ -503,19 +687,8 @@ public class PlayersManager{
             // If the island is unowned, then playerUUID could be null
             return false;
         }
-        addPlayer(playerUUID);
-        addPlayer(targetUUID);
-        // Check if the target player has a permission bypass (admin.noban)
-        Player target = plugin.getServer().getPlayer(targetUUID);
-        if (target != null && VaultHelper.hasPerm(target, Settings.PERMPREFIX + "admin.noban")) {
-            return false;
-        }
-        Island island = plugin.getIslands().getIsland(playerUUID);
-        if (island != null) {
-            // Player has island
-            return island.isBanned(targetUUID);
-        }
-        return false;
+        // Memory only - the ban index knows the bans and the admin.noban bypass of online players
+        return plugin.getIslands().isBanned(playerUUID, targetUUID);
     }
 
     /**
@@ -523,8 +696,8 @@ public class PlayersManager{
      * @param resetLimit
      */
     public void clearResets(int resetLimit) {
-        for (Players player : playerCache.values()) {
-            player.setResetsLeft(resetLimit);
+        for (CachedPlayer cached : playerCache.values()) {
+            cached.player.setResetsLeft(resetLimit);
         }
     }
 
@@ -533,8 +706,7 @@ public class PlayersManager{
      * @param b
      */
     public void setControlPanel(UUID playerUUID, boolean b) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setControlPanel(b);
+        addPlayer(playerUUID).setControlPanel(b);
 
     }
 
@@ -544,8 +716,7 @@ public class PlayersManager{
      * @return true if they use the control panel
      */
     public boolean getControlPanel(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getControlPanel();
+        return addPlayer(playerUUID).getControlPanel();
 
     }
 
@@ -554,8 +725,7 @@ public class PlayersManager{
      * @param playerUUID
      */
     public void addDeath(UUID playerUUID) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).addDeath();
+        addPlayer(playerUUID).addDeath();
     }
 
     /**
@@ -564,8 +734,7 @@ public class PlayersManager{
      * @param deaths
      */
     public void setDeaths(UUID playerUUID, int deaths) {
-        addPlayer(playerUUID);
-        playerCache.get(playerUUID).setDeaths(deaths);
+        addPlayer(playerUUID).setDeaths(deaths);
     }
 
     /**
@@ -574,8 +743,7 @@ public class PlayersManager{
      * @return
      */
     public int getDeaths(UUID playerUUID) {
-        addPlayer(playerUUID);
-        return playerCache.get(playerUUID).getDeaths();
+        return addPlayer(playerUUID).getDeaths();
     }
 
     /**
@@ -602,6 +770,26 @@ public class PlayersManager{
         return inTeleport.contains(uniqueId);
     }
 
+    /**
+     * Does something for a player the next time they join. This is not kept over a restart.
+     * @param uniqueId
+     * @param task - given the player once they have joined
+     */
+    public void runOnJoin(UUID uniqueId, Consumer<Player> task) {
+        onJoin.merge(uniqueId, task, (first, then) -> first.andThen(then));
+    }
+
+    /**
+     * Does anything that was waiting for the player to join
+     * @param player
+     */
+    public void joined(Player player) {
+        Consumer<Player> task = onJoin.remove(player.getUniqueId());
+        if (task != null) {
+            task.accept(player);
+        }
+    }
+
     /**
      * Resets everything to do with a player that needs to be reset
      * @param player
@@ -612,23 +800,20 @@ public class PlayersManager{
     }
 
     /**
-     * Saves the player to the database
+     * Saves the player to the database if they have changed since they were last saved
      * @param playerUUID
      */
     public void save(UUID playerUUID) {
-        if (playerCache.containsKey(playerUUID)) {
-            final Players player = playerCache.get(playerUUID);
-            try {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: saving player by uuid " + player.getPlayerName() + " " + playerUUID + " saved");
-                handler.saveObject(player);
-                
-            } catch (IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | SecurityException
-                    | InstantiationException | NoSuchMethodException
-                    | IntrospectionException | SQLException e) {
-                e.printStackTrace();
+        CachedPlayer cached = playerCache.get(playerUUID);
+        if (cached != null) {
+            final Players player = cached.player;
+            if (!player.isDirty()) {
+                return;
             }
+            player.setDirty(false);
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: saving player by uuid " + player.getPlayerName() + " " + playerUUID + " saved");
+            writeQueue.save(player);
         } else {
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: " + playerUUID + " is not in the cache to save");
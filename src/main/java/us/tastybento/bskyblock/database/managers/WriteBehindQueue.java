@@ -0,0 +1,417 @@
+package us.tastybento.bskyblock.database.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.plugin.Plugin;
+
+import us.tastybento.bskyblock.database.objects.DataObject;
+
+/**
+ * Queues saves and deletes in front of a database handler and writes them on a single writer thread.
+ * Repeated saves of the same uniqueId that have not been written yet are coalesced into one write
+ * of the latest state, so two saves of the same object can never race each other.
+ * Saves that are waiting at the same time are handed to the handler together so that it can
+ * write them in one batch.
+ * Objects are copied when they are queued, on the calling thread, and only the copies are written, so
+ * the writer never reads an object that is still being changed.
+ * An object counts as pending until the handler has finished writing it, so a load in the meantime gets the
+ * queued copy rather than the older one in the database. A failed write is queued again a few times.
+ * The queue is bounded by the number of distinct objects waiting to be written. When it is full
+ * callers block until the writer catches up.
+ *
+ * @param <T> data object type
+ */
+public class WriteBehindQueue<T extends DataObject> {
+
+    private static final boolean DEBUG = false;
+    private static final int DEFAULT_CAPACITY = 10000;
+    private static final int BATCH_SIZE = 100;
+    private static final long DEFAULT_TIMEOUT = 60000L;
+    // Times a failed write is tried before it is given up on
+    private static final int MAX_ATTEMPTS = 3;
+
+    private enum Action { SAVE, DELETE }
+
+    /**
+     * The latest operation waiting to be done for an object
+     */
+    private class Operation {
+        private final Action action;
+        // Copy of the object taken when it was queued. Never changed.
+        private final T snapshot;
+        // Only used to mark it dirty again if the write keeps failing
+        private final T object;
+        private final int attempt;
+
+        private Operation(Action action, T snapshot, T object, int attempt) {
+            this.action = action;
+            this.snapshot = snapshot;
+            this.object = object;
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * An entry in the write order. Either the uniqueId of an object or a flush barrier.
+     */
+    private static class Ticket {
+        private final String uniqueId;
+        private final CountDownLatch barrier;
+
+        private Ticket(String uniqueId, CountDownLatch barrier) {
+            this.uniqueId = uniqueId;
+            this.barrier = barrier;
+        }
+    }
+
+    private final Plugin plugin;
+    private final AbstractDatabaseHandler<T> handler;
+    private final ConcurrentHashMap<String, Operation> pending = new ConcurrentHashMap<>();
+    // Operations the writer has taken and is writing. They still count as pending until the handler is done.
+    private final ConcurrentHashMap<String, Operation> inFlight = new ConcurrentHashMap<>();
+    private final BlockingQueue<Ticket> order;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param plugin
+     * @param handler - database handler that does the actual writing
+     * @param name - name used for the writer thread
+     */
+    public WriteBehindQueue(Plugin plugin, AbstractDatabaseHandler<T> handler, String name) {
+        this(plugin, handler, name, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param plugin
+     * @param handler - database handler that does the actual writing
+     * @param name - name used for the writer thread
+     * @param capacity - maximum number of distinct objects waiting to be written
+     */
+    public WriteBehindQueue(Plugin plugin, AbstractDatabaseHandler<T> handler, String name, int capacity) {
+        this.plugin = plugin;
+        this.handler = handler;
+        // Leave room for flush barriers
+        this.order = new LinkedBlockingQueue<>(capacity + 16);
+        this.writer = new Thread(this::drain, "BSkyBlock " + name + " writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the object to be saved
+     * @param object
+     */
+    public void save(T object) {
+        enqueue(Action.SAVE, object);
+    }
+
+    /**
+     * Queues the object to be deleted. Any save waiting for it is dropped.
+     * @param object
+     */
+    public void delete(T object) {
+        enqueue(Action.DELETE, object);
+    }
+
+    private void enqueue(Action action, T object) {
+        T snapshot;
+        try {
+            snapshot = handler.schema.copy(object);
+        } catch (InstantiationException e) {
+            plugin.getLogger().severe("Could not copy " + object.getUniqueId() + " to " + action.name().toLowerCase() + " it");
+            e.printStackTrace();
+            if (action == Action.SAVE) {
+                // Try again next time
+                object.setDirty(true);
+            }
+            return;
+        }
+        Operation operation = new Operation(action, snapshot, object, 1);
+        if (!running && !writer.isAlive()) {
+            // Writer has stopped, so do it now
+            execute(operation);
+            return;
+        }
+        String uniqueId = snapshot.getUniqueId();
+        if (pending.put(uniqueId, operation) == null && running) {
+            // Not already waiting, so it needs a place in the queue
+            try {
+                order.put(new Ticket(uniqueId, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param uniqueId
+     * @return a new copy of the object as it was queued if it is waiting to be saved, otherwise null
+     */
+    public T getPending(String uniqueId) {
+        Operation operation = getLatest(uniqueId);
+        if (operation == null || operation.action != Action.SAVE) {
+            return null;
+        }
+        try {
+            // The snapshot is being written, so it must not be handed out to be changed
+            T copy = handler.schema.copy(operation.snapshot);
+            copy.setDirty(false);
+            return copy;
+        } catch (InstantiationException e) {
+            plugin.getLogger().severe("Could not copy " + uniqueId + " that is waiting to be saved");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @param uniqueId
+     * @return true if the object is waiting to be saved
+     */
+    public boolean isPendingSave(String uniqueId) {
+        Operation operation = getLatest(uniqueId);
+        return operation != null && operation.action == Action.SAVE;
+    }
+
+    /**
+     * @param uniqueId
+     * @return true if the object is waiting to be deleted
+     */
+    public boolean isPendingDelete(String uniqueId) {
+        Operation operation = getLatest(uniqueId);
+        return operation != null && operation.action == Action.DELETE;
+    }
+
+    /**
+     * @param uniqueId
+     * @return the latest operation for the object that has not been written yet, or null if there is none
+     */
+    private Operation getLatest(String uniqueId) {
+        // The writer puts an operation in flight before it takes it out of pending, so it is always in one of them
+        Operation operation = pending.get(uniqueId);
+        return operation != null ? operation : inFlight.get(uniqueId);
+    }
+
+    /**
+     * @return number of objects waiting to be written
+     */
+    public int size() {
+        return pending.size() + inFlight.size();
+    }
+
+    /**
+     * Blocks until everything queued before this call has been written, or a minute has passed
+     * @return true if everything was written, false if the wait timed out
+     */
+    public boolean flush() {
+        return flush(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Blocks until everything queued before this call has been written
+     * @param timeout - maximum time to wait in milliseconds
+     * @return true if everything was written, false if the wait timed out
+     */
+    public boolean flush(long timeout) {
+        if (!running) {
+            return true;
+        }
+        CountDownLatch barrier = new CountDownLatch(1);
+        try {
+            order.put(new Ticket(null, barrier));
+            return barrier.await(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Writes everything that is waiting and stops the writer thread. Anything queued after this is written immediately.
+     * @return true if the writer has stopped, so the handler can be closed
+     */
+    public boolean shutdown() {
+        return shutdown(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Writes everything that is waiting and stops the writer thread. Anything queued after this is written immediately.
+     * If the writer is still busy when the time is up, whatever is left is abandoned rather than written at the same
+     * time as the writer, and the handler must not be closed.
+     * @param timeout - maximum time to wait in milliseconds
+     * @return true if the writer has stopped, so the handler can be closed
+     */
+    public boolean shutdown(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        if (!flush(timeout)) {
+            plugin.getLogger().severe("Timed out waiting for " + pending.size() + " database writes to finish!");
+        }
+        running = false;
+        // Wake the writer up. It is not interrupted, because that would close any file channel it is writing to.
+        order.offer(new Ticket(null, null));
+        try {
+            writer.join(Math.max(1L, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // Writing here as well, or closing the handler, while the writer is in the handler could damage the database
+            plugin.getLogger().severe("Database writer is still busy! Abandoning " + pending.size() + " queued writes: " + pending.keySet());
+            return false;
+        }
+        // Anything that slipped in is done on this thread. Failed writes are put back a few times, so loop until done.
+        while (!pending.isEmpty()) {
+            for (String uniqueId : new ArrayList<>(pending.keySet())) {
+                Operation operation = take(uniqueId);
+                if (operation != null) {
+                    execute(operation);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void drain() {
+        List<Ticket> batch = new ArrayList<>(BATCH_SIZE);
+        List<Operation> saves = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                batch.add(order.take());
+            } catch (InterruptedException e) {
+                // Shutting down
+                break;
+            }
+            order.drainTo(batch, BATCH_SIZE - 1);
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: writing batch of " + batch.size());
+            for (Ticket ticket : batch) {
+                if (ticket.uniqueId == null && ticket.barrier == null) {
+                    // Wake up call from shutdown
+                    continue;
+                }
+                if (ticket.barrier != null) {
+                    // Everything before the barrier must be written first
+                    saveAll(saves);
+                    ticket.barrier.countDown();
+                    continue;
+                }
+                // Take the latest operation. Anything queued after this point gets a new ticket.
+                Operation operation = take(ticket.uniqueId);
+                if (operation == null) {
+                    continue;
+                }
+                if (operation.action == Action.SAVE) {
+                    saves.add(operation);
+                } else {
+                    // Objects are independent, so a delete does not need to wait for saves of other objects
+                    execute(operation);
+                }
+            }
+            saveAll(saves);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Moves the latest operation for an object from pending to in flight
+     * @param uniqueId
+     * @return the operation, or null if there is none
+     */
+    private Operation take(String uniqueId) {
+        Operation operation;
+        do {
+            operation = pending.get(uniqueId);
+            if (operation == null) {
+                return null;
+            }
+            inFlight.put(uniqueId, operation);
+            // If a newer operation came in meanwhile it has no ticket of its own, so take that one instead
+        } while (!pending.remove(uniqueId, operation));
+        return operation;
+    }
+
+    /**
+     * Saves the objects in one batch. If the batch fails they are saved one at a time so that
+     * one bad object does not stop the others from being saved.
+     * @param saves - cleared once they have been written
+     */
+    private void saveAll(List<Operation> saves) {
+        if (saves.isEmpty()) {
+            return;
+        }
+        if (saves.size() == 1) {
+            execute(saves.get(0));
+        } else {
+            List<T> objects = new ArrayList<>(saves.size());
+            for (Operation operation : saves) {
+                objects.add(operation.snapshot);
+            }
+            try {
+                handler.saveObjects(objects);
+                for (Operation operation : saves) {
+                    inFlight.remove(operation.snapshot.getUniqueId(), operation);
+                }
+            } catch (Exception e) {
+                plugin.getLogger().warning("Could not save a batch of " + objects.size() + ", saving them one at a time");
+                if (DEBUG)
+                    e.printStackTrace();
+                for (Operation operation : saves) {
+                    execute(operation);
+                }
+            }
+        }
+        saves.clear();
+    }
+
+    private void execute(Operation operation) {
+        String uniqueId = operation.snapshot.getUniqueId();
+        try {
+            if (operation.action == Action.SAVE) {
+                handler.saveObject(operation.snapshot);
+            } else {
+                handler.deleteObject(operation.snapshot);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not " + operation.action.name().toLowerCase() + " " + uniqueId
+                    + " (attempt " + operation.attempt + " of " + MAX_ATTEMPTS + ")");
+            e.printStackTrace();
+            retry(operation);
+        } finally {
+            inFlight.remove(uniqueId, operation);
+        }
+    }
+
+    /**
+     * Puts a failed operation back in the queue, unless a newer one for the same object is already waiting.
+     * The live object may have left its cache, so the snapshot is written again rather than waiting for the
+     * object to be saved again.
+     * @param operation
+     */
+    private void retry(Operation operation) {
+        String uniqueId = operation.snapshot.getUniqueId();
+        if (operation.attempt < MAX_ATTEMPTS) {
+            Operation again = new Operation(operation.action, operation.snapshot, operation.object, operation.attempt + 1);
+            if (pending.putIfAbsent(uniqueId, again) != null) {
+                // Superseded by a newer operation
+                return;
+            }
+            // Still visible until it is taken again
+            if (!running || order.offer(new Ticket(uniqueId, null))) {
+                return;
+            }
+            pending.remove(uniqueId, again);
+        }
+        plugin.getLogger().severe("Giving up on " + operation.action.name().toLowerCase() + " of " + uniqueId);
+        if (operation.action == Action.SAVE) {
+            // Last resort, save it again next time if it is still around
+            operation.object.setDirty(true);
+        }
+    }
+}
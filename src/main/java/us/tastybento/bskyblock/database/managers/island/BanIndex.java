@@ -0,0 +1,141 @@
+package us.tastybento.bskyblock.database.managers.island;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import us.tastybento.bskyblock.BSkyBlock;
+import us.tastybento.bskyblock.database.objects.Island;
+import us.tastybento.bskyblock.util.PermissionCache;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
+
+/**
+ * Index of who is banned from which island, so a ban check never has to load a player or an island.
+ * It is filled when islands are added to the cache and kept up to date by the ban methods in Island.
+ * Bypass checks use the permission snapshots of online players, so checks made on every move do not have to
+ * ask the permission plugin.
+ * Checks do not lock or allocate.
+ */
+public class BanIndex {
+
+    private static final boolean DEBUG = false;
+    private BSkyBlock plugin;
+    // Banned players by island uniqueId
+    private final ConcurrentHashMap<String, Set<UUID>> bannedByIsland = new ConcurrentHashMap<>();
+    // Island uniqueIds by banned player
+    private final ConcurrentHashMap<UUID, Set<String>> islandsByBanned = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin
+     */
+    public BanIndex(BSkyBlock plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Adds all the bans of this island
+     * @param island
+     */
+    public void addIsland(Island island) {
+        for (UUID target : island.getBanned()) {
+            ban(island.getUniqueId(), target);
+        }
+    }
+
+    /**
+     * Removes all the bans of this island
+     * @param islandId - island uniqueId
+     */
+    public void removeIsland(String islandId) {
+        Set<UUID> banned = bannedByIsland.remove(islandId);
+        if (banned != null) {
+            for (UUID target : banned) {
+                unlink(target, islandId);
+            }
+        }
+    }
+
+    /**
+     * @param islandId - island uniqueId
+     * @param target
+     */
+    public void ban(String islandId, UUID target) {
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: ban index - " + target + " banned from " + islandId);
+        bannedByIsland.computeIfAbsent(islandId, k -> ConcurrentHashMap.newKeySet()).add(target);
+        islandsByBanned.computeIfAbsent(target, k -> ConcurrentHashMap.newKeySet()).add(islandId);
+    }
+
+    /**
+     * @param islandId - island uniqueId
+     * @param target
+     */
+    public void unban(String islandId, UUID target) {
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: ban index - " + target + " unbanned from " + islandId);
+        Set<UUID> banned = bannedByIsland.get(islandId);
+        if (banned != null) {
+            banned.remove(target);
+            if (banned.isEmpty()) {
+                bannedByIsland.remove(islandId, banned);
+            }
+        }
+        unlink(target, islandId);
+    }
+
+    private void unlink(UUID target, String islandId) {
+        Set<String> islands = islandsByBanned.get(target);
+        if (islands != null) {
+            islands.remove(islandId);
+            if (islands.isEmpty()) {
+                islandsByBanned.remove(target, islands);
+            }
+        }
+    }
+
+    /**
+     * @param islandId - island uniqueId, may be null
+     * @param target
+     * @return true if target is on the island's ban list. Does not check bypass permissions.
+     */
+    public boolean isBanned(String islandId, UUID target) {
+        if (islandId == null) {
+            return false;
+        }
+        Set<UUID> banned = bannedByIsland.get(islandId);
+        return banned != null && banned.contains(target);
+    }
+
+    /**
+     * @param target
+     * @return the uniqueIds of the islands target is banned from
+     */
+    public Set<String> getIslandsBannedFrom(UUID target) {
+        Set<String> islands = islandsByBanned.get(target);
+        return islands == null ? Collections.<String>emptySet() : new HashSet<>(islands);
+    }
+
+    public void clear() {
+        bannedByIsland.clear();
+        islandsByBanned.clear();
+    }
+
+    /**
+     * @param playerUUID
+     * @return true if the player is online and has the ban bypass permission
+     */
+    public boolean canBypassBan(UUID playerUUID) {
+        return plugin.getPermissions().has(playerUUID, Node.NO_BAN);
+    }
+
+    /**
+     * @param playerUUID
+     * @return true if the player is online and can enter locked islands
+     */
+    public boolean canBypassLock(UUID playerUUID) {
+        PermissionCache permissions = plugin.getPermissions();
+        return permissions.has(playerUUID, Node.BYPASS_PROTECT) || permissions.has(playerUUID, Node.BYPASS_LOCK);
+    }
+}
@@ -1,125 +1,310 @@
 package us.tastybento.bskyblock.database.managers.island;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-
 import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.objects.Island;
+import us.tastybento.bskyblock.util.LongHashMap;
 import us.tastybento.bskyblock.util.Util;
 
+/**
+ * Indexes all the islands by location, player and grid position.
+ * Only a slim {@link IslandRecord} is kept for every island. The full Island is loaded the first
+ * time it is asked for and is kept while it is in use. The least recently used islands are let go
+ * once there are more than the configured number in memory, unless one of their players is online.
+ * Changes are written back before an island is let go.
+ * Writes to the index must be made on the main thread. Reads can be made from any thread: they run
+ * without locking and are only retried under a read lock if a write happened at the same time.
+ * Do not call a read method from inside a write, as the lock is not reentrant.
+ */
 public class IslandCache {
     private static final boolean DEBUG2 = false;
     private static final boolean DEBUG = false;
+    // Islands used more recently than this are never let go, in case something still holds them
+    private static final long MIN_IDLE = 60000L;
     private BSkyBlock plugin = BSkyBlock.getPlugin();
-    private BiMap<Location, Island> islandsByLocation;
+    /**
+     * Records by the x,z of the island center
+     */
+    private LongHashMap<IslandRecord> islandsByLocation;
     /**
      * Every player who is associated with an island is in this map.
      */
-    private HashMap<UUID, Island> islandsByUUID;
+    private HashMap<UUID, IslandRecord> islandsByUUID;
     // 2D islandGrid of islands, x,z
-    private TreeMap<Integer, TreeMap<Integer, Island>> islandGrid = new TreeMap<>();
-    
-    public IslandCache() {
-        islandsByLocation = HashBiMap.create();
+    private IslandGrid islandGrid;
+    // Guards all of the above. Writers lock, readers validate an optimistic stamp
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Records whose full island is in memory, least recently used first. Guarded by itself.
+     */
+    private final LinkedHashMap<IslandRecord, Boolean> hydrated = new LinkedHashMap<>(16, 0.75f, true);
+    // Loads a full island by its uniqueId
+    private final Function<String, Island> loader;
+    // Queues a changed island to be saved
+    private final Consumer<Island> writeBack;
+    // Who is banned from which island
+    private final BanIndex banIndex;
+    // Records whose island is being loaded in the background
+    private final Set<IslandRecord> prefetching = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The protected area of an island as its record sees it, so a move into it can be checked without loading the island
+     */
+    public static final class ProtectedArea {
+        private final IslandRecord record;
+        private final boolean keptOut;
+
+        private ProtectedArea(IslandRecord record, boolean keptOut) {
+            this.record = record;
+            this.keptOut = keptOut;
+        }
+
+        /**
+         * @return the uniqueId of the island
+         */
+        public String getUniqueId() {
+            return record.getUniqueId();
+        }
+
+        /**
+         * @return a new Location for the center of the island
+         */
+        public Location getCenter() {
+            return record.getCenter();
+        }
+
+        /**
+         * @return true if the island is locked or the player is banned, and they are not a member and cannot bypass it
+         */
+        public boolean isKeptOut() {
+            return keptOut;
+        }
+    }
+
+    /**
+     * @param banIndex - kept up to date with the bans of the islands in the cache
+     * @param loader - loads a full island by its uniqueId, or returns null if it cannot
+     * @param writeBack - queues a changed island to be saved before it is let go
+     */
+    public IslandCache(BanIndex banIndex, Function<String, Island> loader, Consumer<Island> writeBack) {
+        this.banIndex = banIndex;
+        this.loader = loader;
+        this.writeBack = writeBack;
+        islandsByLocation = new LongHashMap<>();
         islandsByUUID = new HashMap<>();
+        islandGrid = new IslandGrid(Settings.islandDistance, Settings.islandXOffset + Settings.islandStartX, Settings.islandZOffset + Settings.islandStartZ);
     }
-    
+
     public void addIsland(Island island) {
-        islandsByLocation.put(island.getCenter(), island);
+        IslandRecord record = new IslandRecord(island);
+        long stamp = lock.writeLock();
+        try {
+            index(record, island);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        hold(record, island);
+        Island.protectionChanged();
+    }
+
+    /**
+     * Adds all the islands in one go, e.g., when they have been loaded from the database.
+     * Only the records are kept, apart from spawn islands, so the islands can be let go by the caller.
+     * @param islands
+     */
+    public void addIslands(Collection<Island> islands) {
+        List<IslandRecord> spawns = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (Island island : islands) {
+                IslandRecord record = new IslandRecord(island);
+                index(record, island);
+                if (island.isSpawn()) {
+                    record.setIsland(island);
+                    spawns.add(record);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        synchronized (hydrated) {
+            for (IslandRecord record : spawns) {
+                hydrated.put(record, Boolean.TRUE);
+            }
+        }
+        Island.protectionChanged();
+    }
+
+    /**
+     * Indexes the island record and its players. Must be called holding the write lock.
+     * @param record
+     * @param island
+     */
+    private void index(IslandRecord record, Island island) {
+        islandsByLocation.put(LongHashMap.key(record.getCenterX(), record.getCenterZ()), record);
         if (DEBUG)
             plugin.getLogger().info("DEBUG: owner = " + island.getOwner());
-        islandsByUUID.put(island.getOwner(), island);
+        mapPlayer(island.getOwner(), record);
         if (DEBUG)
             plugin.getLogger().info("DEBUG: island has " + island.getMembers().size() + " members");
         for (UUID member: island.getMembers()) {
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: " + member);
-            islandsByUUID.put(member, island);
+            mapPlayer(member, record);
         }
-        addToGrid(island);
+        addToGrid(record);
+        banIndex.addIsland(island);
     }
-    
+
     public void addPlayer(UUID playerUUID, Island teamIsland) {
-        islandsByUUID.put(playerUUID, teamIsland);
+        long stamp = lock.writeLock();
+        try {
+            IslandRecord record = islandsByLocation.get(LongHashMap.key(teamIsland.getCenter().getBlockX(), teamIsland.getCenter().getBlockZ()));
+            if (record != null) {
+                mapPlayer(playerUUID, record);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        Island.protectionChanged();
+    }
+
+    /**
+     * Runs reader without taking a lock. If a write happened while it was running, or it
+     * failed because it saw the maps half way through a change, it is run again under the read lock.
+     * @param reader
+     * @return the result of reader
+     */
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Concurrent write - try again below
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Associates the player with the island in both directions, removing any previous association
+     * @param playerUUID
+     * @param record
+     */
+    private void mapPlayer(UUID playerUUID, IslandRecord record) {
+        if (playerUUID == null)
+            return;
+        IslandRecord previous = islandsByUUID.put(playerUUID, record);
+        if (previous != null && previous != record) {
+            previous.removePlayer(playerUUID);
+        }
+        record.addPlayer(playerUUID);
+    }
+
+    /**
+     * Removes any association between the player and an island
+     * @param playerUUID
+     */
+    private void unmapPlayer(UUID playerUUID) {
+        IslandRecord previous = islandsByUUID.remove(playerUUID);
+        if (previous != null) {
+            previous.removePlayer(playerUUID);
+        }
     }
-    
+
     /**
      * Adds an island to the grid register
      * @param newIsland
      */
-    private void addToGrid(Island newIsland) {
-        if (islandGrid.containsKey(newIsland.getMinX())) {
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: min x is in the grid :" + newIsland.getMinX());
-            TreeMap<Integer, Island> zEntry = islandGrid.get(newIsland.getMinX());
-            if (zEntry.containsKey(newIsland.getMinZ())) {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: min z is in the grid :" + newIsland.getMinZ());
-                // Island already exists
-                Island conflict = islandGrid.get(newIsland.getMinX()).get(newIsland.getMinZ());
-                plugin.getLogger().warning("*** Duplicate or overlapping islands! ***");
-                plugin.getLogger().warning(
-                        "Island at (" + newIsland.getCenter().getBlockX() + ", " + newIsland.getCenter().getBlockZ() + ") conflicts with ("
-                                + conflict.getCenter().getBlockX() + ", " + conflict.getCenter().getBlockZ() + ")");
-                if (conflict.getOwner() != null) {
-                    plugin.getLogger().warning("Accepted island is owned by " + plugin.getPlayers().getName(conflict.getOwner()));
-                    plugin.getLogger().warning(conflict.getOwner().toString() + ".yml");
-                } else {
-                    plugin.getLogger().warning("Accepted island is unowned.");
-                }
-                if (newIsland.getOwner() != null) {
-                    plugin.getLogger().warning("Denied island is owned by " + plugin.getPlayers().getName(newIsland.getOwner()));
-                    plugin.getLogger().warning(newIsland.getOwner().toString() + ".yml");
-                } else {
-                    plugin.getLogger().warning("Denied island is unowned and was just found in the islands folder. Skipping it...");
-                }
-                plugin.getLogger().warning("Recommend that the denied player file is deleted otherwise weird things can happen.");
-                return;
+    private void addToGrid(IslandRecord newIsland) {
+        IslandRecord conflict = islandGrid.addToGrid(newIsland);
+        if (conflict != null) {
+            // Island already exists
+            plugin.getLogger().warning("*** Duplicate or overlapping islands! ***");
+            plugin.getLogger().warning(
+                    "Island at (" + newIsland.getCenterX() + ", " + newIsland.getCenterZ() + ") conflicts with ("
+                            + conflict.getCenterX() + ", " + conflict.getCenterZ() + ")");
+            if (conflict.getOwner() != null) {
+                plugin.getLogger().warning("Accepted island is owned by " + plugin.getPlayers().getName(conflict.getOwner()));
+                plugin.getLogger().warning(conflict.getOwner().toString() + ".yml");
             } else {
-                // Add island
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: added island to grid at " + newIsland.getMinX() + "," + newIsland.getMinZ());
-                zEntry.put(newIsland.getMinZ(), newIsland);
-                islandGrid.put(newIsland.getMinX(), zEntry);
-                // plugin.getLogger().info("Debug: " + newIsland.toString());
+                plugin.getLogger().warning("Accepted island is unowned.");
             }
-        } else {
-            // Add island
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: added island to grid at " + newIsland.getMinX() + "," + newIsland.getMinZ());
-            TreeMap<Integer, Island> zEntry = new TreeMap<Integer, Island>();
-            zEntry.put(newIsland.getMinZ(), newIsland);
-            islandGrid.put(newIsland.getMinX(), zEntry);
+            if (newIsland.getOwner() != null) {
+                plugin.getLogger().warning("Denied island is owned by " + plugin.getPlayers().getName(newIsland.getOwner()));
+                plugin.getLogger().warning(newIsland.getOwner().toString() + ".yml");
+            } else {
+                plugin.getLogger().warning("Denied island is unowned and was just found in the islands folder. Skipping it...");
+            }
+            plugin.getLogger().warning("Recommend that the denied player file is deleted otherwise weird things can happen.");
+            return;
         }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: added island to grid at " + newIsland.getMinX() + "," + newIsland.getMinZ());
     }
-    
+
     public void clear() {
-        islandsByLocation.clear();
-        islandsByUUID.clear();
+        long stamp = lock.writeLock();
+        try {
+            islandsByLocation.clear();
+            islandsByUUID.clear();
+            islandGrid.clear();
+            banIndex.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        synchronized (hydrated) {
+            hydrated.clear();
+        }
+        Island.protectionChanged();
     }
-    
+
     public Island createIsland(Island island) {
-        islandsByLocation.put(island.getCenter(), island);
-        if (island.getOwner() != null)
-            islandsByUUID.put(island.getOwner(), island);
-        addToGrid(island);
+        IslandRecord record = new IslandRecord(island);
+        long stamp = lock.writeLock();
+        try {
+            islandsByLocation.put(LongHashMap.key(record.getCenterX(), record.getCenterZ()), record);
+            if (island.getOwner() != null)
+                mapPlayer(island.getOwner(), record);
+            addToGrid(record);
+            banIndex.addIsland(island);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        hold(record, island);
+        Island.protectionChanged();
         return island;
     }
-    
+
     /**
      * Create an island with no owner at location
      * @param location
@@ -127,7 +312,7 @@ public class IslandCache {
     public Island createIsland(Location location){
         return createIsland(location, null);
     }
-    
+
     /**
      * Create an island with owner. Note this does not create the schematic. It just creates the island data object.
      * @param location
@@ -136,12 +321,7 @@ public class IslandCache {
     public Island createIsland(Location location, UUID owner){
         if (DEBUG)
             plugin.getLogger().info("DEBUG: adding island for " + owner + " at " + location);
-        Island island = new Island(location, owner, Settings.islandProtectionRange);
-        islandsByLocation.put(location, island);
-        if (owner != null)
-            islandsByUUID.put(owner, island);
-        addToGrid(island);
-        return island;
+        return createIsland(new Island(location, owner, Settings.islandProtectionRange));
     }
 
     /**
@@ -149,88 +329,270 @@ public class IslandCache {
      * @param island
      */
     public void deleteIslandFromCache(Island island) {
-        if (!islandsByLocation.remove(island.getCenter(), island)) {
-            plugin.getLogger().severe("Could not remove island from cache!");
-        }
-        Iterator<Entry<UUID, Island>> it = islandsByUUID.entrySet().iterator();
-        while (it.hasNext()) {
-            Entry<UUID, Island> en = it.next();
-            if (en.getValue().equals(island)) {
-                it.remove();
+        IslandRecord record;
+        long stamp = lock.writeLock();
+        try {
+            long key = LongHashMap.key(island.getCenter().getBlockX(), island.getCenter().getBlockZ());
+            record = islandsByLocation.get(key);
+            if (record == null || !record.getUniqueId().equals(island.getUniqueId())) {
+                plugin.getLogger().severe("Could not remove island from cache!");
+                return;
+            }
+            islandsByLocation.remove(key);
+            banIndex.removeIsland(record.getUniqueId());
+            for (UUID uuid : record.getPlayers()) {
+                islandsByUUID.remove(uuid, record);
             }
+            // Remove from grid
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: deleting island at " + island.getCenter());
+            if (!islandGrid.removeFromGrid(record)) {
+                if (DEBUG)
+                    plugin.getLogger().info("DEBUG: island was not in the grid");
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        // Remove from grid
-        if (DEBUG)
-            plugin.getLogger().info("DEBUG: deleting island at " + island.getCenter());
+        synchronized (hydrated) {
+            hydrated.remove(record);
+        }
+        Island.protectionChanged();
+    }
+
+    /**
+     * Gets the full island for this record, loading it if it is not in memory
+     * @param record - may be null
+     * @return island, or null if record is null or the island could not be loaded
+     */
+    private Island hydrate(IslandRecord record) {
+        if (record == null) {
+            return null;
+        }
+        // Touch before looking, so that release sees this and keeps the island
+        record.touch();
+        Island island = record.getIsland();
         if (island != null) {
-            int x = island.getMinX();
-            int z = island.getMinZ();
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: x = " + x + " z = " + z);
-            if (islandGrid.containsKey(x)) {
+            return island;
+        }
+        synchronized (record) {
+            island = record.getIsland();
+            if (island == null) {
+                // Something may still hold the island that was let go of, and may have changed it since.
+                // Use it again so there is only ever one copy, and any changes are saved with it.
+                island = record.getReleased();
+            }
+            if (island == null) {
                 if (DEBUG)
-                    plugin.getLogger().info("DEBUG: x found");
-                TreeMap<Integer, Island> zEntry = islandGrid.get(x);
-                if (zEntry.containsKey(z)) {
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: z found - deleting the island");
-                    // Island exists - delete it
-                    zEntry.remove(z);
-                    islandGrid.put(x, zEntry);
-                } else {
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: could not find z");
+                    plugin.getLogger().info("DEBUG: loading island " + record.getUniqueId());
+                island = loader.apply(record.getUniqueId());
+                if (island == null) {
+                    plugin.getLogger().severe("Could not load island " + record.getUniqueId() + " at " + record.getCenterX() + "," + record.getCenterZ());
+                    return null;
+                }
+                record.setIsland(island);
+            }
+        }
+        hold(record, island);
+        return island;
+    }
+
+    /**
+     * Keeps the island in memory and lets go of the least recently used ones if there are too many
+     * @param record
+     * @param island
+     */
+    private void hold(IslandRecord record, Island island) {
+        if (record.getIsland() != island) {
+            record.setIsland(island);
+        }
+        List<IslandRecord> evict = null;
+        synchronized (hydrated) {
+            hydrated.put(record, Boolean.TRUE);
+            // Only let go on the main thread, where it is safe to check who is online
+            if (hydrated.size() > Settings.islandCacheSize && Bukkit.isPrimaryThread()) {
+                evict = new ArrayList<>();
+                long now = System.currentTimeMillis();
+                int excess = hydrated.size() - Settings.islandCacheSize;
+                Iterator<IslandRecord> it = hydrated.keySet().iterator();
+                while (excess > 0 && it.hasNext()) {
+                    IslandRecord candidate = it.next();
+                    if (now - candidate.getLastUsed() < MIN_IDLE) {
+                        // Everything after this was used more recently
+                        break;
+                    }
+                    if (!isPinned(candidate)) {
+                        it.remove();
+                        evict.add(candidate);
+                        excess--;
+                    }
+                }
+            }
+        }
+        if (evict != null) {
+            for (IslandRecord candidate : evict) {
+                release(candidate);
+            }
+        }
+    }
+
+    /**
+     * @param record
+     * @return true if the island must stay in memory because it is the spawn or one of its players is online
+     */
+    private boolean isPinned(IslandRecord record) {
+        if (record.isSpawn()) {
+            return true;
+        }
+        for (UUID uuid : record.getPlayers()) {
+            if (plugin.getServer().getPlayer(uuid) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the island in the background if it is not in memory, so it is ready by the time it is needed
+     * @param record
+     */
+    private void prefetch(IslandRecord record) {
+        if (record.getIsland() != null || !prefetching.add(record)) {
+            return;
+        }
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                hydrate(record);
+            } finally {
+                prefetching.remove(record);
+            }
+        });
+    }
+
+    /**
+     * Writes back the island if it has changed and lets go of it.
+     * The record keeps a weak reference to it, so if something still holds the island and changes it,
+     * those changes are not lost: the same island is used again the next time it is asked for.
+     * @param record
+     */
+    private void release(IslandRecord record) {
+        synchronized (record) {
+            Island island = record.getIsland();
+            if (island == null) {
+                return;
+            }
+            if (System.currentTimeMillis() - record.getLastUsed() < MIN_IDLE) {
+                // Picked up again since it was chosen
+                synchronized (hydrated) {
+                    hydrated.put(record, Boolean.TRUE);
                 }
+                return;
+            }
+            if (island.isDirty()) {
+                writeBack.accept(island);
             }
+            long stamp = lock.writeLock();
+            try {
+                record.update(island);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            record.setIsland(null);
+            // Anything still holding the island must look it up again
+            Island.protectionChanged();
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: let go of island " + record.getUniqueId());
         }
     }
-    
+
     public Island get(Location location) {
-        return islandsByLocation.get(location);
+        return hydrate(read(() -> islandsByLocation.get(LongHashMap.key(location.getBlockX(), location.getBlockZ()))));
+    }
+
+    /**
+     * @param location
+     * @return true if there is an island centered at this location. Does not load the island.
+     */
+    public boolean contains(Location location) {
+        return read(() -> islandsByLocation.get(LongHashMap.key(location.getBlockX(), location.getBlockZ()))) != null;
+    }
+
+    /**
+     * @param uuid
+     * @return the record of the island this player maps to, or null
+     */
+    private IslandRecord getRecord(UUID uuid) {
+        // Hot path, so the optimistic read is done inline rather than through a lambda
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                IslandRecord record = islandsByUUID.get(uuid);
+                if (lock.validate(stamp)) {
+                    return record;
+                }
+            } catch (RuntimeException e) {
+                // Concurrent write - try again below
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return islandsByUUID.get(uuid);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
-    
+
     public Island get(UUID uuid) {
-        return islandsByUUID.get(uuid);
+        return hydrate(getRecord(uuid));
     }
-    
+
     /**
      * Gets the island for this player. If they are in a team, the team island is returned
      * @param uuid
      * @return
      */
     public Island getIsland(UUID uuid){
-        return islandsByUUID.get(uuid);
+        return get(uuid);
     }
 
     /**
-     * Returns the island at the x,z location or null if there is none.
-     * This includes the full island space, not just the protected area.
-     *
      * @param x
      * @param z
-     * @return Island or null
+     * @return the record of the island space at x,z or null
      */
-    public Island getIslandAt(int x, int z) {
+    private IslandRecord getRecordAt(int x, int z) {
         if (DEBUG2) {
             plugin.getLogger().info("DEBUG: getting island at " + x + "," + z);
             plugin.getLogger().info("DEBUG: island grid is " + islandGrid.size());
         }
-        Entry<Integer, TreeMap<Integer, Island>> en = islandGrid.floorEntry(x);
-        if (en != null) {
-            Entry<Integer, Island> ent = en.getValue().floorEntry(z);
-            if (ent != null) {
-                // Check if in the island range
-                Island island = ent.getValue();
-                if (island.inIslandSpace(x, z)) {
-                    if (DEBUG2)
-                        plugin.getLogger().info("DEBUG: In island space");
-                    return island;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                IslandRecord record = islandGrid.getIslandAt(x, z);
+                if (lock.validate(stamp)) {
+                    return record;
                 }
-                if (DEBUG2)
-                    plugin.getLogger().info("DEBUG: not in island space");
+            } catch (RuntimeException e) {
+                // Concurrent write - try again below
             }
         }
-        return null;
+        stamp = lock.readLock();
+        try {
+            return islandGrid.getIslandAt(x, z);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the island at the x,z location or null if there is none.
+     * This includes the full island space, not just the protected area.
+     *
+     * @param x
+     * @param z
+     * @return Island or null
+     */
+    public Island getIslandAt(int x, int z) {
+        return hydrate(getRecordAt(x, z));
     }
 
     /**
@@ -253,6 +615,118 @@ public class IslandCache {
         return getIslandAt(location.getBlockX(), location.getBlockZ());
     }
 
+    /**
+     * Returns the island whose protected area includes the location, or null if there is none.
+     * The island is only loaded if the location is in its protected area.
+     *
+     * @param location
+     * @return Island object
+     */
+    public Island getProtectedIslandAt(Location location) {
+        if (location == null || !Util.inWorld(location)) {
+            return null;
+        }
+        IslandRecord record = getRecordAt(location.getBlockX(), location.getBlockZ());
+        if (record == null || !record.onIsland(location.getBlockX(), location.getBlockZ())) {
+            return null;
+        }
+        return hydrate(record);
+    }
+
+    /**
+     * Like {@link #getProtectedIslandAt(Location)}, and also works out the area around the location where the answer is the same.
+     * The island is only loaded if the location is in its protected area.
+     *
+     * @param location
+     * @param bounds - set to the min x, min z, max x, max z of the area, inclusive. This may be just the location.
+     * @return Island object
+     */
+    public Island getProtectedIslandAt(Location location, int[] bounds) {
+        final int x = location.getBlockX();
+        final int z = location.getBlockZ();
+        IslandRecord.setBounds(bounds, x, z, x, z);
+        if (!Util.inWorld(location)) {
+            return null;
+        }
+        IslandRecord record = getRecordAt(x, z);
+        if (record == null) {
+            read(() -> islandGrid.getEmptyCellBounds(x, z, bounds));
+            return null;
+        }
+        boolean onIsland = record.getRegion(x, z, bounds);
+        // Off-lattice islands may overlap others, so only the answer at this location can be relied on
+        if (!islandGrid.onLattice(record)) {
+            IslandRecord.setBounds(bounds, x, z, x, z);
+        }
+        return onIsland ? hydrate(record) : null;
+    }
+
+    /**
+     * Like {@link #getProtectedIslandAt(Location, int[])}, but answers from the island records, so it never loads the island.
+     * When the location is in the space of an island that is not in memory, the island is loaded in the background,
+     * so it is usually ready by the time the player reaches the protected area.
+     *
+     * @param location
+     * @param playerUUID - the player who is checked against the lock and bans
+     * @param bounds - set to the min x, min z, max x, max z of the area, inclusive. This may be just the location.
+     * @return the protected area, or null if the location is not in one
+     */
+    public ProtectedArea getProtectedAreaAt(Location location, UUID playerUUID, int[] bounds) {
+        final int x = location.getBlockX();
+        final int z = location.getBlockZ();
+        IslandRecord.setBounds(bounds, x, z, x, z);
+        if (!Util.inWorld(location)) {
+            return null;
+        }
+        IslandRecord record = getRecordAt(x, z);
+        if (record == null) {
+            read(() -> islandGrid.getEmptyCellBounds(x, z, bounds));
+            return null;
+        }
+        boolean onIsland = record.getRegion(x, z, bounds);
+        if (!islandGrid.onLattice(record)) {
+            IslandRecord.setBounds(bounds, x, z, x, z);
+        }
+        prefetch(record);
+        return onIsland ? new ProtectedArea(record, isKeptOut(record, playerUUID)) : null;
+    }
+
+    /**
+     * Gets the protected area of an island that is in memory, e.g., the spawn
+     * @param island
+     * @param playerUUID - the player who is checked against the lock and bans
+     * @return the protected area, or null if the island is not in the cache
+     */
+    public ProtectedArea getProtectedArea(Island island, UUID playerUUID) {
+        IslandRecord record = read(() -> islandsByLocation.get(LongHashMap.key(island.getCenter().getBlockX(), island.getCenter().getBlockZ())));
+        if (record == null) {
+            return null;
+        }
+        return new ProtectedArea(record, isKeptOut(record, playerUUID));
+    }
+
+    /**
+     * @param area
+     * @return the full island of the protected area, loading it if it is not in memory
+     */
+    public Island getIsland(ProtectedArea area) {
+        return hydrate(area.record);
+    }
+
+    /**
+     * @param record
+     * @param playerUUID
+     * @return true if the island is locked or the player is banned, and they are not a member and cannot bypass it
+     */
+    private boolean isKeptOut(IslandRecord record, UUID playerUUID) {
+        boolean hasOwner = record.hasOwner();
+        if (!hasOwner && !record.isSpawn()) {
+            return false;
+        }
+        boolean banned = hasOwner && !banIndex.canBypassBan(playerUUID) && banIndex.isBanned(record.getUniqueId(), playerUUID);
+        return (record.isLocked() || banned) && !record.isMember(playerUUID) && !banIndex.canBypassLock(playerUUID);
+    }
+
     /**
      * Returns the player's island location.
      * Returns an island location OR a team island location
@@ -261,8 +735,9 @@ public class IslandCache {
      * @return Location of player's island or null if one does not exist
      */
     public Location getIslandLocation(UUID playerUUID) {
-        if (hasIsland(playerUUID))
-            return getIsland(playerUUID).getCenter();
+        IslandRecord record = getRecord(playerUUID);
+        if (record != null && record.isOwner(playerUUID))
+            return record.getCenter();
         return null;
     }
 
@@ -273,29 +748,58 @@ public class IslandCache {
      */
     public String getIslandName(UUID owner) {
         String result = plugin.getPlayers().getName(owner);
-        if (islandsByUUID.containsKey(owner)) {
-            Island island = islandsByUUID.get(owner);
-            if (!island.getName().isEmpty()) {
-                result = island.getName();
-            }
+        Island island = get(owner);
+        if (island != null && !island.getName().isEmpty()) {
+            result = island.getName();
         }
         return ChatColor.translateAlternateColorCodes('&', result) + ChatColor.RESET;
     }
 
-    public Collection<Island> getIslands() {
-        return Collections.unmodifiableCollection(islandsByLocation.values());
+    /**
+     * @return a snapshot of the islands that are in memory, which can be safely iterated on any thread.
+     * Islands that are not in memory have no unsaved changes.
+     */
+    public Collection<Island> getHydratedIslands() {
+        List<Island> islands;
+        synchronized (hydrated) {
+            islands = new ArrayList<>(hydrated.size());
+            for (IslandRecord record : hydrated.keySet()) {
+                Island island = record.getIsland();
+                if (island != null) {
+                    islands.add(island);
+                }
+            }
+        }
+        return Collections.unmodifiableCollection(islands);
     }
 
+    /**
+     * @param playerUUID
+     * @return the members of the player's island. Does not load the island.
+     */
     public Set<UUID> getMembers(UUID playerUUID) {
-        Island island = islandsByUUID.get(playerUUID);
-        if (island != null)
-            return new HashSet<UUID>(island.getMembers());
-        return new HashSet<UUID>(0);
+        IslandRecord record = getRecord(playerUUID);
+        if (record == null) {
+            return new HashSet<UUID>(0);
+        }
+        // The players that map to an island are its owner and members. The record replaces its array on
+        // every change, so this is safe off the main thread, unlike the live island's member set.
+        return record.getPlayers();
+    }
+
+    /**
+     * @param playerUUID
+     * @return the uniqueId of the player's island or team island, or null if they have none. Does not load the island.
+     */
+    public String getIslandId(UUID playerUUID) {
+        IslandRecord record = getRecord(playerUUID);
+        return record == null ? null : record.getUniqueId();
     }
 
     public UUID getTeamLeader(UUID playerUUID) {
-        if (islandsByUUID.containsKey(playerUUID))
-            return islandsByUUID.get(playerUUID).getOwner();
+        IslandRecord record = getRecord(playerUUID);
+        if (record != null)
+            return record.getOwner();
         return null;
     }
 
@@ -304,59 +808,48 @@ public class IslandCache {
      * @return true if player has island and owns it
      */
     public boolean hasIsland(UUID playerUUID) {
-        if (DEBUG) {
-            plugin.getLogger().info("DEBUG: checking if " + playerUUID + " has an island");
-            plugin.getLogger().info("DEBUG: islandsByUUID : " + islandsByUUID.toString());
-    
-            if (!islandsByUUID.containsKey(playerUUID)) {
-                plugin.getLogger().info("DEBUG: player is not in islandsByUUID");
-            } else {
-                plugin.getLogger().info("DEBUG: owner = " + islandsByUUID.get(playerUUID).getOwner());
-            }
-        }
-        if (islandsByUUID.containsKey(playerUUID) && islandsByUUID.get(playerUUID).getOwner() != null) {
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: checking for equals");
-            if (islandsByUUID.get(playerUUID).getOwner().equals(playerUUID)) {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: has island");
-                return true;
-            }
-        }
+        IslandRecord record = getRecord(playerUUID);
+        boolean result = record != null && record.isOwner(playerUUID);
         if (DEBUG)
-            plugin.getLogger().info("DEBUG: doesn't have island");
-        return false;
+            plugin.getLogger().info("DEBUG: " + playerUUID + (result ? " has an island" : " doesn't have island"));
+        return result;
     }
 
     public void removePlayer(UUID playerUUID) {
-        Island island = islandsByUUID.get(playerUUID);
-        if (island != null) {
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: island found");
-            if (island.getOwner() != null && island.getOwner().equals(playerUUID)) {
+        // Load the island first, as the lock cannot be held while it is read from the database
+        Island island = get(playerUUID);
+        long stamp = lock.writeLock();
+        try {
+            if (island != null) {
                 if (DEBUG)
-                    plugin.getLogger().info("DEBUG: player is the owner of this island");
-                // Clear ownership and members
-                island.getMembers().clear();
-                island.setOwner(null);
+                    plugin.getLogger().info("DEBUG: island found");
+                if (island.getOwner() != null && island.getOwner().equals(playerUUID)) {
+                    if (DEBUG)
+                        plugin.getLogger().info("DEBUG: player is the owner of this island");
+                    // Clear ownership and members
+                    island.getMembers().clear();
+                    island.setOwner(null);
+                }
+                island.getMembers().remove(playerUUID);
+                island.setDirty(true);
             }
-            island.getMembers().remove(playerUUID);
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: removing reference to island by UUID");
+            unmapPlayer(playerUUID);
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        if (DEBUG)
-            plugin.getLogger().info("DEBUG: removing reference to island by UUID");
-        islandsByUUID.remove(playerUUID);
-        
     }
 
     public void setIslandName(UUID owner, String name) {
-        if (islandsByUUID.containsKey(owner)) {
-            Island island = islandsByUUID.get(owner);
+        Island island = get(owner);
+        if (island != null) {
             island.setName(name);
         }
-        
+
     }
 
     public int size() {
-        return islandsByLocation.size();
+        return read(() -> islandsByLocation.size());
     }
 }
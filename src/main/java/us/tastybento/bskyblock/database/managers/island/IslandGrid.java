@@ -0,0 +1,165 @@
+package us.tastybento.bskyblock.database.managers.island;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import us.tastybento.bskyblock.util.LongHashMap;
+
+/**
+ * Spatial index of island records by x,z.
+ * Islands are laid out on a fixed lattice of islandDistance * 2 (see NewIsland#nextGridLocation),
+ * so the lattice cell of any block can be worked out arithmetically and looked up in a
+ * primitive long keyed map. Islands that are not on the lattice (e.g., made with an older
+ * distance setting) are kept in a range searchable tree and only checked if the lattice misses.
+ */
+class IslandGrid {
+
+    private final int distance;
+    private final int step;
+    private final int originX;
+    private final int originZ;
+    // Lattice islands by packed cell x,z
+    private final LongHashMap<IslandRecord> cells = new LongHashMap<>();
+    // Off-lattice islands by minX, minZ
+    private final TreeMap<Integer, TreeMap<Integer, IslandRecord>> legacyGrid = new TreeMap<>();
+
+    /**
+     * @param distance - the island distance, i.e. half the lattice step
+     * @param originX - x coordinate of the center of the first island
+     * @param originZ - z coordinate of the center of the first island
+     */
+    public IslandGrid(int distance, int originX, int originZ) {
+        this.distance = distance;
+        this.step = distance * 2;
+        // Cells start at the min corner of the island space
+        this.originX = originX - distance;
+        this.originZ = originZ - distance;
+    }
+
+    /**
+     * @param island
+     * @return true if the island space exactly covers one lattice cell
+     */
+    boolean onLattice(IslandRecord island) {
+        return step > 0 && island.getRange() == distance
+                && Math.floorMod(island.getMinX() - originX, step) == 0
+                && Math.floorMod(island.getMinZ() - originZ, step) == 0;
+    }
+
+    private long cellKey(int x, int z) {
+        return LongHashMap.key(Math.floorDiv(x - originX, step), Math.floorDiv(z - originZ, step));
+    }
+
+    /**
+     * Gets the bounds of the empty lattice cell that x,z is in. Only islands on the lattice can be
+     * relied on not to overlap, so this is only possible when there are no off-lattice islands.
+     * @param x
+     * @param z
+     * @param bounds - set to the min x, min z, max x, max z of the cell, inclusive
+     * @return true if bounds were set
+     */
+    boolean getEmptyCellBounds(int x, int z, int[] bounds) {
+        if (step <= 0 || !legacyGrid.isEmpty()) {
+            return false;
+        }
+        int cellX = originX + Math.floorDiv(x - originX, step) * step;
+        int cellZ = originZ + Math.floorDiv(z - originZ, step) * step;
+        IslandRecord.setBounds(bounds, cellX, cellZ, cellX + step - 1, cellZ + step - 1);
+        return true;
+    }
+
+    /**
+     * Adds an island to the grid
+     * @param island
+     * @return null if added, or the island that already occupies that space
+     */
+    public IslandRecord addToGrid(IslandRecord island) {
+        if (onLattice(island)) {
+            long key = cellKey(island.getMinX(), island.getMinZ());
+            IslandRecord conflict = cells.get(key);
+            if (conflict != null) {
+                return conflict;
+            }
+            cells.put(key, island);
+            return null;
+        }
+        TreeMap<Integer, IslandRecord> zEntry = legacyGrid.get(island.getMinX());
+        if (zEntry == null) {
+            zEntry = new TreeMap<>();
+            legacyGrid.put(island.getMinX(), zEntry);
+        } else if (zEntry.containsKey(island.getMinZ())) {
+            return zEntry.get(island.getMinZ());
+        }
+        zEntry.put(island.getMinZ(), island);
+        return null;
+    }
+
+    /**
+     * Removes an island from the grid
+     * @param island
+     * @return true if it was in the grid
+     */
+    public boolean removeFromGrid(IslandRecord island) {
+        if (onLattice(island)) {
+            long key = cellKey(island.getMinX(), island.getMinZ());
+            if (cells.get(key) == island) {
+                cells.remove(key);
+                return true;
+            }
+            return false;
+        }
+        TreeMap<Integer, IslandRecord> zEntry = legacyGrid.get(island.getMinX());
+        if (zEntry != null && zEntry.get(island.getMinZ()) == island) {
+            zEntry.remove(island.getMinZ());
+            if (zEntry.isEmpty()) {
+                legacyGrid.remove(island.getMinX());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the island at the x,z location or null if there is none.
+     * This includes the full island space, not just the protected area.
+     *
+     * @param x
+     * @param z
+     * @return island record or null
+     */
+    public IslandRecord getIslandAt(int x, int z) {
+        if (step > 0) {
+            IslandRecord island = cells.get(cellKey(x, z));
+            if (island != null && island.inIslandSpace(x, z)) {
+                return island;
+            }
+        }
+        if (legacyGrid.isEmpty()) {
+            return null;
+        }
+        Entry<Integer, TreeMap<Integer, IslandRecord>> en = legacyGrid.floorEntry(x);
+        if (en != null) {
+            Entry<Integer, IslandRecord> ent = en.getValue().floorEntry(z);
+            if (ent != null && ent.getValue().inIslandSpace(x, z)) {
+                return ent.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of islands in the grid
+     */
+    public int size() {
+        int size = cells.size();
+        for (TreeMap<Integer, IslandRecord> zEntry : legacyGrid.values()) {
+            size += zEntry.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        cells.clear();
+        legacyGrid.clear();
+    }
+}
@@ -0,0 +1,334 @@
+package us.tastybento.bskyblock.database.managers.island;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import us.tastybento.bskyblock.database.objects.Island;
+
+/**
+ * The part of an island that is always kept in memory: where it is, who owns it and which players
+ * belong to it. UUIDs are packed into longs so a record costs a small fraction of a full Island.
+ * The full Island is loaded from the database the first time it is needed and is held here until
+ * the cache lets it go again. While it is held, it is the live copy and the record defers to it.
+ * The record has what is needed to check a move onto the island, so that does not load the island.
+ */
+class IslandRecord {
+
+    private final String uniqueId;
+    private final World world;
+    private final int centerX;
+    private final int centerY;
+    private final int centerZ;
+    private final int minX;
+    private final int minZ;
+    private final int range;
+    private int minProtectedX;
+    private int minProtectedZ;
+    private int protectionRange;
+    private boolean hasOwner;
+    private long ownerMost;
+    private long ownerLeast;
+    private boolean spawn;
+    private boolean locked;
+    /**
+     * Players that map to this island, two longs per UUID. Replaced, never changed in place.
+     */
+    private volatile long[] players = new long[0];
+    /**
+     * The full island or null if it is not in memory
+     */
+    private volatile Island island;
+    /**
+     * The island last let go of, in case something still holds it and it is asked for again
+     */
+    private volatile WeakReference<Island> released;
+    /**
+     * When the full island was last asked for
+     */
+    private volatile long lastUsed;
+
+    /**
+     * Makes the record for an island. The island is not held by the record until {@link #setIsland(Island)} is called.
+     * @param island
+     */
+    IslandRecord(Island island) {
+        this.uniqueId = island.getUniqueId();
+        this.world = island.getWorld() != null ? island.getWorld() : island.getCenter().getWorld();
+        this.centerX = island.getCenter().getBlockX();
+        this.centerY = island.getCenter().getBlockY();
+        this.centerZ = island.getCenter().getBlockZ();
+        this.minX = island.getMinX();
+        this.minZ = island.getMinZ();
+        this.range = island.getRange();
+        update(island);
+    }
+
+    /**
+     * Copies the parts of the island that can change into the record
+     * @param island
+     */
+    void update(Island island) {
+        this.minProtectedX = island.getMinProtectedX();
+        this.minProtectedZ = island.getMinProtectedZ();
+        this.protectionRange = island.getProtectionRange();
+        this.spawn = island.isSpawn();
+        this.locked = island.isLocked();
+        UUID owner = island.getOwner();
+        this.hasOwner = owner != null;
+        this.ownerMost = owner != null ? owner.getMostSignificantBits() : 0L;
+        this.ownerLeast = owner != null ? owner.getLeastSignificantBits() : 0L;
+    }
+
+    String getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * @return the full island, or null if it is not in memory
+     */
+    Island getIsland() {
+        return island;
+    }
+
+    /**
+     * Holds the island, or lets go of it if island is null. An island that is let go of is still weakly
+     * referenced, so if anything still holds it, it is used again rather than a second copy being loaded.
+     * @param island
+     */
+    void setIsland(Island island) {
+        Island old = this.island;
+        if (island == null && old != null) {
+            released = new WeakReference<>(old);
+        } else if (island != null) {
+            released = null;
+        }
+        this.island = island;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    int getMinX() {
+        return minX;
+    }
+
+    int getMinZ() {
+        return minZ;
+    }
+
+    int getRange() {
+        return range;
+    }
+
+    int getCenterX() {
+        return centerX;
+    }
+
+    int getCenterZ() {
+        return centerZ;
+    }
+
+    /**
+     * @return a new Location for the center of the island
+     */
+    Location getCenter() {
+        Island island = this.island;
+        if (island != null) {
+            return island.getCenter();
+        }
+        return new Location(world, centerX, centerY, centerZ);
+    }
+
+    /**
+     * @return the owner or null if there is none
+     */
+    UUID getOwner() {
+        Island island = this.island;
+        if (island != null) {
+            return island.getOwner();
+        }
+        return hasOwner ? new UUID(ownerMost, ownerLeast) : null;
+    }
+
+    /**
+     * @param uuid
+     * @return true if this player owns the island
+     */
+    boolean isOwner(UUID uuid) {
+        Island island = this.island;
+        if (island != null) {
+            return uuid.equals(island.getOwner());
+        }
+        return hasOwner && uuid.getMostSignificantBits() == ownerMost && uuid.getLeastSignificantBits() == ownerLeast;
+    }
+
+    /**
+     * @return the island that was last let go of, if it is still held by something, or null
+     */
+    Island getReleased() {
+        WeakReference<Island> released = this.released;
+        return released == null ? null : released.get();
+    }
+
+    /**
+     * @return true if the island has an owner
+     */
+    boolean hasOwner() {
+        Island island = this.island;
+        return island != null ? island.getOwner() != null : hasOwner;
+    }
+
+    boolean isSpawn() {
+        Island island = this.island;
+        return island != null ? island.isSpawn() : spawn;
+    }
+
+    boolean isLocked() {
+        Island island = this.island;
+        return island != null ? island.isLocked() : locked;
+    }
+
+    /**
+     * @param uuid
+     * @return true if the player is the owner or a member of the island
+     */
+    boolean isMember(UUID uuid) {
+        return indexOf(uuid) >= 0;
+    }
+
+    /**
+     * @param x
+     * @param z
+     * @return true if x,z is in the island space, not just the protected area
+     */
+    boolean inIslandSpace(int x, int z) {
+        return x >= minX && x < minX + range * 2 && z >= minZ && z < minZ + range * 2;
+    }
+
+    /**
+     * @param x
+     * @param z
+     * @return true if x,z is in the protected area of the island
+     */
+    boolean onIsland(int x, int z) {
+        Island island = this.island;
+        if (island != null) {
+            return x >= island.getMinProtectedX() && x < island.getMinProtectedX() + island.getProtectionRange() * 2
+                    && z >= island.getMinProtectedZ() && z < island.getMinProtectedZ() + island.getProtectionRange() * 2;
+        }
+        return x >= minProtectedX && x < minProtectedX + protectionRange * 2
+                && z >= minProtectedZ && z < minProtectedZ + protectionRange * 2;
+    }
+
+    /**
+     * Works out the largest rectangle around x,z in the island space that is either all protected or all unprotected
+     * @param x
+     * @param z
+     * @param bounds - set to the min x, min z, max x, max z of the rectangle, inclusive
+     * @return true if x,z is in the protected area
+     */
+    boolean getRegion(int x, int z, int[] bounds) {
+        Island island = this.island;
+        int protectedX = island != null ? island.getMinProtectedX() : minProtectedX;
+        int protectedZ = island != null ? island.getMinProtectedZ() : minProtectedZ;
+        int protectedRange = island != null ? island.getProtectionRange() : protectionRange;
+        int maxX = minX + range * 2 - 1;
+        int maxZ = minZ + range * 2 - 1;
+        // Protected area, clipped to the island space
+        int pMinX = Math.max(protectedX, minX);
+        int pMinZ = Math.max(protectedZ, minZ);
+        int pMaxX = Math.min(protectedX + protectedRange * 2 - 1, maxX);
+        int pMaxZ = Math.min(protectedZ + protectedRange * 2 - 1, maxZ);
+        if (pMinX > pMaxX || pMinZ > pMaxZ) {
+            setBounds(bounds, minX, minZ, maxX, maxZ);
+            return false;
+        }
+        if (x >= pMinX && x <= pMaxX && z >= pMinZ && z <= pMaxZ) {
+            setBounds(bounds, pMinX, pMinZ, pMaxX, pMaxZ);
+            return true;
+        }
+        // One of the four strips around the protected area
+        if (x < pMinX) {
+            setBounds(bounds, minX, minZ, pMinX - 1, maxZ);
+        } else if (x > pMaxX) {
+            setBounds(bounds, pMaxX + 1, minZ, maxX, maxZ);
+        } else if (z < pMinZ) {
+            setBounds(bounds, pMinX, minZ, pMaxX, pMinZ - 1);
+        } else {
+            setBounds(bounds, pMinX, pMaxZ + 1, pMaxX, maxZ);
+        }
+        return false;
+    }
+
+    static void setBounds(int[] bounds, int minX, int minZ, int maxX, int maxZ) {
+        bounds[0] = minX;
+        bounds[1] = minZ;
+        bounds[2] = maxX;
+        bounds[3] = maxZ;
+    }
+
+    /**
+     * Maps a player to this island
+     * @param uuid
+     */
+    void addPlayer(UUID uuid) {
+        if (indexOf(uuid) < 0) {
+            long[] grown = Arrays.copyOf(players, players.length + 2);
+            grown[players.length] = uuid.getMostSignificantBits();
+            grown[players.length + 1] = uuid.getLeastSignificantBits();
+            players = grown;
+        }
+    }
+
+    /**
+     * Unmaps a player from this island
+     * @param uuid
+     * @return true if there are no players left
+     */
+    boolean removePlayer(UUID uuid) {
+        int index = indexOf(uuid);
+        if (index >= 0) {
+            long[] shrunk = new long[players.length - 2];
+            System.arraycopy(players, 0, shrunk, 0, index);
+            System.arraycopy(players, index + 2, shrunk, index, players.length - index - 2);
+            players = shrunk;
+        }
+        return players.length == 0;
+    }
+
+    private int indexOf(UUID uuid) {
+        long[] players = this.players;
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int i = 0; i < players.length; i += 2) {
+            if (players[i] == most && players[i + 1] == least) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the players that map to this island
+     */
+    Set<UUID> getPlayers() {
+        long[] players = this.players;
+        Set<UUID> result = new HashSet<>(players.length);
+        for (int i = 0; i < players.length; i += 2) {
+            result.add(new UUID(players[i], players[i + 1]));
+        }
+        return result;
+    }
+}
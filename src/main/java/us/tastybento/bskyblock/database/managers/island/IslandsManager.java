@@ -1,7 +1,8 @@
 package us.tastybento.bskyblock.database.managers.island;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -24,6 +25,7 @@ import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.BSBDatabase;
 import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+import us.tastybento.bskyblock.database.managers.WriteBehindQueue;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.generators.IslandWorld;
 import us.tastybento.bskyblock.util.DeleteIslandChunks;
@@ -130,6 +132,7 @@ public class IslandsManager {
      */
     private Island spawn;
     private AbstractDatabaseHandler<Island> handler;
+    private WriteBehindQueue<Island> writeQueue;
 
     private Location last;
     // Metrics data
@@ -137,6 +140,8 @@ public class IslandsManager {
 
     // Island Cache
     private IslandCache islandCache;
+    private BanIndex banIndex;
+    private volatile boolean loaded = false;
 
     @SuppressWarnings("unchecked")
     public IslandsManager(BSkyBlock plugin){
@@ -144,10 +149,36 @@ public class IslandsManager {
         database = BSBDatabase.getDatabase();
         // Set up the database handler to store and retrieve Island classes
         handler = (AbstractDatabaseHandler<Island>) database.getHandler(plugin, Island.class);
-        islandCache = new IslandCache();
+        writeQueue = new WriteBehindQueue<>(plugin, handler, "Island");
+        banIndex = new BanIndex(plugin);
+        islandCache = new IslandCache(banIndex, this::loadIsland, island -> save(island, true));
         spawn = null;
     }
 
+    /**
+     * Loads a full island for the cache. A copy waiting to be saved is newer than the database one.
+     * @param uniqueId
+     * @return island or null if it could not be loaded
+     */
+    private Island loadIsland(String uniqueId) {
+        Island island = writeQueue.getPending(uniqueId);
+        if (island != null) {
+            return island;
+        }
+        try {
+            island = handler.loadObject(uniqueId);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not load island " + uniqueId);
+            e.printStackTrace();
+            return null;
+        }
+        if (island != null) {
+            // Freshly loaded, so nothing to save yet
+            island.setDirty(false);
+        }
+        return island;
+    }
+
     /**
      * This is a generic scan that can work in the overworld or the nether
      * @param l - location around which to scan
@@ -268,11 +299,7 @@ public class IslandsManager {
             // Remove island from the cache
             islandCache.deleteIslandFromCache(island);
             // Remove the island from the database
-            try {
-                handler.deleteObject(island);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            writeQueue.delete(island);
             // Remove blocks from world
             new DeleteIslandChunks(plugin, island);
         }
@@ -315,6 +342,36 @@ public class IslandsManager {
         return island == null ? new HashSet<>(): island.getBanned();
     }
 
+    /**
+     * @return the index of who is banned from which island
+     */
+    public BanIndex getBanIndex() {
+        return banIndex;
+    }
+
+    /**
+     * Checks the ban index only, so this never loads a player or an island
+     * @param ownerUUID - owner or member of the island
+     * @param targetUUID
+     * @return true if target is banned from the player's island and does not have the ban bypass permission
+     */
+    public boolean isBanned(UUID ownerUUID, UUID targetUUID) {
+        if (ownerUUID == null || targetUUID == null || banIndex.canBypassBan(targetUUID)) {
+            return false;
+        }
+        return banIndex.isBanned(islandCache.getIslandId(ownerUUID), targetUUID);
+    }
+
+    /**
+     * Checks the ban index only, so this does not lock or allocate
+     * @param island
+     * @param targetUUID
+     * @return true if target is banned from the island and does not have the ban bypass permission
+     */
+    public boolean isBanned(Island island, UUID targetUUID) {
+        return island.getOwner() != null && !banIndex.canBypassBan(targetUUID) && banIndex.isBanned(island.getUniqueId(), targetUUID);
+    }
+
     public int getCount(){
         return islandCache.size();
     }
@@ -417,20 +474,55 @@ public class IslandsManager {
         if (spawn != null && spawn.onIsland(location)) {
             return spawn;
         }
-        Island island = getIslandAt(location);
-        if (island == null) {
-            if (DEBUG2)
-                plugin.getLogger().info("DEBUG: no island at this location");
-            return null;
+        // Only loads the island if the location is in its protected area
+        Island island = islandCache.getProtectedIslandAt(location);
+        if (DEBUG2)
+            plugin.getLogger().info("DEBUG: " + (island == null ? "not in an island protection zone" : "on island"));
+        return island;
+    }
+
+    /**
+     * Like {@link #getProtectedIslandAt(Location)}, and also works out the area around the location where the answer is the same,
+     * so that callers can skip the lookup while they stay inside it and {@link Island#getProtectionVersion()} does not change.
+     *
+     * @param location
+     * @param bounds - set to the min x, min z, max x, max z of the area, inclusive
+     * @return Island or null
+     */
+    public Island getProtectedIslandAt(Location location, int[] bounds) {
+        if (spawn != null && spawn.onIsland(location)) {
+            bounds[0] = bounds[2] = location.getBlockX();
+            bounds[1] = bounds[3] = location.getBlockZ();
+            return spawn;
         }
-        if (island.onIsland(location)) {
-            if (DEBUG2)
-                plugin.getLogger().info("DEBUG: on island");
-            return island;
+        return islandCache.getProtectedIslandAt(location, bounds);
+    }
+
+    /**
+     * Like {@link #getProtectedIslandAt(Location, int[])}, but never loads the island, so it can be used on every move.
+     * Islands the player comes near are loaded in the background. Use {@link #getIsland(IslandCache.ProtectedArea)}
+     * when the full island is needed.
+     *
+     * @param location
+     * @param playerUUID - the player who is checked against the lock and bans
+     * @param bounds - set to the min x, min z, max x, max z of the area, inclusive
+     * @return the protected area, or null if the location is not in one
+     */
+    public IslandCache.ProtectedArea getProtectedAreaAt(Location location, UUID playerUUID, int[] bounds) {
+        if (spawn != null && spawn.onIsland(location)) {
+            bounds[0] = bounds[2] = location.getBlockX();
+            bounds[1] = bounds[3] = location.getBlockZ();
+            return islandCache.getProtectedArea(spawn, playerUUID);
         }
-        if (DEBUG2)
-            plugin.getLogger().info("DEBUG: not in island protection zone");
-        return null;
+        return islandCache.getProtectedAreaAt(location, playerUUID, bounds);
+    }
+
+    /**
+     * @param area
+     * @return the full island of the protected area, or null if it could not be loaded
+     */
+    public Island getIsland(IslandCache.ProtectedArea area) {
+        return islandCache.getIsland(area);
     }
 
     /**
@@ -649,7 +741,7 @@ public class IslandsManager {
     }
 
     public boolean isIsland(Location location){
-        return islandCache.get(location) != null;
+        return islandCache.contains(location);
     }
 
     /**
@@ -667,19 +759,76 @@ public class IslandsManager {
      * Clear and reload all islands from database
      */
     public void load(){
-        islandCache.clear();
-        spawn = null;
+        loaded = false;
         try {
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: loading grid");
-            for (Island island : handler.loadObjects()) {
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: addin island at "+ island.getCenter());
-                islandCache.addIsland(island);
-            }
+            addLoadedIslands(handler.loadObjects());
         } catch (Exception e) {
             e.printStackTrace();
         }
+        loaded = true;
+    }
+
+    /**
+     * Loads the islands from the database on another thread and then adds them all to the cache
+     * on the main thread in one go
+     * @param whenLoaded - run on the main thread once the islands are in the cache
+     */
+    public void loadAsync(final Runnable whenLoaded) {
+        loaded = false;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                List<Island> islands;
+                try {
+                    islands = handler.loadObjects();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    islands = new ArrayList<>();
+                }
+                if (DEBUG)
+                    plugin.getLogger().info("DEBUG: loaded " + islands.size() + " islands in " + (System.currentTimeMillis() - start) + "ms");
+                if (!plugin.isEnabled()) {
+                    return;
+                }
+                final List<Island> result = islands;
+                plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+
+                    @Override
+                    public void run() {
+                        addLoadedIslands(result);
+                        loaded = true;
+                        plugin.getLogger().info("Loaded " + result.size() + " islands");
+                        whenLoaded.run();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces the cache with these islands
+     * @param islands
+     */
+    private void addLoadedIslands(List<Island> islands) {
+        islandCache.clear();
+        spawn = null;
+        for (Island island : islands) {
+            // Freshly loaded, so nothing to save yet
+            island.setDirty(false);
+        }
+        // Only a slim record of each island is kept. The islands are loaded again when they are needed.
+        islandCache.addIslands(islands);
+    }
+
+    /**
+     * @return true once the islands have been loaded from the database
+     */
+    public boolean isLoaded() {
+        return loaded;
     }
 
     /**
@@ -884,35 +1033,43 @@ public class IslandsManager {
     }
 
     /**
-     * Save the islands to the database
+     * Save the islands that have changed since they were last saved to the database.
+     * Only islands in memory can have changed.
      * @param async - if true, saving will be done async
      */
     public void save(boolean async){
-        Collection<Island> collection = islandCache.getIslands();    
-        if(async){
-            Runnable save = () -> {
-                int index = 1;
-                for(Island island : collection){
-                    plugin.getLogger().info("DEBUG: saving island async " + index++);
-                    try {
-                        handler.saveObject(island);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            };
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, save);
-        } else {
-            int index = 1;
-            for(Island island : collection){
-                plugin.getLogger().info("DEBUG: saving island " + index++);
-                try {
-                    handler.saveObject(island);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        List<Island> changed = new ArrayList<>();
+        for (Island island : islandCache.getHydratedIslands()) {
+            if (island.isDirty()) {
+                // Clear now so that changes made while saving are picked up next time
+                island.setDirty(false);
+                changed.add(island);
             }
         }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: saving " + changed.size() + " changed islands");
+        for (Island island : changed) {
+            writeQueue.save(island);
+        }
+        if(!async){
+            writeQueue.flush();
+        }
+    }
+
+    /**
+     * Save a single island to the database if it has changed
+     * @param island
+     * @param async - if true, saving will be done async
+     */
+    public void save(Island island, boolean async) {
+        if (island == null || !island.isDirty()) {
+            return;
+        }
+        island.setDirty(false);
+        writeQueue.save(island);
+        if (!async) {
+            writeQueue.flush();
+        }
     }
 
     // Metrics-related methods //
@@ -942,8 +1099,8 @@ public class IslandsManager {
             plugin.getLogger().info("DEBUG: new team member list:");
             plugin.getLogger().info(teamIsland.getMembers().toString());
         }
-        // Save the database
-        save(false);
+        // Save the island
+        save(teamIsland, true);
 
         return true;
     }
@@ -964,7 +1121,14 @@ public class IslandsManager {
     }
 
     public void shutdown(){
-        save(false);
+        save(true);
+        // Wait for everything to be written
+        if (writeQueue.shutdown()) {
+            handler.close();
+        } else {
+            // Closing it under the writer could damage the database
+            plugin.getLogger().severe("Not closing the island database while it is still being written to");
+        }
         islandCache.clear();
     }
 }
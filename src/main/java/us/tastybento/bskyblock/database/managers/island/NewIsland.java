@@ -118,11 +118,13 @@ public class NewIsland {
 
         // Set the biome
         //BiomesPanel.setIslandBiome(next, schematic.getBiome());
-        // Teleport to the new home
-        if (schematic.isPlayerSpawn()) {
-            // Set home and teleport
-            plugin.getPlayers().setHomeLocation(playerUUID, schematic.getPlayerSpawn(next), 1);
-        }
+        // The home is only set once the island is there, so nobody can be sent to it before then
+        final Location home = schematic.isPlayerSpawn() ? schematic.getPlayerSpawn(next) : null;
+        final Runnable setHome = () -> {
+            if (home != null) {
+                plugin.getPlayers().setHomeLocation(playerUUID, home, 1);
+            }
+        };
 
         // Create island based on schematic
         if (schematic != null) {
@@ -140,13 +142,13 @@ public class NewIsland {
                 next = next.toVector().toLocation(IslandWorld.getNetherWorld());
                 // Set the player's island location to this new spot
                 //plugin.getPlayers().setIslandLocation(playerUUID, next);
-                schematic.pasteSchematic(next, player, true, firstTime ? PasteReason.NEW_ISLAND: PasteReason.RESET, oldIsland);
+                schematic.pasteSchematic(next, player, true, firstTime ? PasteReason.NEW_ISLAND: PasteReason.RESET, oldIsland, setHome);
             } else {
                 // Over world start
                 //plugin.getLogger().info("DEBUG: pasting");
                 //long timer = System.nanoTime();
                 // Paste the island and teleport the player home
-                schematic.pasteSchematic(next, player, true, firstTime ? PasteReason.NEW_ISLAND: PasteReason.RESET, oldIsland);
+                schematic.pasteSchematic(next, player, true, firstTime ? PasteReason.NEW_ISLAND: PasteReason.RESET, oldIsland, setHome);
                 //double diff = (System.nanoTime() - timer)/1000000;
                 //plugin.getLogger().info("DEBUG: nano time = " + diff + " ms");
                 //plugin.getLogger().info("DEBUG: pasted overworld");
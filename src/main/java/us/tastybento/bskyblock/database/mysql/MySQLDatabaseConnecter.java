@@ -3,6 +3,9 @@ package us.tastybento.bskyblock.database.mysql;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -11,9 +14,19 @@ import us.tastybento.bskyblock.database.DatabaseConnectionSettingsImpl;
 
 public class MySQLDatabaseConnecter implements DatabaseConnecter {
 
+    // How long to wait for a free connection before giving up
+    private static final long BORROW_TIMEOUT = 30000L;
+    // Connections idle for longer than this are checked before they are handed out
+    private static final long VALIDATE_AFTER = 5000L;
+
     private String connectionUrl;
     private DatabaseConnectionSettingsImpl dbSettings;
     private Connection connection = null;
+    // Idle pooled connections. Most recently used first so that the rest can time out on the server.
+    private final LinkedBlockingDeque<PooledMySQLConnection> idle = new LinkedBlockingDeque<>();
+    // One permit per connection that may be open
+    private final Semaphore permits;
+    private volatile boolean closed = false;
 
     /**
      * Class for MySQL database connections using the settings provided
@@ -21,6 +34,7 @@ public class MySQLDatabaseConnecter implements DatabaseConnecter {
      */
     public MySQLDatabaseConnecter(DatabaseConnectionSettingsImpl dbSettings) {
         this.dbSettings = dbSettings;
+        this.permits = new Semaphore(Math.max(1, dbSettings.getPoolSize()), true);
         try {
             Class.forName("com.mysql.jdbc.Driver").newInstance();
         } catch (Exception e) {
@@ -28,15 +42,102 @@ public class MySQLDatabaseConnecter implements DatabaseConnecter {
             e.printStackTrace();
         }
         // jdbc:mysql://localhost:3306/Peoples?autoReconnect=true&useSSL=false
-        connectionUrl = "jdbc:mysql://" + dbSettings.getHost() + "/" + dbSettings.getDatabaseName() + "?autoReconnect=true&useSSL=false&allowMultiQueries=true";
+        // Cursor fetch makes the driver honour the fetch size and lets several result sets be read at once on one connection.
+        // Without rewriting, the driver sends each statement in a batch on its own, one round trip per row.
+        connectionUrl = "jdbc:mysql://" + dbSettings.getHost() + "/" + dbSettings.getDatabaseName() + "?autoReconnect=true&useSSL=false&allowMultiQueries=true&useCursorFetch=true&rewriteBatchedStatements=true";
     }
 
+    /**
+     * Opens a new connection that is not part of the pool. The caller must close it.
+     */
     @Override
     public Connection createConnection() throws SQLException {
         connection = DriverManager.getConnection(connectionUrl, dbSettings.getUsername(), dbSettings.getPassword());
         return connection;
     }
 
+    /**
+     * Borrows a connection from the pool, opening one if there are none idle and the pool is not full.
+     * Waits if every connection is in use. It must be given back with {@link #release(PooledMySQLConnection)}.
+     * @return pooled connection
+     * @throws SQLException if a connection cannot be made or none became free in time
+     */
+    public PooledMySQLConnection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection");
+        }
+        try {
+            PooledMySQLConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.getIdleTime() < VALIDATE_AFTER || pooled.getConnection().isValid(2)) {
+                    return pooled;
+                }
+                // The server has dropped it
+                pooled.close();
+            }
+            return new PooledMySQLConnection(createConnection());
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a borrowed connection back to the pool
+     * @param pooled - may be null, in which case nothing happens
+     */
+    public void release(PooledMySQLConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+        try {
+            if (closed || pooled.getConnection().isClosed()) {
+                pooled.close();
+            } else {
+                // Do not leave a failed transaction hanging around for the next user
+                if (!pooled.getConnection().getAutoCommit()) {
+                    pooled.getConnection().rollback();
+                    pooled.getConnection().setAutoCommit(true);
+                }
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            pooled.close();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all the idle connections. Connections that are in use are closed when they are released.
+     */
+    public void close() {
+        closed = true;
+        PooledMySQLConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * @return the number of rows to read at a time when loading everything
+     */
+    public int getFetchSize() {
+        return dbSettings.getFetchSize();
+    }
+
     @Override
     public String getConnectionUrl() {
         return connectionUrl;
@@ -1,26 +1,21 @@
 package us.tastybento.bskyblock.database.mysql;
 
 import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +27,11 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.plugin.Plugin;
 
-import us.tastybento.bskyblock.database.DatabaseConnecter;
 import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Kind;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Property;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.ValueType;
+import us.tastybento.bskyblock.database.mysql.PooledMySQLConnection.Operation;
 import us.tastybento.bskyblock.util.Util;
 
 /**
@@ -48,9 +46,39 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
 
     private static final boolean DEBUG = false;
     /**
-     * Connection to the database
+     * Pool of connections to the database
      */
-    private Connection connection = null;
+    private final MySQLDatabaseConnecter pool;
+    /**
+     * SQL for the additional tables that collections are stored in, by field name
+     */
+    private final Map<String, CollectionTable> collectionTables = new HashMap<>();
+
+    /**
+     * The table and SQL used to store one collection field
+     */
+    private class CollectionTable {
+        private final String tableName;
+        private final String createSql;
+        private final String insertSql;
+        private final String selectSql;
+        private final String selectAllSql;
+        private final String clearSql;
+
+        private CollectionTable(Property property) {
+            tableName = "`" + type.getCanonicalName() + "." + property.getName() + "`";
+            // The ID in this table relates to the parent table and is unique
+            createSql = "CREATE TABLE IF NOT EXISTS " + tableName + " (uniqueId VARCHAR(36) NOT NULL, "
+                    + getCollectionColumnString(property, false, true) + ")";
+            insertSql = "INSERT INTO " + tableName + " (uniqueId, " + getCollectionColumnString(property, false, false) + ") "
+                    + "VALUES (?, " + getCollectionColumnString(property, true, false) + ")";
+            selectSql = "SELECT " + getCollectionColumnString(property, false, false) + " FROM " + tableName + " WHERE uniqueId = ?";
+            // Every row, in the same order as the main table is loaded in
+            selectAllSql = "SELECT uniqueId, " + getCollectionColumnString(property, false, false) + " FROM " + tableName + " ORDER BY BINARY uniqueId";
+            // The table is cleared for this uniqueId every time the data is stored
+            clearSql = "DELETE FROM " + tableName + " WHERE uniqueId = ?";
+        }
+    }
     /**
      * This hashmap maps Java types to MySQL SQL types because they are not the same
      */
@@ -99,46 +127,46 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
      * @param type - the type of class to be stored in the database. Must inherit DataObject
      * @param databaseConnecter - authentication details for the database
      */
-    public MySQLDatabaseHandler(Plugin plugin, Class<T> type, DatabaseConnecter databaseConnecter) {
+    public MySQLDatabaseHandler(Plugin plugin, Class<T> type, MySQLDatabaseConnecter databaseConnecter) {
         super(plugin, type, databaseConnecter);
-        try {
-            connection = databaseConnecter.createConnection();
-        } catch (SQLException e1) {
-            plugin.getLogger().severe(e1.getMessage());
-            return;
+        this.pool = databaseConnecter;
+        // Work out the SQL for the collection tables once
+        for (Property property : schema.getProperties()) {
+            if (property.isCollection()) {
+                collectionTables.put(property.getName(), new CollectionTable(property));
+            }
         }
         // Check if the table exists in the database and if not, create it
+        PooledMySQLConnection connection = null;
         try {
-            createSchema();
-        } catch (IntrospectionException e) {
-            e.printStackTrace();
+            connection = pool.getConnection();
+            createSchema(connection.getConnection());
         } catch (SQLException e) {
+            plugin.getLogger().severe(e.getMessage());
+        } catch (IntrospectionException e) {
             e.printStackTrace();
+        } finally {
+            pool.release(connection);
         }
     }
 
     /**
      * Creates the table in the database if it doesn't exist already
+     * @param connection
      * @throws IntrospectionException
      * @throws SQLException
      */
-    private void createSchema() throws IntrospectionException, SQLException {
+    private void createSchema(Connection connection) throws IntrospectionException, SQLException {
         PreparedStatement pstmt = null;
         try {
             String sql = "CREATE TABLE IF NOT EXISTS `" + type.getCanonicalName() + "` (";
-            // Run through the fields of the class using introspection
-            for (Field field : type.getDeclaredFields()) {
-                // Get the description of the field
-                PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-                //plugin.getLogger().info("DEBUG: Field = " + field.getName() + "(" + propertyDescriptor.getPropertyType().getTypeName() + ")");
-                // Get default SQL mappings
-                // Get the write method for this field. This method will take an argument of the type of this field.
-                Method writeMethod = propertyDescriptor.getWriteMethod();
+            // Run through the fields of the class
+            for (Property property : schema.getProperties()) {
                 // The SQL column name is the name of the field
-                String columnName = field.getName();
+                String columnName = property.getName();
                 // Get the mapping for this field from the hashmap
-                String typeName = propertyDescriptor.getPropertyType().getTypeName();
-                if (propertyDescriptor.getPropertyType().isEnum()) {
+                String typeName = property.getPropertyType().getTypeName();
+                if (property.getValueType() == ValueType.ENUM) {
                     typeName = "Enum";
                 }
                 String mapping = mySQLmapping.get(typeName);
@@ -147,31 +175,20 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
                     // Note that the column name must be enclosed in `'s because it may include reserved words.
                     sql += "`" + columnName + "` " + mapping + ",";
                     // Create set and map tables if the type is a collection
-                    if (propertyDescriptor.getPropertyType().equals(Set.class) ||
-                            propertyDescriptor.getPropertyType().equals(Map.class) ||
-                            propertyDescriptor.getPropertyType().equals(HashMap.class) ||
-                            propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                        // The ID in this table relates to the parent table and is unique
-                        String setSql = "CREATE TABLE IF NOT EXISTS `" + type.getCanonicalName() + "." + field.getName() + "` ("
-                                + "uniqueId VARCHAR(36) NOT NULL, ";
-                        // Get columns separated by commas
-                        setSql += getCollectionColumnString(writeMethod,false,true);
-                        // Close the SQL string
-                        setSql += ")";
-
-                        //plugin.getLogger().info(setSql);
+                    if (property.isCollection()) {
                         // Execute the statement
-                        PreparedStatement collections = connection.prepareStatement(setSql);
+                        PreparedStatement collections = connection.prepareStatement(collectionTables.get(columnName).createSql);
                         if (DEBUG)
                             plugin.getLogger().info("DEBUG: collections prepared statement = " + collections.toString());
                         collections.executeUpdate();
+                        MySQLDatabaseResourceCloser.close(collections);
                     }
                 } else {
                     // The Java type is not in the hashmap, so we'll just guess that it can be stored in a string
                     // This should NOT be used in general because every type should be in the hashmap
-                    sql += field.getName() + " VARCHAR(254),";
+                    sql += columnName + " VARCHAR(254),";
                     plugin.getLogger().severe("Unknown type! Hoping it'll fit in a string!");
-                    plugin.getLogger().severe(propertyDescriptor.getPropertyType().getTypeName());
+                    plugin.getLogger().severe(typeName);
                 }
             }
             //plugin.getLogger().info("DEBUG: SQL before trim string = " + sql);
@@ -188,7 +205,6 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
         } finally {
             // Close the database properly
             MySQLDatabaseResourceCloser.close(pstmt);
-            MySQLDatabaseResourceCloser.close(pstmt);
         }
     }
 
@@ -207,7 +223,7 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
 
         boolean first = true;
         /* Iterate the column-names */
-        for (Field f : type.getDeclaredFields()) {
+        for (Property property : schema.getProperties()) {
             if (first)
                 first = false;
             else
@@ -216,26 +232,25 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             if (usePlaceHolders)
                 sb.append("?");
             else
-                sb.append("`" + f.getName() + "`");
+                sb.append("`" + property.getName() + "`");
         }
 
         return sb.toString();
     }
 
     /**
-     * Returns a string of columns separated by commas that represent the parameter types of this method
-     * this is used to get into parameters like HashMap<Location, Boolean> at runtime and find out Location
-     * and Boolean.
-     * @param writeMethod
+     * Returns a string of columns separated by commas that represent the element types of this collection
+     * property, e.g., for HashMap<Location, Boolean> the columns are for Location and Boolean.
+     * @param property
      * @param usePlaceHolders
      *            true, if PreparedStatement-placeholders ('?') should be used
      *            instead of the names of the variables
      * @param createSchema if true contains the columns types
      * @return Returns a string of columns separated by commas.
      */
-    private String getCollectionColumnString(Method writeMethod, boolean usePlaceHolders, boolean createSchema) {
+    private String getCollectionColumnString(Property property, boolean usePlaceHolders, boolean createSchema) {
         StringBuilder sb = new StringBuilder();
-        List<String> cols = getCollentionColumnList(writeMethod, createSchema);
+        List<String> cols = getCollentionColumnList(property, createSchema);
         boolean first = true;
         for (String col : cols) {
             // Add commas
@@ -255,14 +270,14 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     }
 
     /**
-     * Returns a list of columns that represent the parameter types of this method
-     * @param method
+     * Returns a list of columns that represent the element types of this collection property
+     * @param property
      * @param createSchema if true contains the columns types
      * @return Returns a list of columns separated by commas.
      */
-    private List<String> getCollentionColumnList(Method method, boolean createSchema) {
+    private List<String> getCollentionColumnList(Property property, boolean createSchema) {
         List<String> columns = new ArrayList<>();
-        for (Entry<String,String> en : getCollectionColumnMap(method).entrySet()) {
+        for (Entry<String,String> en : getCollectionColumnMap(property).entrySet()) {
             String col = en.getKey();
             if (createSchema) {
                 col += " " + en.getValue();
@@ -277,34 +292,20 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
 
     /**
      * Returns a map of column names and their types
-     * @param method
+     * @param property
      * @return
      */
-    private Map<String,String> getCollectionColumnMap(Method method) {
+    private Map<String,String> getCollectionColumnMap(Property property) {
         Map<String,String> columns = new LinkedHashMap<>();
-        // Get the return type
-        // This uses a trick to extract what the arguments are of the writeMethod of the field.
-        // In this way, we can deduce what type needs to be written at runtime.
-        Type[] genericParameterTypes = method.getGenericParameterTypes();
-        // There could be more than one argument, so step through them
-        for (int i = 0; i < genericParameterTypes.length; i++) {
-            // If the argument is a parameter, then do something - this should always be true if the parameter is a collection
-            if (genericParameterTypes[i] instanceof ParameterizedType) {
-                // Get the actual type arguments of the parameter 
-                Type[] parameters = ((ParameterizedType)genericParameterTypes[i]).getActualTypeArguments();
-                //parameters[0] contains java.lang.String for method like "method(List<String> value)"
-                // Run through them one by one and create a SQL string
-                int index = 0;
-                for (Type type : parameters) {
-                    // This is a request for column names.
-                    String setMapping = mySQLmapping.get(type.getTypeName());
-                    columns.put("`" + type.getTypeName() + "_" + index + "`", setMapping != null ? setMapping : "VARCHAR(254)");
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: collection column = " + "`" + type.getTypeName() + "_" + index + "`" + setMapping);
-                }
-                // Increment the index so each column has a unique name
-                index++;
-            }
+        // The element types were found from the write method of the field when the schema was made
+        // Note that the index is the same for every column, so the type name is what keeps them apart
+        int index = 0;
+        for (Type type : property.getElementTypes()) {
+            // This is a request for column names.
+            String setMapping = mySQLmapping.get(type.getTypeName());
+            columns.put("`" + type.getTypeName() + "_" + index + "`", setMapping != null ? setMapping : "VARCHAR(254)");
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: collection column = " + "`" + type.getTypeName() + "_" + index + "`" + setMapping);
         }
         return columns;
     }
@@ -377,168 +378,200 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     SecurityException, IllegalArgumentException,
     InstantiationException, IllegalAccessException,
     IntrospectionException, InvocationTargetException, NoSuchMethodException {
+        saveObjects(Collections.singletonList(instance));
+    }
 
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+    /**
+     * Inserts the <T>s into the corresponding database-tables in one transaction.
+     * Rows for the main table and for each collection table are sent as JDBC batches. The connection
+     * rewrites each batch into multi-row statements, so a save takes a few round trips per table rather
+     * than one per row. A very large batch is still split to fit the server's max_allowed_packet.
+     * If anything fails, nothing is written.
+     *
+     * @param instances <T>s that should be inserted into the corresponding database-table. Must extend DataObject.
+     * @throws SQLException
+     * @throws InvocationTargetException
+     */
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#saveObjects(java.util.Collection)
+     */
+    @Override
+    public void saveObjects(Collection<T> instances) throws SQLException, InvocationTargetException {
+        if (instances.isEmpty()) {
+            return;
+        }
+        // The same object may only be in the batch once, otherwise its collection rows would be written twice
+        Map<String, T> byUniqueId = new LinkedHashMap<>();
+        for (T instance : instances) {
+            // Get the uniqueId. As each class extends DataObject, it must have this method in it.
+            String uniqueId = (String) schema.getUniqueId().get(instance);
+            if (uniqueId == null || uniqueId.isEmpty()) {
+                throw new SQLException("uniqueId is blank");
+            }
+            byUniqueId.put(uniqueId, instance);
+        }
         if (DEBUG)
-            plugin.getLogger().info("DEBUG: saveObject ");
+            plugin.getLogger().info("DEBUG: saveObjects " + byUniqueId.size());
+        PooledMySQLConnection connection = null;
         try {
-            // Try to connect to the database
-            connection = databaseConnecter.createConnection();
+            // Get a connection to the database from the pool
+            connection = pool.getConnection();
+            connection.getConnection().setAutoCommit(false);
             // insertQuery is created in super from the createInsertQuery() method
-            preparedStatement = connection.prepareStatement(insertQuery);
-            // Get the uniqueId. As each class extends DataObject, it must have this method in it.
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor("uniqueId", type);
-            Method getUniqueId = propertyDescriptor.getReadMethod();
-            final String uniqueId = (String) getUniqueId.invoke(instance);
-            if (DEBUG) {
-                plugin.getLogger().info("DEBUG: Unique Id = " + uniqueId);
+            PreparedStatement preparedStatement = connection.prepare(type.getCanonicalName(), Operation.INSERT, insertQuery);
+            // The collection tables are cleared for each uniqueId every time the data is stored, then refilled
+            Map<String, PreparedStatement> clearStatements = new LinkedHashMap<>();
+            Map<String, PreparedStatement> insertStatements = new LinkedHashMap<>();
+            for (Entry<String, CollectionTable> en : collectionTables.entrySet()) {
+                clearStatements.put(en.getKey(), connection.prepare(en.getValue().tableName, Operation.DELETE, en.getValue().clearSql));
+                insertStatements.put(en.getKey(), connection.prepare(en.getValue().tableName, Operation.INSERT, en.getValue().insertSql));
             }
-            if (uniqueId.isEmpty()) {
-                throw new SQLException("uniqueId is blank");
+            for (Entry<String, T> en : byUniqueId.entrySet()) {
+                addToBatch(en.getKey(), en.getValue(), preparedStatement, clearStatements, insertStatements);
             }
-            // Create the insertion
-            int i = 0;
-            if (DEBUG)
-                plugin.getLogger().info("DEBUG: insert Query " + insertQuery);
-            // Run through the fields in the class using introspection
-            for (Field field : type.getDeclaredFields()) {
-                // Get the field's property descriptor
-                propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-                // Get the read method for this field
-                Method method = propertyDescriptor.getReadMethod();
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: Field = " + field.getName() + "(" + propertyDescriptor.getPropertyType().getTypeName() + ")");
-                //sql += "`" + field.getName() + "` " + mapping + ",";
-                // Invoke the read method to obtain the value from the class - this is the value we need to store in the database
-                Object value = method.invoke(instance);
-                if (DEBUG)
-                    plugin.getLogger().info("DEBUG: value = " + value);
-                // Create set and map table inserts if this is a Collection
-                if (propertyDescriptor.getPropertyType().equals(Set.class) ||
-                        propertyDescriptor.getPropertyType().equals(Map.class) ||
-                        propertyDescriptor.getPropertyType().equals(HashMap.class) ||
-                        propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                    // Collection
-                    // The table is cleared for this uniqueId every time the data is stored
-                    String clearTableSql = "DELETE FROM  `" + type.getCanonicalName() + "." + field.getName() + "` WHERE uniqueId = ?";
-                    PreparedStatement collStatement = connection.prepareStatement(clearTableSql);
-                    collStatement.setString(1, uniqueId);
-                    collStatement.execute();
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: collStatement " + collStatement.toString());
-                    // Insert into the table
-                    String setSql = "INSERT INTO `" + type.getCanonicalName() + "." + field.getName() + "` (uniqueId, ";
-                    // Get the columns we are going to insert, just the names of them
-                    setSql += getCollectionColumnString(propertyDescriptor.getWriteMethod(), false, false) + ") ";
-                    // Get all the ?'s for the columns
-                    setSql += "VALUES ('" + uniqueId + "'," + getCollectionColumnString(propertyDescriptor.getWriteMethod(), true, false) + ")";
-                    // Prepare the statement
-                    collStatement = connection.prepareStatement(setSql);
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: collection insert =" + setSql);
-                    // Do single dimension types (set and list)
-                    if (propertyDescriptor.getPropertyType().equals(Set.class) ||
-                            propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                        //plugin.getLogger().info("DEBUG: set class for ");
-                        // Loop through the set or list
-                        // Note that we have no idea what type this is
-                        Collection<?> collection = (Collection<?>)value;
-                        Iterator<?> it = collection.iterator();
-                        while (it.hasNext()) {
-                            Object setValue = it.next();
-                            //if (setValue instanceof UUID) {
-                            // Serialize everything
-                            setValue = serialize(setValue, setValue.getClass());
-                            //}
-                            // Set the value from ? to whatever it is
-                            collStatement.setObject(1, setValue);
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: " + collStatement.toString());
-                            // Execute the SQL in the database
-                            collStatement.execute();
-                        }
-                    } else if (propertyDescriptor.getPropertyType().equals(Map.class) ||
-                            propertyDescriptor.getPropertyType().equals(HashMap.class)) {
-                        // Loop through the map
-                        Map<?,?> collection = (Map<?,?>)value;
-                        Iterator<?> it = collection.entrySet().iterator();
-                        while (it.hasNext()) {
-                            Entry<?,?> en = (Entry<?, ?>) it.next();
-                            // Get the key and serialize it
-                            Object key = serialize(en.getKey(), en.getKey().getClass());
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: key class = " + en.getKey().getClass().getTypeName());
-                            // Get the value and serialize it
-                            Object mapValue = serialize(en.getValue(), en.getValue().getClass());
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: mapValue = " + mapValue);
-                            // Write the objects into prepared statement
-                            collStatement.setObject(1, key);
-                            collStatement.setObject(2, mapValue);
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: " + collStatement.toString());
-                            // Write to database
-                            collStatement.execute();
-                        }
-                    }
-                    // Set value for the main insert. For collections, this is just a dummy value because the real values are in the
-                    // additional table.
-                    value = true;
-                } else {
-                    // If the value is not a collection, it just needs to be serialized to go into the database.
-                    value = serialize(value, propertyDescriptor.getPropertyType());
-                }
-                // Set the value in the main prepared statement and increment the location
-                // Note that with prepared statements, they count from 1, not 0, so the ++ goes on the front of i.
-                preparedStatement.setObject(++i, value);
+            // Execute. Old collection rows go first so they do not remove the new ones.
+            for (PreparedStatement collStatement : clearStatements.values()) {
+                collStatement.executeBatch();
+            }
+            for (PreparedStatement collStatement : insertStatements.values()) {
+                collStatement.executeBatch();
             }
-            // Add the statements to a batch
-            preparedStatement.addBatch();
-            // Execute
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: prepared statement = " + preparedStatement.toString());
             preparedStatement.executeBatch();
-
+            connection.getConnection().commit();
+        } catch (SQLException | InvocationTargetException | RuntimeException e) {
+            if (connection != null) {
+                // Do not leave half an object behind
+                try {
+                    connection.getConnection().rollback();
+                } catch (SQLException e1) {
+                    e1.printStackTrace();
+                }
+            }
+            throw e;
         } finally {
-            // Close properly
-            MySQLDatabaseResourceCloser.close(preparedStatement);
-            MySQLDatabaseResourceCloser.close(preparedStatement);
+            if (connection != null) {
+                try {
+                    connection.getConnection().setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            // Give the connection back to the pool. The statements are kept with it.
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Adds the rows for one object to the batches of the statements
+     * @param uniqueId
+     * @param instance
+     * @param preparedStatement - main table insert
+     * @param clearStatements - collection table deletes by field name
+     * @param insertStatements - collection table inserts by field name
+     * @throws SQLException
+     * @throws InvocationTargetException
+     */
+    private void addToBatch(String uniqueId, T instance, PreparedStatement preparedStatement,
+            Map<String, PreparedStatement> clearStatements, Map<String, PreparedStatement> insertStatements) throws SQLException, InvocationTargetException {
+        if (DEBUG) {
+            plugin.getLogger().info("DEBUG: Unique Id = " + uniqueId);
+            plugin.getLogger().info("DEBUG: insert Query " + insertQuery);
+        }
+        // Create the insertion
+        int i = 0;
+        // Run through the fields in the class
+        for (Property property : schema.getProperties()) {
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: Field = " + property.getName() + "(" + property.getPropertyType().getTypeName() + ")");
+            // Get the value from the class - this is the value we need to store in the database
+            Object value = property.get(instance);
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: value = " + value);
+            // Create set and map table inserts if this is a Collection
+            if (property.isCollection()) {
+                // Collection
+                PreparedStatement collStatement = clearStatements.get(property.getName());
+                collStatement.setString(1, uniqueId);
+                collStatement.addBatch();
+                // Insert into the table
+                collStatement = insertStatements.get(property.getName());
+                collStatement.setString(1, uniqueId);
+                // Do single dimension types (set and list)
+                if (value == null) {
+                    // Nothing to store
+                } else if (property.getKind() == Kind.SET || property.getKind() == Kind.LIST) {
+                    // Loop through the set or list
+                    // Note that we have no idea what type this is
+                    for (Object setValue : (Collection<?>)value) {
+                        // Serialize everything
+                        // Set the value from ? to whatever it is
+                        collStatement.setObject(2, serialize(setValue, property.getElementValueType(0)));
+                        collStatement.addBatch();
+                    }
+                } else {
+                    // Loop through the map
+                    for (Entry<?,?> en : ((Map<?,?>)value).entrySet()) {
+                        // Get the key and value and serialize them
+                        Object key = serialize(en.getKey(), property.getElementValueType(0));
+                        Object mapValue = serialize(en.getValue(), property.getElementValueType(1));
+                        if (DEBUG)
+                            plugin.getLogger().info("DEBUG: key = " + key + " mapValue = " + mapValue);
+                        // Write the objects into prepared statement
+                        collStatement.setObject(2, key);
+                        collStatement.setObject(3, mapValue);
+                        collStatement.addBatch();
+                    }
+                }
+                // Set value for the main insert. For collections, this is just a dummy value because the real values are in the
+                // additional table.
+                value = true;
+            } else {
+                // If the value is not a collection, it just needs to be serialized to go into the database.
+                value = serialize(value, property.getValueType());
+            }
+            // Set the value in the main prepared statement and increment the location
+            // Note that with prepared statements, they count from 1, not 0, so the ++ goes on the front of i.
+            preparedStatement.setObject(++i, value);
         }
+        // Add the statements to a batch
+        preparedStatement.addBatch();
     }
 
     /**
      * Serializes values if required to go into a database.
      * TODO: This method will need expanding to include additional Java types
      * @param value
-     * @param clazz - the known class of value
+     * @param valueType - how the known class of value is stored
      * @return the object to write to the database
      */
-    private Object serialize(Object value, Class<? extends Object> clazz) {
-        //plugin.getLogger().info("DEBUG: serialize - class is " + clazz.getTypeName());
+    private Object serialize(Object value, ValueType valueType) {
         if (value == null) {
             // If the value is null to start, return null as a string
             return "null";
         }
         // Types that need to be serialized
         // TODO - add others, like Date, Timestamp, etc.
-        if (clazz.equals(UUID.class)) {
+        switch (valueType) {
+        case UUID:
             value = value.toString();
+            break;
+        case LOCATION:
+            // Serialize
+            value = Util.getStringLocation(((Location)value));
+            break;
+        case WORLD:
+            // Serialize - get the name
+            value = ((World)value).getName();
+            break;
+        case ENUM:
+            //Custom enums are a child of the Enum class. Just get the names of each one.
+            value = ((Enum<?>)value).name();
+            break;
+        default:
+            break;
         }
-        else
-            // Bukkit Types
-            if (clazz.equals(Location.class)) {
-                // Serialize
-                value = Util.getStringLocation(((Location)value));
-            } else
-                if (clazz.equals(World.class)) {
-                    // Serialize - get the name
-                    value = ((World)value).getName();
-                } else
-                    if (clazz.getSuperclass() != null && clazz.getSuperclass().equals(Enum.class)) {
-                        //Custom enums are a child of the Enum class. Just get the names of each one.
-                        value = ((Enum<?>)value).name();
-                    }
         if (value == null) {
             // The value could become null from the above checks
             return "null";
@@ -549,7 +582,10 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
 
     /**
      * Creates a list of <T>s filled with values from the corresponding
-     * database-table
+     * database-table.
+     * The main table and every collection table are each read once in uniqueId order and merged
+     * together, so the number of queries does not grow with the number of rows. Rows are fetched
+     * in blocks of the configured fetch size.
      *
      * @return List of <T>s filled with values from the corresponding
      *         database-table
@@ -569,23 +605,39 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     InstantiationException, IllegalAccessException,
     IntrospectionException, InvocationTargetException, ClassNotFoundException {
 
-        Connection connection = null;
-        Statement statement = null;
+        PooledMySQLConnection connection = null;
         ResultSet resultSet = null;
+        Map<String, CollectionCursor> cursors = new HashMap<>();
 
         try {
-            connection = databaseConnecter.createConnection();
-            statement = connection.createStatement();
+            connection = pool.getConnection();
+            // BINARY so that the order is the same as a plain comparison of the IDs, whatever the collation
+            String query = selectQuery + " ORDER BY BINARY `uniqueId`";
             if (DEBUG)
-                plugin.getLogger().info("DEBUG: selectQuery = " + selectQuery);
-            resultSet = statement.executeQuery(selectQuery);
+                plugin.getLogger().info("DEBUG: selectQuery = " + query);
+            PreparedStatement preparedStatement = connection.prepare(type.getCanonicalName(), Operation.SELECT_ALL, query);
+            preparedStatement.setFetchSize(pool.getFetchSize());
+            resultSet = preparedStatement.executeQuery();
+            // Open every collection table alongside the main table
+            for (Property property : schema.getProperties()) {
+                if (property.isCollection()) {
+                    CollectionTable table = collectionTables.get(property.getName());
+                    PreparedStatement collStatement = connection.prepare(table.tableName, Operation.SELECT_ALL, table.selectAllSql);
+                    collStatement.setFetchSize(pool.getFetchSize());
+                    if (DEBUG)
+                        plugin.getLogger().info("DEBUG: collStatement = " + collStatement.toString());
+                    cursors.put(property.getName(), new CollectionCursor(property, collStatement.executeQuery()));
+                }
+            }
 
-            return createObjects(resultSet);
+            return createObjects(connection, resultSet, cursors);
 
         } finally {
+            for (CollectionCursor cursor : cursors.values()) {
+                MySQLDatabaseResourceCloser.close(cursor.resultSet);
+            }
             MySQLDatabaseResourceCloser.close(resultSet);
-            MySQLDatabaseResourceCloser.close(statement);
-            MySQLDatabaseResourceCloser.close(connection);
+            pool.release(connection);
         }
     }
 
@@ -596,21 +648,20 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     public T loadObject(String uniqueId) throws InstantiationException,
     IllegalAccessException, IllegalArgumentException,
     InvocationTargetException, IntrospectionException, SQLException, SecurityException, ClassNotFoundException {
-        Connection connection = null;
-        Statement statement = null;
+        PooledMySQLConnection connection = null;
         ResultSet resultSet = null;
         if (DEBUG)
             plugin.getLogger().info("DEBUG: loading object for " + uniqueId);
         try {
-            connection = databaseConnecter.createConnection();
-            String query = "SELECT " + getColumns(false) + " FROM `" + type.getCanonicalName() + "` WHERE uniqueId = ? LIMIT 1";
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
+            connection = pool.getConnection();
+            String query = selectQuery + " WHERE uniqueId = ? LIMIT 1";
+            PreparedStatement preparedStatement = connection.prepare(type.getCanonicalName(), Operation.SELECT, query);
             preparedStatement.setString(1, uniqueId);
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: load Object query = " + preparedStatement.toString());
             resultSet = preparedStatement.executeQuery();
 
-            List<T> result = createObjects(resultSet);
+            List<T> result = createObjects(connection, resultSet, null);
             if (!result.isEmpty()) {
                 return result.get(0);
             }
@@ -618,8 +669,135 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
 
         } finally {
             MySQLDatabaseResourceCloser.close(resultSet);
-            MySQLDatabaseResourceCloser.close(statement);
-            MySQLDatabaseResourceCloser.close(connection);
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Reads one collection table in uniqueId order, in step with the main table
+     */
+    private class CollectionCursor {
+        private final Property property;
+        private final ResultSet resultSet;
+        private boolean hasRow;
+
+        private CollectionCursor(Property property, ResultSet resultSet) throws SQLException {
+            this.property = property;
+            this.resultSet = resultSet;
+            this.hasRow = resultSet.next();
+        }
+
+        /**
+         * Reads the rows for this uniqueId. The uniqueIds asked for must be in ascending order.
+         * Rows for uniqueIds that are not in the main table are skipped.
+         * @param uniqueId
+         * @return the collection
+         * @throws SQLException
+         */
+        private Object read(String uniqueId) throws SQLException {
+            Object collection = newCollection(property);
+            while (hasRow) {
+                int compare = compareIds(resultSet.getString(1), uniqueId);
+                if (compare > 0) {
+                    // Belongs to a later object
+                    break;
+                }
+                if (compare == 0) {
+                    addRow(property, collection, resultSet, 2);
+                }
+                hasRow = resultSet.next();
+            }
+            return collection;
+        }
+    }
+
+    /**
+     * Compares two IDs by code point, which is the same order as MySQL sorts them in with BINARY
+     * @param a
+     * @param b
+     * @return negative, zero or positive as a is before, the same as or after b
+     */
+    private static int compareIds(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * @param property
+     * @return an empty collection of the right kind for this property
+     */
+    private static Object newCollection(Property property) {
+        switch (property.getKind()) {
+        case SET:
+            return new HashSet<Object>();
+        case LIST:
+            return new ArrayList<Object>();
+        default:
+            return new HashMap<Object, Object>();
+        }
+    }
+
+    /**
+     * Adds the row of a collection table to the collection
+     * @param property
+     * @param collection - made by {@link #newCollection(Property)}
+     * @param resultSet - positioned on the row
+     * @param firstColumn - the column the element, or the map key, is in
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    private void addRow(Property property, Object collection, ResultSet resultSet, int firstColumn) throws SQLException {
+        // Do single dimension types (set and list)
+        if (property.getKind() == Kind.SET) {
+            ((Set<Object>) collection).add(deserialize(resultSet.getObject(firstColumn), property.getElementClass(0), property.getElementValueType(0)));
+        } else if (property.getKind() == Kind.LIST) {
+            ((List<Object>) collection).add(deserialize(resultSet.getObject(firstColumn), property.getElementClass(0), property.getElementValueType(0)));
+        } else {
+            // Key
+            Object key = deserialize(resultSet.getObject(firstColumn), property.getElementClass(0), property.getElementValueType(0));
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: key = " + key);
+            Object mapValue = deserialize(resultSet.getObject(firstColumn + 1), property.getElementClass(1), property.getElementValueType(1));
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: value = " + mapValue);
+            ((Map<Object,Object>) collection).put(key, mapValue);
+        }
+    }
+
+    /**
+     * Reads the collection for one uniqueId with its own query
+     * @param connection
+     * @param property
+     * @param uniqueId
+     * @return the collection
+     * @throws SQLException
+     */
+    private Object readCollection(PooledMySQLConnection connection, Property property, String uniqueId) throws SQLException {
+        CollectionTable table = collectionTables.get(property.getName());
+        PreparedStatement collStatement = connection.prepare(table.tableName, Operation.SELECT, table.selectSql);
+        // Set the unique ID
+        collStatement.setObject(1, uniqueId);
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: collStatement = " + collStatement.toString());
+        ResultSet collectionResultSet = collStatement.executeQuery();
+        try {
+            Object collection = newCollection(property);
+            while (collectionResultSet.next()) {
+                addRow(property, collection, collectionResultSet, 1);
+            }
+            return collection;
+        } finally {
+            MySQLDatabaseResourceCloser.close(collectionResultSet);
         }
     }
 
@@ -627,9 +805,14 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
      *
      * Creates a list of <T>s filled with values from the provided ResultSet
      *
+     * @param connection
+     *            the connection the ResultSet came from, used to read the collection tables
      * @param resultSet
      *            ResultSet that contains the result of the
      *            database-select-query
+     * @param cursors
+     *            collection tables being read alongside a main table that is in uniqueId order,
+     *            by field name. If null, the collections are queried for each row.
      *
      * @return List of <T>s filled with values from the provided ResultSet
      *
@@ -642,8 +825,7 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
      * @throws InvocationTargetException
      * @throws ClassNotFoundException
      */
-    @SuppressWarnings("unchecked")
-    private List<T> createObjects(ResultSet resultSet)
+    private List<T> createObjects(PooledMySQLConnection connection, ResultSet resultSet, Map<String, CollectionCursor> cursors)
             throws SecurityException, IllegalArgumentException,
             SQLException, InstantiationException,
             IllegalAccessException, IntrospectionException,
@@ -654,115 +836,32 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
         // Run through them one by one
         while (resultSet.next()) {
             // Create a new instance of this type
-            T instance = type.newInstance();
+            T instance = schema.newInstance();
             // Get the unique ID from the results
             String uniqueId = resultSet.getString("uniqueId");
             if (uniqueId == null) {
                 throw new SQLException("No unique ID in the results!");
             }
-            // Use introspection to run through all the fields in this type class
-            for (Field field : type.getDeclaredFields()) {
+            // Run through all the fields in this type class
+            for (Property property : schema.getProperties()) {
                 /* We assume the table-column-names exactly match the variable-names of T */
-                Object value = resultSet.getObject(field.getName());
-                // Get the property descriptor of this type
-                PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-                // Get the write method for this field, because we are going to use it to write the value
-                // once we get the value from the database
-                Method method = propertyDescriptor.getWriteMethod();
+                Object value;
                 // If the type is a Collection, then we need to deal with set and map tables 
-                if (propertyDescriptor.getPropertyType().equals(Set.class) ||
-                        propertyDescriptor.getPropertyType().equals(Map.class) ||
-                        propertyDescriptor.getPropertyType().equals(HashMap.class) ||
-                        propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                    // Collection
-                    //plugin.getLogger().info("DEBUG: Collection");
-                    // TODO Get the values from the subsidiary tables.
-                    // value is just of type boolean right now
-                    String setSql = "SELECT ";
-                    // Get the columns, just the names of them, no ?'s or types
-                    setSql += getCollectionColumnString(method, false, false) + " ";
-                    setSql += "FROM `" + type.getCanonicalName() + "." + field.getName() + "` ";
-                    // We will need to fill in the ? later with the unique id of the class from the database
-                    setSql += "WHERE uniqueId = ?";
-                    // Prepare the statement
-                    PreparedStatement collStatement = connection.prepareStatement(setSql);
-                    // Set the unique ID
-                    collStatement.setObject(1, uniqueId);
+                if (property.isCollection()) {
                     if (DEBUG)
-                        plugin.getLogger().info("DEBUG: collStatement = " + collStatement.toString());
-                    ResultSet collectionResultSet = collStatement.executeQuery();
-                    //plugin.getLogger().info("DEBUG: collectionResultSet = " + collectionResultSet.toString());
-                    // Do single dimension types (set and list)
-                    if (propertyDescriptor.getPropertyType().equals(Set.class)) {
-                        if (DEBUG)
-                            plugin.getLogger().info("DEBUG: adding a set");
-                        // Loop through the collection resultset 
-                        // Note that we have no idea what type this is
-                        List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                        // collectionTypes should be only 1 long
-                        Type setType = collectionTypes.get(0);
-                        value = new HashSet<Object>();
-                        if (DEBUG) {
-                            plugin.getLogger().info("DEBUG: collection type argument = " + collectionTypes);
-                            plugin.getLogger().info("DEBUG: setType = " + setType.getTypeName());
-                        }
-                        while (collectionResultSet.next()) {
-                            ((Set<Object>) value).add(deserialize(collectionResultSet.getObject(1),Class.forName(setType.getTypeName())));
-                        }
-                    } else if (propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                        if (DEBUG)
-                            plugin.getLogger().info("DEBUG: Adding a list ");
-                        // Loop through the collection resultset 
-                        // Note that we have no idea what type this is
-                        List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                        // collectionTypes should be only 1 long
-                        Type setType = collectionTypes.get(0);
-                        value = new ArrayList<Object>();
-                        //plugin.getLogger().info("DEBUG: collection type argument = " + collectionTypes);
-                        while (collectionResultSet.next()) {
-                            //plugin.getLogger().info("DEBUG: adding to the list");
-                            //plugin.getLogger().info("DEBUG: collectionResultSet size = " + collectionResultSet.getFetchSize());
-                            ((List<Object>) value).add(deserialize(collectionResultSet.getObject(1),Class.forName(setType.getTypeName())));
-                        }
-                    } else if (propertyDescriptor.getPropertyType().equals(Map.class) ||
-                            propertyDescriptor.getPropertyType().equals(HashMap.class)) {
-                        if (DEBUG)
-                            plugin.getLogger().info("DEBUG: Adding a map ");
-                        // Loop through the collection resultset 
-                        // Note that we have no idea what type this is
-                        List<Type> collectionTypes = Util.getCollectionParameterTypes(method);
-                        // collectionTypes should be 2 long
-                        Type keyType = collectionTypes.get(0);
-                        Type valueType = collectionTypes.get(1);
-                        value = new HashMap<Object, Object>();
-                        if (DEBUG)
-                            plugin.getLogger().info("DEBUG: collection type argument = " + collectionTypes);
-                        while (collectionResultSet.next()) {
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: adding to the map");
-                            //plugin.getLogger().info("DEBUG: collectionResultSet size = " + collectionResultSet.getFetchSize());
-                            // Work through the columns
-                            // Key
-                            Object key = deserialize(collectionResultSet.getObject(1),Class.forName(keyType.getTypeName()));
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: key = " + key);
-                            Object mapValue = deserialize(collectionResultSet.getObject(2),Class.forName(valueType.getTypeName()));
-                            if (DEBUG)
-                                plugin.getLogger().info("DEBUG: value = " + mapValue);
-                            ((Map<Object,Object>) value).put(key,mapValue);
-                        }
+                        plugin.getLogger().info("DEBUG: adding a " + property.getKind().name().toLowerCase() + " for " + property.getName());
+                    if (cursors != null) {
+                        value = cursors.get(property.getName()).read(uniqueId);
                     } else {
-                        // Set value for the main insert. For collections, this is just a dummy value because the real values are in the
-                        // additional table.
-                        value = true;
+                        value = readCollection(connection, property, uniqueId);
                     }
                 } else {
                     if (DEBUG)
                         plugin.getLogger().info("DEBUG: regular type");
-                    value = deserialize(value, propertyDescriptor.getPropertyType());
+                    value = deserialize(resultSet.getObject(property.getName()), property.getPropertyType(), property.getValueType());
                 }
                 if (DEBUG) {
-                    plugin.getLogger().info("DEBUG: invoking method " + method.getName());
+                    plugin.getLogger().info("DEBUG: setting " + property.getName());
                     if (value == null) {
                         plugin.getLogger().info("DEBUG: value = null");
                     } else {
@@ -770,7 +869,7 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
                     }
                 }
                 // Write the value to the class
-                method.invoke(instance, value);
+                property.set(instance, value);
             }
             // Write the result into the list we are going to return
             list.add(instance);
@@ -783,10 +882,11 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
      * TODO: expand to include additional types
      * @param value
      * @param clazz
+     * @param valueType - how clazz is stored, from the schema
      * @return the deserialized value
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private Object deserialize(Object value, Class<? extends Object> clazz) {
+    private Object deserialize(Object value, Class<? extends Object> clazz, ValueType valueType) {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: deserialize - class is " + clazz.getTypeName());
         if (value instanceof String && value.equals("null")) {
@@ -794,20 +894,16 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             return null;
         }
         // Types that need to be deserialized
-        if (clazz.equals(UUID.class)) {
-            value = UUID.fromString((String)value);
-        }
-        // Bukkit Types
-        if (clazz.equals(Location.class)) {
+        switch (valueType) {
+        case UUID:
+            return UUID.fromString((String)value);
+        case LOCATION:
             // Get Location from String - may be null...
-            value = Util.getLocationString(((String)value));
-        }
-        if (clazz.equals(World.class)) {
+            return Util.getLocationString(((String)value));
+        case WORLD:
             // Get world by name - may be null...
-            value = plugin.getServer().getWorld((String)value);
-        }
-        // Enums
-        if (clazz.getSuperclass() != null && clazz.getSuperclass().equals(Enum.class)) {
+            return plugin.getServer().getWorld((String)value);
+        case ENUM:
             //Custom enums are a child of the Enum class.
             // Find out the value
             try {
@@ -818,8 +914,10 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
                 // TODO return something?
                 e.printStackTrace();
             }
+            return value;
+        default:
+            return value;
         }
-        return value;
     }
 
     /* (non-Javadoc)
@@ -830,15 +928,13 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             throws IllegalAccessException, IllegalArgumentException,
             InvocationTargetException, IntrospectionException, SQLException, NoSuchMethodException, SecurityException {
         // Delete this object from all tables
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        PooledMySQLConnection connection = null;
 
         try {
-            // Try to connect to the database
-            connection = databaseConnecter.createConnection();
+            // Get a connection to the database from the pool
+            connection = pool.getConnection();
             // Get the uniqueId. As each class extends DataObject, it must have this method in it.
-            Method getUniqueId = type.getMethod("getUniqueId");
-            String uniqueId = (String) getUniqueId.invoke(instance);
+            String uniqueId = (String) schema.getUniqueId().get(instance);
             //plugin.getLogger().info("DEBUG: Unique Id = " + uniqueId);
             if (uniqueId.isEmpty()) {
                 throw new SQLException("uniqueId is blank");
@@ -846,7 +942,7 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             // Delete from the main table
             // First substitution is the table name
             // deleteQuery is created in super from the createInsertQuery() method
-            preparedStatement = connection.prepareStatement(deleteQuery.replace("[table_name]", "`" + type.getCanonicalName() + "`"));
+            PreparedStatement preparedStatement = connection.prepare(type.getCanonicalName(), Operation.DELETE, deleteQuery.replace("[table_name]", "`" + type.getCanonicalName() + "`"));
             // Second is the unique ID
             preparedStatement.setString(1, uniqueId);
             preparedStatement.addBatch();
@@ -854,29 +950,19 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
                 plugin.getLogger().info("DEBUG: DELETE Query " + preparedStatement.toString());
             preparedStatement.executeBatch();
             // Delete from any sub tables created from the object
-            // Run through the fields in the class using introspection
-            for (Field field : type.getDeclaredFields()) {
-                // Get the field's property descriptor
-                PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), type);
-                // Delete Collection tables
-                if (propertyDescriptor.getPropertyType().equals(Set.class) ||
-                        propertyDescriptor.getPropertyType().equals(Map.class) ||
-                        propertyDescriptor.getPropertyType().equals(HashMap.class) ||
-                        propertyDescriptor.getPropertyType().equals(ArrayList.class)) {
-                    // First substitution is the table name
-                    preparedStatement = connection.prepareStatement(deleteQuery.replace("[table_name]", "`" + type.getCanonicalName() + "." + field.getName() + "`"));
-                    // Second is the unique ID
-                    preparedStatement.setString(1, uniqueId);
-                    preparedStatement.addBatch();
-                    // Execute
-                    if (DEBUG)
-                        plugin.getLogger().info("DEBUG: " + preparedStatement.toString());
-                    preparedStatement.executeBatch();
-                }
+            for (CollectionTable table : collectionTables.values()) {
+                // First substitution is the table name
+                preparedStatement = connection.prepare(table.tableName, Operation.DELETE, deleteQuery.replace("[table_name]", table.tableName));
+                // Second is the unique ID
+                preparedStatement.setString(1, uniqueId);
+                preparedStatement.addBatch();
+                // Execute
+                if (DEBUG)
+                    plugin.getLogger().info("DEBUG: " + preparedStatement.toString());
+                preparedStatement.executeBatch();
             }
         } finally {
-            // Close properly
-            MySQLDatabaseResourceCloser.close(preparedStatement);
+            pool.release(connection);
         }
 
     }
@@ -888,14 +974,13 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
     public boolean objectExits(String key) {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: checking if " + key + " exists in the database");
-        Connection connection = null;
-        PreparedStatement preparedStatement = null;
+        PooledMySQLConnection connection = null;
         ResultSet resultSet = null;
         String query = "SELECT  IF ( EXISTS( SELECT * FROM `" + type.getCanonicalName() + "` WHERE `uniqueId` = ?), 1, 0)";
         //String query = "SELECT * FROM `" + type.getCanonicalName() + "` WHERE uniqueId = ?";
         try {
-            connection = databaseConnecter.createConnection();
-            preparedStatement = connection.prepareStatement(query);
+            connection = pool.getConnection();
+            PreparedStatement preparedStatement = connection.prepare(type.getCanonicalName(), Operation.EXISTS, query);
             preparedStatement.setString(1, key);
             resultSet = preparedStatement.executeQuery();
             if (DEBUG)
@@ -909,10 +994,17 @@ public class MySQLDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
             e.printStackTrace();
         } finally {
             MySQLDatabaseResourceCloser.close(resultSet);
-            MySQLDatabaseResourceCloser.close(preparedStatement);
-            MySQLDatabaseResourceCloser.close(connection);
+            pool.release(connection);
         }
         return false;
     }
 
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#close()
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
 }
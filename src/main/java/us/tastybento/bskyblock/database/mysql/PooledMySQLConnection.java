@@ -0,0 +1,106 @@
+package us.tastybento.bskyblock.database.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A connection borrowed from the {@link MySQLDatabaseConnecter} pool.
+ * Prepared statements made through {@link #prepare(String, Operation, String)} are kept with the
+ * connection and reused by anyone who borrows it later, so they must not be closed by the caller.
+ * Only one thread uses a borrowed connection at a time.
+ */
+public class PooledMySQLConnection {
+
+    /**
+     * What a prepared statement does to its table
+     */
+    public enum Operation {
+        /**
+         * Create the table
+         */
+        CREATE,
+        /**
+         * Select all the rows
+         */
+        SELECT_ALL,
+        /**
+         * Select the rows for one uniqueId
+         */
+        SELECT,
+        /**
+         * Insert or replace a row
+         */
+        INSERT,
+        /**
+         * Delete the rows for one uniqueId
+         */
+        DELETE,
+        /**
+         * Check if a uniqueId exists
+         */
+        EXISTS
+    }
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private long lastUsed;
+
+    PooledMySQLConnection(Connection connection) {
+        this.connection = connection;
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the JDBC connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the prepared statement for this table and operation, preparing it the first time it is asked for.
+     * Parameters and batches left from the last use are cleared.
+     * @param table - table name
+     * @param operation - what the statement does
+     * @param sql - the SQL to prepare if the statement is not cached yet
+     * @return prepared statement
+     * @throws SQLException
+     */
+    public PreparedStatement prepare(String table, Operation operation, String sql) throws SQLException {
+        String key = table + ":" + operation.name();
+        PreparedStatement statement = statements.get(key);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(key, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    /**
+     * @return milliseconds since this connection was last returned to the pool
+     */
+    long getIdleTime() {
+        return System.currentTimeMillis() - lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Closes the cached statements and the connection
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            MySQLDatabaseResourceCloser.close(statement);
+        }
+        statements.clear();
+        MySQLDatabaseResourceCloser.close(connection);
+    }
+}
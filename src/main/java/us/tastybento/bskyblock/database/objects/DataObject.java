@@ -6,7 +6,13 @@ package us.tastybento.bskyblock.database.objects;
  *
  */
 public abstract class DataObject {
-	
+
+    /**
+     * True if this object has changed since it was last loaded or saved.
+     * Fields in this class are not stored in the database.
+     */
+    private volatile boolean dirty = true;
+
     /**
      * @return the uniqueId
      */
@@ -16,5 +22,20 @@ public abstract class DataObject {
      * @param uniqueId the uniqueId to set
      */
     public abstract void setUniqueId(String uniqueId);
-    
+
+    /**
+     * @return true if this object has changed since it was last loaded or saved
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks this object as needing to be saved, or not
+     * @param dirty
+     */
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
 }
@@ -1,9 +1,13 @@
 package us.tastybento.bskyblock.database.objects;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -13,9 +17,11 @@ import org.bukkit.World;
 import org.bukkit.block.BlockState;
 import org.bukkit.entity.Entity;
 
+import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.api.events.island.IslandEvent;
 import us.tastybento.bskyblock.api.events.island.IslandEvent.Reason;
 import us.tastybento.bskyblock.config.Settings;
+import us.tastybento.bskyblock.database.managers.island.BanIndex;
 import us.tastybento.bskyblock.util.Util;
 
 /**
@@ -28,6 +34,19 @@ import us.tastybento.bskyblock.util.Util;
  */
 public class Island extends DataObject {
 
+    // Counts changes to anything that decides who may be where, e.g., bounds, owner, members, bans or lock.
+    // Cached protection checks compare it to know when to look again.
+    private static final AtomicInteger protectionVersion = new AtomicInteger();
+
+    // Number of longs needed for one bit per flag
+    private static final int FLAG_WORDS = (SettingsFlag.values().length + 63) >>> 6;
+    // Values of flags that have not been set
+    private static final long[] DEFAULT_FLAGS = new long[FLAG_WORDS];
+    static {
+        DEFAULT_FLAGS[SettingsFlag.ANIMAL_SPAWN.ordinal() >>> 6] |= 1L << SettingsFlag.ANIMAL_SPAWN.ordinal();
+        DEFAULT_FLAGS[SettingsFlag.MONSTER_SPAWN.ordinal() >>> 6] |= 1L << SettingsFlag.MONSTER_SPAWN.ordinal();
+    }
+
     private String uniqueId = "";
 
     @Override
@@ -41,6 +60,7 @@ public class Island extends DataObject {
 
     @Override
     public void setUniqueId(String uniqueId) {
+        setDirty(true);
         this.uniqueId = uniqueId;
     }
 
@@ -305,7 +325,10 @@ public class Island extends DataObject {
     private boolean spawn = false;
     private boolean purgeProtected = false;
     //// Protection ////
-    private HashMap<SettingsFlag, Boolean> flags = new HashMap<>();
+    // Flag bits by SettingsFlag ordinal. The first FLAG_WORDS longs are the values and the rest mark which
+    // flags have been set. Flags that are not set have their default value.
+    // Stored by name, see getFlags() and setFlags().
+    private long[] flags = new long[FLAG_WORDS * 2];
 
     private int levelHandicap;
 
@@ -328,13 +351,32 @@ public class Island extends DataObject {
         this.minProtectedZ = center.getBlockZ() - protectionRange;
     }
 
+    /**
+     * @return a number that changes whenever the protection of any island changes
+     */
+    public static int getProtectionVersion() {
+        return protectionVersion.get();
+    }
+
+    /**
+     * Tells cached protection checks that they must look again
+     */
+    public static void protectionChanged() {
+        protectionVersion.incrementAndGet();
+    }
+
     /**
      * Adds a team member. If player is on banned list, they will be removed from it.
      * @param playerUUID
      */
     public void addMember(UUID playerUUID) {
+        setDirty(true);
+        protectionChanged();
         members.add(playerUUID);
-        banned.remove(playerUUID);
+        if (banned.remove(playerUUID)) {
+            BanIndex banIndex = getBanIndex();
+            if (banIndex != null) banIndex.unban(getUniqueId(), playerUUID);
+        }
     }
 
     /**
@@ -344,6 +386,8 @@ public class Island extends DataObject {
      * @return
      */
     public boolean addToBanList(UUID targetUUID) {
+        setDirty(true);
+        protectionChanged();
         // TODO fire ban event
         if (members.contains(targetUUID)) {
             members.remove(targetUUID);
@@ -355,14 +399,16 @@ public class Island extends DataObject {
             trustees.remove(targetUUID);
         }
         banned.add(targetUUID);
+        BanIndex banIndex = getBanIndex();
+        if (banIndex != null) banIndex.ban(getUniqueId(), targetUUID);
         return true;
     }
 
     /**
-     * @return the banned
+     * @return the banned, which cannot be changed. Use the ban methods so that the ban index is kept up to date.
      */
     public Set<UUID> getBanned() {
-        return banned;
+        return Collections.unmodifiableSet(banned);
     }
 
     /**
@@ -389,26 +435,29 @@ public class Island extends DataObject {
     /**
      * Get the Island Guard flag status
      * @param flag
-     * @return true or false, or false if flag is not in the list
+     * @return true or false. If the flag has not been set, true for animal and monster spawning, otherwise false
      */
     public boolean getFlag(SettingsFlag flag){
-        if(flags.containsKey(flag)) {
-            return flags.get(flag);
-        } else {
-            if (flag.equals(SettingsFlag.ANIMAL_SPAWN) || flag.equals(SettingsFlag.MONSTER_SPAWN)) {
-                flags.put(flag, true);
-                return true;
-            }
-            flags.put(flag, false);
-            return false;
-        }
+        int word = flag.ordinal() >>> 6;
+        long bit = 1L << flag.ordinal();
+        long[] flags = this.flags;
+        long value = (flags[FLAG_WORDS + word] & bit) != 0 ? flags[word] : DEFAULT_FLAGS[word];
+        return (value & bit) != 0;
     }
 
     /**
-     * @return the flags
+     * @return the flags that have been set, by name. Changing the map does not change the island.
      */
     public HashMap<SettingsFlag, Boolean> getFlags() {
-        return flags;
+        HashMap<SettingsFlag, Boolean> result = new HashMap<>();
+        long[] flags = this.flags;
+        for (SettingsFlag flag : SettingsFlag.values()) {
+            long bit = 1L << flag.ordinal();
+            if ((flags[FLAG_WORDS + (flag.ordinal() >>> 6)] & bit) != 0) {
+                result.put(flag, (flags[flag.ordinal() >>> 6] & bit) != 0);
+            }
+        }
+        return result;
     }
 
     /**
@@ -591,8 +640,12 @@ public class Island extends DataObject {
      * @return true if successful, otherwise false.
      */
     public boolean removeFromBanList(UUID targetUUID) {
+        setDirty(true);
+        protectionChanged();
         // TODO fire unban event
         banned.remove(targetUUID);
+        BanIndex banIndex = getBanIndex();
+        if (banIndex != null) banIndex.unban(getUniqueId(), targetUUID);
         return true;
     }
 
@@ -600,13 +653,22 @@ public class Island extends DataObject {
      * @param banned the banned to set
      */
     public void setBanned(Set<UUID> banned) {
-        this.banned = banned;
+        setDirty(true);
+        protectionChanged();
+        this.banned = banned == null ? new HashSet<>() : new HashSet<>(banned);
+        BanIndex banIndex = getBanIndex();
+        if (banIndex != null && getUniqueId() != null) {
+            banIndex.removeIsland(getUniqueId());
+            banIndex.addIsland(this);
+        }
     }
 
     /**
      * @param center the center to set
      */
     public void setCenter(Location center) {
+        setDirty(true);
+        protectionChanged();
         this.center = center;
     }
 
@@ -614,6 +676,7 @@ public class Island extends DataObject {
      * @param coops - the coops to set
      */
     public void setCoops(Set<UUID> coops){
+        setDirty(true);
         this.coops = coops;
     }
 
@@ -621,6 +684,7 @@ public class Island extends DataObject {
      * @param createdDate - the createdDate to sets
      */
     public void setCreatedDate(long createdDate){
+        setDirty(true);
         this.createdDate = createdDate;
     }
 
@@ -630,20 +694,47 @@ public class Island extends DataObject {
      * @param value
      */
     public void setFlag(SettingsFlag flag, boolean value){
-        flags.put(flag, value);
+        setDirty(true);
+        int word = flag.ordinal() >>> 6;
+        long bit = 1L << flag.ordinal();
+        if (value) {
+            flags[word] |= bit;
+        } else {
+            flags[word] &= ~bit;
+        }
+        flags[FLAG_WORDS + word] |= bit;
     }
 
     /**
+     * Replaces all the flags. Flags not in the map go back to their default.
      * @param flags the flags to set
      */
     public void setFlags(HashMap<SettingsFlag, Boolean> flags) {
-        this.flags = flags;
+        setDirty(true);
+        long[] bits = new long[FLAG_WORDS * 2];
+        if (flags != null) {
+            for (Entry<SettingsFlag, Boolean> en : flags.entrySet()) {
+                if (en.getKey() == null || en.getValue() == null) {
+                    continue;
+                }
+                int word = en.getKey().ordinal() >>> 6;
+                long bit = 1L << en.getKey().ordinal();
+                if (en.getValue()) {
+                    bits[word] |= bit;
+                }
+                bits[FLAG_WORDS + word] |= bit;
+            }
+        }
+        this.flags = bits;
     }
 
     /**
      * Resets the flags to their default as set in config.yml for this island
      */
     public void setFlagsDefaults(){
+        setDirty(true);
+        // Until there are defaults in config.yml, unset all flags so they take the built in defaults
+        Arrays.fill(flags, 0L);
         /*for(SettingsFlag flag : SettingsFlag.values()){
             this.flags.put(flag, Settings.defaultIslandSettings.get(flag));
         }*/ //TODO default flags
@@ -655,6 +746,14 @@ public class Island extends DataObject {
      * @param locked - the lock state to set
      */
     public void setLocked(boolean locked){
+        setDirty(true);
+        protectionChanged();
+        if (!Bukkit.isPrimaryThread()) {
+            // Islands are loaded from the database off the main thread. That is not a lock change and
+            // events can only be called on the main thread.
+            this.locked = locked;
+            return;
+        }
         if(locked){
             // Lock the island
             IslandEvent event = IslandEvent.builder().island(this).reason(Reason.LOCK).build();
@@ -678,6 +777,8 @@ public class Island extends DataObject {
      * @param members - the members to set
      */
     public void setMembers(Set<UUID> members){
+        setDirty(true);
+        protectionChanged();
         //Bukkit.getLogger().info("DEBUG: members size = " + members.size());
         this.members = members;
     }
@@ -686,6 +787,8 @@ public class Island extends DataObject {
      * @param minProtectedX the minProtectedX to set
      */
     public void setMinProtectedX(int minProtectedX) {
+        setDirty(true);
+        protectionChanged();
         this.minProtectedX = minProtectedX;
     }
 
@@ -693,6 +796,8 @@ public class Island extends DataObject {
      * @param minProtectedZ the minProtectedZ to set
      */
     public void setMinProtectedZ(int minProtectedZ) {
+        setDirty(true);
+        protectionChanged();
         this.minProtectedZ = minProtectedZ;
     }
 
@@ -700,6 +805,8 @@ public class Island extends DataObject {
      * @param minX the minX to set
      */
     public void setMinX(int minX) {
+        setDirty(true);
+        protectionChanged();
         this.minX = minX;
     }
 
@@ -707,6 +814,8 @@ public class Island extends DataObject {
      * @param minZ the minZ to set
      */
     public void setMinZ(int minZ) {
+        setDirty(true);
+        protectionChanged();
         this.minZ = minZ;
     }
 
@@ -715,6 +824,7 @@ public class Island extends DataObject {
      *               Set to null to remove the display name
      */
     public void setName(String name){
+        setDirty(true);
         this.name = name;
     }
 
@@ -723,14 +833,29 @@ public class Island extends DataObject {
      * @param owner - the owner/team leader to set
      */
     public void setOwner(UUID owner){
+        setDirty(true);
+        protectionChanged();
         this.owner = owner;
-        this.banned.remove(owner);
+        if (this.banned.remove(owner)) {
+            BanIndex banIndex = getBanIndex();
+            if (banIndex != null) banIndex.unban(getUniqueId(), owner);
+        }
+    }
+
+    /**
+     * @return the ban index, or null if the islands have not been set up yet
+     */
+    private static BanIndex getBanIndex() {
+        BSkyBlock plugin = BSkyBlock.getPlugin();
+        return plugin == null || plugin.getIslands() == null ? null : plugin.getIslands().getBanIndex();
     }
 
     /**
      * @param protectionRange the protectionRange to set
      */
     public void setProtectionRange(int protectionRange) {
+        setDirty(true);
+        protectionChanged();
         this.protectionRange = protectionRange;
     }
 
@@ -738,6 +863,7 @@ public class Island extends DataObject {
      * @param purgeProtected - if the island is protected from the Purge
      */
     public void setPurgeProtected(boolean purgeProtected){
+        setDirty(true);
         this.purgeProtected = purgeProtected;
     }
 
@@ -745,6 +871,8 @@ public class Island extends DataObject {
      * @param range - the range to set
      */
     public void setRange(int range){
+        setDirty(true);
+        protectionChanged();
         this.range = range;
     }
 
@@ -752,6 +880,8 @@ public class Island extends DataObject {
      * @param isSpawn - if the island is the spawn
      */
     public void setSpawn(boolean isSpawn){
+        setDirty(true);
+        protectionChanged();
         this.spawn = isSpawn;
     }
 
@@ -759,6 +889,9 @@ public class Island extends DataObject {
      * Resets the flags to their default as set in config.yml for the spawn
      */
     public void setSpawnFlagsDefaults(){
+        setDirty(true);
+        // Until there are defaults in config.yml, unset all flags so they take the built in defaults
+        Arrays.fill(flags, 0L);
         /*for(SettingsFlag flag : SettingsFlag.values()){
             this.flags.put(flag, Settings.defaultSpawnSettings.get(flag));
         }*/ //TODO default flags
@@ -768,6 +901,7 @@ public class Island extends DataObject {
      * @param trustees - the trustees to set
      */
     public void setTrustees(Set<UUID> trustees){
+        setDirty(true);
         this.trustees = trustees;
     }
 
@@ -775,6 +909,7 @@ public class Island extends DataObject {
      * @param updatedDate - the updatedDate to sets
      */
     public void setUpdatedDate(long updatedDate){
+        setDirty(true);
         this.updatedDate = updatedDate;
     }
 
@@ -782,16 +917,21 @@ public class Island extends DataObject {
      * @param world the world to set
      */
     public void setWorld(World world) {
+        setDirty(true);
+        protectionChanged();
         this.world = world;
     }
 
     /**
-     * Toggles the Island Guard flag status if it is in the list
+     * Toggles the Island Guard flag status if it has been set
      * @param flag
      */
     public void toggleFlag(SettingsFlag flag){
-        if(flags.containsKey(flag)) {
-            flags.put(flag, (flags.get(flag)));
+        setDirty(true);
+        int word = flag.ordinal() >>> 6;
+        long bit = 1L << flag.ordinal();
+        if ((flags[FLAG_WORDS + word] & bit) != 0) {
+            flags[word] ^= bit;
         }
     }
 
@@ -806,6 +946,7 @@ public class Island extends DataObject {
      * @param levelHandicap the levelHandicap to set
      */
     public void setLevelHandicap(int levelHandicap) {
+        setDirty(true);
         this.levelHandicap = levelHandicap;
     }
 
@@ -875,6 +1016,7 @@ public class Island extends DataObject {
     }
 
     public void setSpawnPoint(Location location) {
+        setDirty(true);
         spawnPoint = location;
 
     }
@@ -884,6 +1026,8 @@ public class Island extends DataObject {
     }
 
     public void removeMember(UUID playerUUID) {
+        setDirty(true);
+        protectionChanged();
         this.members.remove(playerUUID);
     }
 }
\ No newline at end of file
@@ -91,6 +91,7 @@ public class Players extends DataObject {
      * @param useControlPanel the useControlPanel to set
      */
     public void setUseControlPanel(boolean useControlPanel) {
+        setDirty(true);
         this.useControlPanel = useControlPanel;
     }
 
@@ -105,6 +106,7 @@ public class Players extends DataObject {
      * @param kickedList the kickedList to set
      */
     public void setKickedList(HashMap<Location, Long> kickedList) {
+        setDirty(true);
         this.kickedList = kickedList;
     }
 
@@ -112,6 +114,7 @@ public class Players extends DataObject {
      * @param homeLocations the homeLocations to set
      */
     public void setHomeLocations(HashMap<Integer, Location> homeLocations) {
+        setDirty(true);
         //Bukkit.getLogger().info("DEBUG: " + homeLocations.toString());
         this.homeLocations = homeLocations;
     }
@@ -120,6 +123,7 @@ public class Players extends DataObject {
      * @param playerName the playerName to set
      */
     public void setPlayerName(String playerName) {
+        setDirty(true);
         this.playerName = playerName;
     }
 
@@ -147,6 +151,7 @@ public class Players extends DataObject {
      *            the resetsLeft to set
      */
     public void setResetsLeft(int resetsLeft) {
+        setDirty(true);
         this.resetsLeft = resetsLeft;
     }
 
@@ -166,6 +171,7 @@ public class Players extends DataObject {
      * @param number
      */
     public void setHomeLocation(final Location location, int number) {
+        setDirty(true);
         if (location == null) {
             homeLocations.clear();
         } else {
@@ -178,6 +184,7 @@ public class Players extends DataObject {
      * @param uuid
      */
     public void setPlayerUUID(final UUID uuid) {
+        setDirty(true);
         this.uniqueId = uuid.toString();
     }
 
@@ -185,6 +192,7 @@ public class Players extends DataObject {
      * Clears all home Locations
      */
     public void clearHomeLocations() {
+        setDirty(true);
         homeLocations.clear();
     }
 
@@ -199,6 +207,7 @@ public class Players extends DataObject {
      * @param locale the locale to set
      */
     public void setLocale(String locale) {
+        setDirty(true);
         this.locale = locale;
     }
 
@@ -207,6 +216,7 @@ public class Players extends DataObject {
      * @param b
      */
     public void setControlPanel(boolean b) {
+        setDirty(true);
         useControlPanel = b;
     }
 
@@ -228,6 +238,7 @@ public class Players extends DataObject {
      * @param deaths the deaths to set
      */
     public void setDeaths(int deaths) {
+        setDirty(true);
         this.deaths = deaths;
         if (this.deaths > Settings.deathsMax) {
             this.deaths = Settings.deathsMax;
@@ -238,6 +249,7 @@ public class Players extends DataObject {
      * Add death
      */
     public void addDeath() {
+        setDirty(true);
         this.deaths++;
         if (this.deaths > Settings.deathsMax) {
             this.deaths = Settings.deathsMax;
@@ -269,6 +281,7 @@ public class Players extends DataObject {
             if (coolDownTime.before(timeNow)) {
                 // The time has expired
                 kickedList.remove(location);
+                setDirty(true);
                 return 0;
             } else {
                 // Still not there yet
@@ -287,6 +300,7 @@ public class Players extends DataObject {
      * @param location
      */
     public void startInviteCoolDownTimer(Location location) {
+        setDirty(true);
         if (location != null) {
             kickedList.put(location, System.currentTimeMillis());
         }
@@ -299,6 +313,7 @@ public class Players extends DataObject {
 
     @Override
     public void setUniqueId(String uniqueId) {
+        setDirty(true);
         //Bukkit.getLogger().info("DEBUG: uniqueId = " + uniqueId);
         this.uniqueId = uniqueId;
         //Bukkit.getLogger().info("DEBUG: UUID = " + this.uniqueId);
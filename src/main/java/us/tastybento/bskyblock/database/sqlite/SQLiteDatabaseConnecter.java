@@ -0,0 +1,101 @@
+package us.tastybento.bskyblock.database.sqlite;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import us.tastybento.bskyblock.database.DatabaseConnecter;
+import us.tastybento.bskyblock.database.DatabaseConnectionSettingsImpl;
+import us.tastybento.bskyblock.database.mysql.MySQLDatabaseResourceCloser;
+
+/**
+ * Connects to a SQLite database file in the plugin's database folder.
+ * The file is named after the database name in the config.
+ */
+public class SQLiteDatabaseConnecter implements DatabaseConnecter {
+
+    private static final String DATABASE_FOLDER_NAME = "database";
+    // How long to wait for another connection to finish writing, in milliseconds
+    private static final int BUSY_TIMEOUT = 10000;
+
+    private File databaseFile;
+    private String connectionUrl;
+
+    /**
+     * Class for SQLite database connections using the settings provided
+     * @param plugin
+     * @param dbSettings
+     */
+    public SQLiteDatabaseConnecter(Plugin plugin, DatabaseConnectionSettingsImpl dbSettings) {
+        File dataFolder = new File(plugin.getDataFolder(), DATABASE_FOLDER_NAME);
+        databaseFile = new File(dataFolder, dbSettings.getDatabaseName() + ".db");
+        try {
+            // The driver comes with the server
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+        connectionUrl = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+    }
+
+    /**
+     * Opens a new connection to the database file, creating it if it does not exist. The caller must close it.
+     */
+    @Override
+    public Connection createConnection() throws SQLException {
+        if (!databaseFile.getParentFile().exists()) {
+            databaseFile.getParentFile().mkdirs();
+        }
+        Connection connection = DriverManager.getConnection(connectionUrl);
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            // Write ahead logging. Readers do not block the writer and a commit only appends to the log.
+            statement.execute("PRAGMA journal_mode=WAL");
+            // With WAL this cannot corrupt the database, only lose the last commits if the machine goes down
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT);
+        } catch (SQLException e) {
+            MySQLDatabaseResourceCloser.close(connection);
+            throw e;
+        } finally {
+            MySQLDatabaseResourceCloser.close(statement);
+        }
+        return connection;
+    }
+
+    @Override
+    public String getConnectionUrl() {
+        return connectionUrl;
+    }
+
+    @Override
+    public String getUniqueId(String tableName) {
+        // Not used
+        return "";
+    }
+
+    @Override
+    public boolean uniqueIdExists(String simpleName, String key) {
+        // Not used
+        return false;
+    }
+
+    @Override
+    public YamlConfiguration loadYamlFile(String string, String key) {
+        // Not used
+        return null;
+    }
+
+    @Override
+    public void saveYamlFile(YamlConfiguration yamlFile, String tableName, String fileName) {
+        // Not used
+
+    }
+
+}
@@ -0,0 +1,643 @@
+package us.tastybento.bskyblock.database.sqlite;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Kind;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.Property;
+import us.tastybento.bskyblock.database.managers.DataObjectSchema.ValueType;
+import us.tastybento.bskyblock.database.mysql.MySQLDatabaseResourceCloser;
+import us.tastybento.bskyblock.util.Util;
+
+/**
+ *
+ * Class that stores <T>s in a SQLite database file.
+ * The tables are made from the fields of <T> in the same way as the MySQL database. Collections are
+ * stored in additional tables, one per field. Each handler keeps one connection open and reuses its
+ * prepared statements. The connection is only used by one thread at a time.
+ *
+ * @param <T>
+ */
+public class SQLiteDatabaseHandler<T> extends AbstractDatabaseHandler<T> {
+
+    private static final boolean DEBUG = false;
+    /**
+     * SQLite has few storage classes. Anything not in here is stored as TEXT.
+     */
+    private static final Map<Class<?>, String> SQLITE_MAPPING = new HashMap<>();
+    static {
+        SQLITE_MAPPING.put(boolean.class, "INTEGER");
+        SQLITE_MAPPING.put(byte.class, "INTEGER");
+        SQLITE_MAPPING.put(short.class, "INTEGER");
+        SQLITE_MAPPING.put(int.class, "INTEGER");
+        SQLITE_MAPPING.put(long.class, "INTEGER");
+        SQLITE_MAPPING.put(float.class, "REAL");
+        SQLITE_MAPPING.put(double.class, "REAL");
+        SQLITE_MAPPING.put(Boolean.class, "INTEGER");
+        SQLITE_MAPPING.put(Byte.class, "INTEGER");
+        SQLITE_MAPPING.put(Short.class, "INTEGER");
+        SQLITE_MAPPING.put(Integer.class, "INTEGER");
+        SQLITE_MAPPING.put(Long.class, "INTEGER");
+        SQLITE_MAPPING.put(Float.class, "REAL");
+        SQLITE_MAPPING.put(Double.class, "REAL");
+    }
+
+    private final SQLiteDatabaseConnecter connecter;
+    private final String tableName;
+    /**
+     * Tables that collections are stored in, by field name
+     */
+    private final Map<String, CollectionTable> collectionTables = new LinkedHashMap<>();
+    /**
+     * Prepared statements by SQL. They stay open as long as the connection.
+     */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private Connection connection;
+
+    /**
+     * The table and SQL used to store one collection field
+     */
+    private class CollectionTable {
+        private final String tableName;
+        private final String createSql;
+        private final String indexSql;
+        private final String insertSql;
+        private final String selectSql;
+        private final String selectAllSql;
+        private final String clearSql;
+
+        private CollectionTable(Property property) {
+            tableName = "\"" + type.getCanonicalName() + "." + property.getName() + "\"";
+            StringBuilder columns = new StringBuilder();
+            StringBuilder columnTypes = new StringBuilder();
+            StringBuilder placeHolders = new StringBuilder();
+            for (int i = 0; i < property.getElementTypes().length; i++) {
+                if (i > 0) {
+                    columns.append(", ");
+                    columnTypes.append(", ");
+                    placeHolders.append(", ");
+                }
+                columns.append("element" + i);
+                columnTypes.append("element" + i + " " + getMapping(property.getElementClass(i)));
+                placeHolders.append("?");
+            }
+            createSql = "CREATE TABLE IF NOT EXISTS " + tableName + " (uniqueId TEXT NOT NULL, " + columnTypes + ")";
+            indexSql = "CREATE INDEX IF NOT EXISTS \"" + type.getCanonicalName() + "." + property.getName() + ".uniqueId\" ON "
+                    + tableName + " (uniqueId)";
+            insertSql = "INSERT INTO " + tableName + " (uniqueId, " + columns + ") VALUES (?, " + placeHolders + ")";
+            selectSql = "SELECT " + columns + " FROM " + tableName + " WHERE uniqueId = ?";
+            // Every row, in the same order as the main table is loaded in
+            selectAllSql = "SELECT uniqueId, " + columns + " FROM " + tableName + " ORDER BY uniqueId";
+            // The table is cleared for this uniqueId every time the data is stored
+            clearSql = "DELETE FROM " + tableName + " WHERE uniqueId = ?";
+        }
+    }
+
+    /**
+     * Opens the database and creates the tables for the class that will be stored if they do not exist
+     * @param plugin
+     * @param type - the type of class to be stored in the database. Must inherit DataObject
+     * @param databaseConnecter - where the database file is
+     */
+    public SQLiteDatabaseHandler(Plugin plugin, Class<T> type, SQLiteDatabaseConnecter databaseConnecter) {
+        super(plugin, type, databaseConnecter);
+        this.connecter = databaseConnecter;
+        this.tableName = "\"" + type.getCanonicalName() + "\"";
+        for (Property property : schema.getProperties()) {
+            if (property.isCollection()) {
+                collectionTables.put(property.getName(), new CollectionTable(property));
+            }
+        }
+        try {
+            connection = connecter.createConnection();
+            createSchema();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not open the SQLite database for " + type.getSimpleName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param clazz
+     * @return the SQLite column type for this class
+     */
+    private static String getMapping(Class<?> clazz) {
+        String mapping = SQLITE_MAPPING.get(clazz);
+        return mapping != null ? mapping : "TEXT";
+    }
+
+    /**
+     * Creates the tables if they do not exist. Columns for fields that have been added to the class
+     * since the table was made are added to it.
+     * @throws SQLException
+     */
+    private synchronized void createSchema() throws SQLException {
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.createStatement();
+            StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableName + " (");
+            for (Property property : schema.getProperties()) {
+                // Collections are just a flag in the main table. The real values are in the additional table.
+                sql.append("\"" + property.getName() + "\" " + (property.isCollection() ? "INTEGER" : getMapping(property.getPropertyType())) + ", ");
+            }
+            // For the main table for the class, the unique ID is the primary key
+            sql.append("PRIMARY KEY (uniqueId))");
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: create table = " + sql);
+            statement.executeUpdate(sql.toString());
+            // Find out which columns are there already
+            Set<String> columns = new HashSet<>();
+            resultSet = statement.executeQuery("PRAGMA table_info(" + tableName + ")");
+            while (resultSet.next()) {
+                columns.add(resultSet.getString("name"));
+            }
+            MySQLDatabaseResourceCloser.close(resultSet);
+            for (Property property : schema.getProperties()) {
+                if (!columns.contains(property.getName())) {
+                    plugin.getLogger().info("Adding " + property.getName() + " to the " + type.getSimpleName() + " table");
+                    statement.executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN \"" + property.getName() + "\" "
+                            + (property.isCollection() ? "INTEGER" : getMapping(property.getPropertyType())));
+                }
+            }
+            for (CollectionTable table : collectionTables.values()) {
+                statement.executeUpdate(table.createSql);
+                statement.executeUpdate(table.indexSql);
+            }
+        } finally {
+            MySQLDatabaseResourceCloser.close(resultSet);
+            MySQLDatabaseResourceCloser.close(statement);
+        }
+    }
+
+    /**
+     * Gets a prepared statement for this SQL, preparing it the first time it is asked for.
+     * Parameters and batches left from the last use are cleared. The statement must not be closed by the caller.
+     * @param sql
+     * @return prepared statement
+     * @throws SQLException
+     */
+    private PreparedStatement prepare(String sql) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("The SQLite database is not open");
+        }
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+        return statement;
+    }
+
+    /**
+     * @param usePlaceHolders
+     *            true, if PreparedStatement-placeholders ('?') should be used
+     *            instead of the names of the variables
+     * @return comma-separated-String with the names of the fields in the class
+     */
+    private String getColumns(boolean usePlaceHolders) {
+        StringBuilder sb = new StringBuilder();
+        boolean first = true;
+        for (Property property : schema.getProperties()) {
+            if (first)
+                first = false;
+            else
+                sb.append(", ");
+            if (usePlaceHolders)
+                sb.append("?");
+            else
+                sb.append("\"" + property.getName() + "\"");
+        }
+        return sb.toString();
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#createSelectQuery()
+     */
+    @Override
+    protected String createSelectQuery() {
+        return "SELECT " + getColumns(false) + " FROM \"" + type.getCanonicalName() + "\"";
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#createInsertQuery()
+     */
+    @Override
+    protected String createInsertQuery() {
+        // Replace is used so that any data in the table will be replaced with updated data
+        return "INSERT OR REPLACE INTO \"" + type.getCanonicalName() + "\" (" + getColumns(false) + ") VALUES (" + getColumns(true) + ")";
+    }
+
+    @Override
+    protected String createDeleteQuery() {
+        return "DELETE FROM [table_name] WHERE uniqueId = ?";
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#saveObject(java.lang.Object)
+     */
+    @Override
+    public void saveObject(T instance) throws SQLException, InvocationTargetException {
+        saveObjects(Collections.singletonList(instance));
+    }
+
+    /**
+     * Inserts the <T>s into the corresponding database-tables in one transaction.
+     * If anything fails, nothing is written.
+     *
+     * @param instances <T>s that should be inserted into the database. Must extend DataObject.
+     * @throws SQLException
+     * @throws InvocationTargetException
+     */
+    @Override
+    public synchronized void saveObjects(Collection<T> instances) throws SQLException, InvocationTargetException {
+        if (instances.isEmpty()) {
+            return;
+        }
+        // The same object may only be in the batch once, otherwise its collection rows would be written twice
+        Map<String, T> byUniqueId = new LinkedHashMap<>();
+        for (T instance : instances) {
+            String uniqueId = (String) schema.getUniqueId().get(instance);
+            if (uniqueId == null || uniqueId.isEmpty()) {
+                throw new SQLException("uniqueId is blank");
+            }
+            byUniqueId.put(uniqueId, instance);
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: saveObjects " + byUniqueId.size());
+        PreparedStatement preparedStatement = prepare(insertQuery);
+        boolean committed = false;
+        connection.setAutoCommit(false);
+        try {
+            for (Entry<String, T> en : byUniqueId.entrySet()) {
+                // Old collection rows go first so they do not remove the new ones
+                for (CollectionTable table : collectionTables.values()) {
+                    PreparedStatement clearStatement = prepare(table.clearSql);
+                    clearStatement.setString(1, en.getKey());
+                    clearStatement.executeUpdate();
+                }
+                int i = 0;
+                for (Property property : schema.getProperties()) {
+                    Object value = property.get(en.getValue());
+                    if (property.isCollection()) {
+                        insertCollection(en.getKey(), property, value);
+                        // Just a flag. The real values are in the additional table.
+                        value = true;
+                    } else {
+                        value = serialize(value, property.getValueType());
+                    }
+                    preparedStatement.setObject(++i, value);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            connection.commit();
+            committed = true;
+        } finally {
+            if (!committed) {
+                // Do not leave half an object behind
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Writes the rows of a collection field
+     * @param uniqueId
+     * @param property
+     * @param value - the Set, ArrayList or Map. May be null.
+     * @throws SQLException
+     */
+    private void insertCollection(String uniqueId, Property property, Object value) throws SQLException {
+        if (value == null) {
+            return;
+        }
+        PreparedStatement collStatement = prepare(collectionTables.get(property.getName()).insertSql);
+        collStatement.setString(1, uniqueId);
+        if (property.getKind() == Kind.SET || property.getKind() == Kind.LIST) {
+            for (Object element : (Collection<?>)value) {
+                collStatement.setObject(2, serialize(element, property.getElementValueType(0)));
+                collStatement.addBatch();
+            }
+        } else {
+            for (Entry<?,?> en : ((Map<?,?>)value).entrySet()) {
+                collStatement.setObject(2, serialize(en.getKey(), property.getElementValueType(0)));
+                collStatement.setObject(3, serialize(en.getValue(), property.getElementValueType(1)));
+                collStatement.addBatch();
+            }
+        }
+        collStatement.executeBatch();
+    }
+
+    /**
+     * Converts a value to something SQLite can store
+     * @param value
+     * @param valueType - how the known class of value is stored
+     * @return the object to write to the database
+     */
+    private Object serialize(Object value, ValueType valueType) {
+        if (value == null) {
+            return null;
+        }
+        switch (valueType) {
+        case UUID:
+            return value.toString();
+        case LOCATION:
+            return Util.getStringLocation(((Location)value));
+        case WORLD:
+            return ((World)value).getName();
+        case ENUM:
+            return ((Enum<?>)value).name();
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * Converts a value read from SQLite back to its class
+     * @param value
+     * @param clazz
+     * @param valueType - how clazz is stored, from the schema
+     * @return the deserialized value
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object deserialize(Object value, Class<?> clazz, ValueType valueType) {
+        if (value == null) {
+            return null;
+        }
+        switch (valueType) {
+        case UUID:
+            return UUID.fromString((String)value);
+        case LOCATION:
+            // May be null if the world is not loaded
+            return Util.getLocationString(((String)value));
+        case WORLD:
+            return plugin.getServer().getWorld((String)value);
+        case ENUM:
+            try {
+                return Enum.valueOf((Class<Enum>)clazz, (String)value);
+            } catch (Exception e) {
+                // Maybe this value does not exist any more
+                e.printStackTrace();
+                return null;
+            }
+        default:
+            break;
+        }
+        // SQLite gives back whatever size of number fits, so make it the right one
+        if (value instanceof Number) {
+            Number number = (Number)value;
+            if (clazz == boolean.class || clazz == Boolean.class) {
+                return number.intValue() != 0;
+            } else if (clazz == int.class || clazz == Integer.class) {
+                return number.intValue();
+            } else if (clazz == long.class || clazz == Long.class) {
+                return number.longValue();
+            } else if (clazz == double.class || clazz == Double.class) {
+                return number.doubleValue();
+            } else if (clazz == float.class || clazz == Float.class) {
+                return number.floatValue();
+            } else if (clazz == short.class || clazz == Short.class) {
+                return number.shortValue();
+            } else if (clazz == byte.class || clazz == Byte.class) {
+                return number.byteValue();
+            } else if (clazz == String.class) {
+                return number.toString();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Loads all the <T>s. The main table and every collection table are each read once in uniqueId
+     * order and merged together.
+     */
+    @Override
+    public synchronized List<T> loadObjects() throws SQLException, InstantiationException, InvocationTargetException {
+        ResultSet resultSet = null;
+        Map<String, ResultSet> collections = new HashMap<>();
+        try {
+            resultSet = prepare(selectQuery + " ORDER BY uniqueId").executeQuery();
+            for (Entry<String, CollectionTable> en : collectionTables.entrySet()) {
+                ResultSet collectionResultSet = prepare(en.getValue().selectAllSql).executeQuery();
+                // Move onto the first row
+                collections.put(en.getKey(), collectionResultSet.next() ? collectionResultSet : null);
+                if (collections.get(en.getKey()) == null) {
+                    MySQLDatabaseResourceCloser.close(collectionResultSet);
+                }
+            }
+            List<T> list = new ArrayList<>();
+            while (resultSet.next()) {
+                String uniqueId = resultSet.getString("uniqueId");
+                if (uniqueId == null) {
+                    throw new SQLException("No unique ID in the results!");
+                }
+                T instance = schema.newInstance();
+                for (Property property : schema.getProperties()) {
+                    Object value;
+                    if (property.isCollection()) {
+                        value = newCollection(property);
+                        ResultSet collectionResultSet = collections.get(property.getName());
+                        // Rows for uniqueIds that are not in the main table are skipped
+                        while (collectionResultSet != null && collectionResultSet.getString(1).compareTo(uniqueId) <= 0) {
+                            if (collectionResultSet.getString(1).equals(uniqueId)) {
+                                addRow(property, value, collectionResultSet, 2);
+                            }
+                            if (!collectionResultSet.next()) {
+                                MySQLDatabaseResourceCloser.close(collectionResultSet);
+                                collectionResultSet = null;
+                                collections.put(property.getName(), null);
+                            }
+                        }
+                    } else {
+                        value = deserialize(resultSet.getObject(property.getName()), property.getPropertyType(), property.getValueType());
+                    }
+                    property.set(instance, value);
+                }
+                list.add(instance);
+            }
+            return list;
+        } finally {
+            for (ResultSet collectionResultSet : collections.values()) {
+                MySQLDatabaseResourceCloser.close(collectionResultSet);
+            }
+            MySQLDatabaseResourceCloser.close(resultSet);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#loadObject(java.lang.String)
+     */
+    @Override
+    public synchronized T loadObject(String uniqueId) throws SQLException, InstantiationException, InvocationTargetException {
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: loading object for " + uniqueId);
+        ResultSet resultSet = null;
+        try {
+            PreparedStatement preparedStatement = prepare(selectQuery + " WHERE uniqueId = ? LIMIT 1");
+            preparedStatement.setString(1, uniqueId);
+            resultSet = preparedStatement.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+            T instance = schema.newInstance();
+            for (Property property : schema.getProperties()) {
+                Object value;
+                if (property.isCollection()) {
+                    value = newCollection(property);
+                    PreparedStatement collStatement = prepare(collectionTables.get(property.getName()).selectSql);
+                    collStatement.setString(1, uniqueId);
+                    ResultSet collectionResultSet = collStatement.executeQuery();
+                    try {
+                        while (collectionResultSet.next()) {
+                            addRow(property, value, collectionResultSet, 1);
+                        }
+                    } finally {
+                        MySQLDatabaseResourceCloser.close(collectionResultSet);
+                    }
+                } else {
+                    value = deserialize(resultSet.getObject(property.getName()), property.getPropertyType(), property.getValueType());
+                }
+                property.set(instance, value);
+            }
+            return instance;
+        } finally {
+            MySQLDatabaseResourceCloser.close(resultSet);
+        }
+    }
+
+    /**
+     * @param property
+     * @return an empty collection of the right kind for this property
+     */
+    private static Object newCollection(Property property) {
+        switch (property.getKind()) {
+        case SET:
+            return new HashSet<Object>();
+        case LIST:
+            return new ArrayList<Object>();
+        default:
+            return new HashMap<Object, Object>();
+        }
+    }
+
+    /**
+     * Adds the row of a collection table to the collection
+     * @param property
+     * @param collection - made by {@link #newCollection(Property)}
+     * @param resultSet - positioned on the row
+     * @param firstColumn - the column the element, or the map key, is in
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    private void addRow(Property property, Object collection, ResultSet resultSet, int firstColumn) throws SQLException {
+        Object element = deserialize(resultSet.getObject(firstColumn), property.getElementClass(0), property.getElementValueType(0));
+        if (property.getKind() == Kind.SET) {
+            ((Set<Object>) collection).add(element);
+        } else if (property.getKind() == Kind.LIST) {
+            ((List<Object>) collection).add(element);
+        } else {
+            Object mapValue = deserialize(resultSet.getObject(firstColumn + 1), property.getElementClass(1), property.getElementValueType(1));
+            ((Map<Object,Object>) collection).put(element, mapValue);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#deleteObject(java.lang.Object)
+     */
+    @Override
+    public synchronized void deleteObject(T instance) throws SQLException, InvocationTargetException {
+        String uniqueId = (String) schema.getUniqueId().get(instance);
+        if (uniqueId == null || uniqueId.isEmpty()) {
+            throw new SQLException("uniqueId is blank");
+        }
+        boolean committed = false;
+        connection.setAutoCommit(false);
+        try {
+            // Delete from the main table and any sub tables created from the object
+            PreparedStatement preparedStatement = prepare(deleteQuery.replace("[table_name]", tableName));
+            preparedStatement.setString(1, uniqueId);
+            preparedStatement.executeUpdate();
+            for (CollectionTable table : collectionTables.values()) {
+                preparedStatement = prepare(table.clearSql);
+                preparedStatement.setString(1, uniqueId);
+                preparedStatement.executeUpdate();
+            }
+            connection.commit();
+            committed = true;
+        } finally {
+            if (!committed) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see us.tastybento.bskyblock.database.managers.AbstractDatabaseHandler#objectExits(java.lang.String)
+     */
+    @Override
+    public synchronized boolean objectExits(String key) {
+        ResultSet resultSet = null;
+        try {
+            PreparedStatement preparedStatement = prepare("SELECT 1 FROM " + tableName + " WHERE uniqueId = ? LIMIT 1");
+            preparedStatement.setString(1, key);
+            resultSet = preparedStatement.executeQuery();
+            return resultSet.next();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            MySQLDatabaseResourceCloser.close(resultSet);
+        }
+        return false;
+    }
+
+    /**
+     * Closes the prepared statements and the connection. The WAL is written back into the database file
+     * when the last connection closes.
+     */
+    @Override
+    public synchronized void close() {
+        for (PreparedStatement statement : statements.values()) {
+            MySQLDatabaseResourceCloser.close(statement);
+        }
+        statements.clear();
+        if (connection != null) {
+            MySQLDatabaseResourceCloser.close(connection);
+            connection = null;
+        }
+    }
+
+}
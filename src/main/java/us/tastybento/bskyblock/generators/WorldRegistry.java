@@ -0,0 +1,107 @@
+package us.tastybento.bskyblock.generators;
+
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import us.tastybento.bskyblock.config.Settings;
+
+/**
+ * Knows which of the server's worlds are the BSkyBlock worlds, so event handlers can classify a world by
+ * comparing references instead of calling World.equals and reading settings every time.
+ * The worlds are looked up again whenever a world is loaded or unloaded.
+ */
+public class WorldRegistry implements Listener {
+
+    /**
+     * What a world is to BSkyBlock
+     */
+    public enum Role {
+        NONE,
+        OVERWORLD,
+        NETHER,
+        END
+    }
+
+    private static volatile World overworld;
+    private static volatile World nether;
+    private static volatile World end;
+    // Bit per role ordinal for the roles that have islands
+    private static volatile int islandRoles;
+
+    /**
+     * Looks up the worlds. Register it as a listener once the worlds have been made.
+     */
+    public WorldRegistry() {
+        refresh();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(final WorldLoadEvent event) {
+        refresh();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(final WorldUnloadEvent event) {
+        if (!event.isCancelled()) {
+            // The world is still loaded until the event is over
+            World world = event.getWorld();
+            if (world == overworld) {
+                overworld = null;
+            } else if (world == nether) {
+                nether = null;
+            } else if (world == end) {
+                end = null;
+            }
+        }
+    }
+
+    /**
+     * Looks up the worlds again
+     */
+    public static void refresh() {
+        overworld = IslandWorld.getIslandWorld();
+        nether = IslandWorld.getNetherWorld();
+        end = IslandWorld.getEndWorld();
+        int roles = 1 << Role.OVERWORLD.ordinal();
+        if (Settings.netherIslands) {
+            roles |= 1 << Role.NETHER.ordinal();
+        }
+        if (Settings.endIslands) {
+            roles |= 1 << Role.END.ordinal();
+        }
+        islandRoles = roles;
+    }
+
+    /**
+     * @param world - may be null
+     * @return the role of the world
+     */
+    public static Role getRole(World world) {
+        if (world == null) {
+            return Role.NONE;
+        }
+        if (world == overworld) {
+            return Role.OVERWORLD;
+        }
+        if (world == nether) {
+            return Role.NETHER;
+        }
+        if (world == end) {
+            return Role.END;
+        }
+        return Role.NONE;
+    }
+
+    /**
+     * @param world - may be null
+     * @return true if the world has islands, i.e., it is the island world or a nether or end with islands
+     */
+    public static boolean inWorld(World world) {
+        Role role = getRole(world);
+        return role != Role.NONE && (islandRoles & (1 << role.ordinal())) != 0;
+    }
+}
@@ -6,6 +6,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -13,8 +14,8 @@ import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.managers.PlayersManager;
 import us.tastybento.bskyblock.database.objects.Island;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 public class JoinLeaveListener implements Listener {
 
@@ -30,6 +31,29 @@ public class JoinLeaveListener implements Listener {
         this.players = plugin.getPlayers();
     }
 
+    /**
+     * Loads the player and their island while they are logging in, so that joining only uses memory.
+     * This runs on the login thread, not the main thread.
+     * @param event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(final AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID playerUUID = event.getUniqueId();
+        if (playerUUID == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        if (players.preloadPlayer(playerUUID)) {
+            // Load their island, or the team island they are in
+            plugin.getIslands().getIsland(playerUUID);
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: preloaded " + playerUUID + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onPlayerJoin(final PlayerJoinEvent event) {
         Player player = event.getPlayer();
@@ -70,17 +94,19 @@ public class JoinLeaveListener implements Listener {
 
             // Check if they logged in to a locked island and expel them or if they are banned
             Island currentIsland = plugin.getIslands().getIslandAt(player.getLocation());
-            if (currentIsland != null && (currentIsland.isLocked() || plugin.getPlayers().isBanned(currentIsland.getOwner(),player.getUniqueId()))) {
+            if (currentIsland != null && (currentIsland.isLocked() || plugin.getIslands().isBanned(currentIsland, player.getUniqueId()))) {
                 if (DEBUG)
                     plugin.getLogger().info("DEBUG: Current island is locked, or player is banned");
                 if (!currentIsland.getMembers().contains(playerUUID) && !player.isOp()
-                        && !VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")) {
+                        && !plugin.getPermissions().has(player, Node.BYPASS_PROTECT)) {
                     if (DEBUG)
                         plugin.getLogger().info("DEBUG: No bypass - teleporting");
                     Util.sendMessage(player, plugin.getLocale(player.getUniqueId()).get("locked.islandlocked"));
                     plugin.getIslands().homeTeleport(player);
                 }
             }
+            // Finish anything left over from when they were last on, e.g., being sent to a new island
+            players.joined(player);
         } else {
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: not a known player");
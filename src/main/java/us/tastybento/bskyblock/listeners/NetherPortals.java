@@ -6,6 +6,7 @@ import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.World.Environment;
+import org.bukkit.entity.Player;
 import org.bukkit.entity.Vehicle;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -21,9 +22,9 @@ import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
 import us.tastybento.bskyblock.generators.IslandWorld;
 import us.tastybento.bskyblock.schematics.Schematic;
 import us.tastybento.bskyblock.schematics.Schematic.PasteReason;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.SafeSpotTeleport;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 public class NetherPortals implements Listener {
     private final BSkyBlock plugin;
@@ -116,7 +117,7 @@ public class NetherPortals implements Listener {
             // Portals use is not allowed
             if (DEBUG)
                 plugin.getLogger().info("DEBUG: Portal use not allowed");
-            if (!event.getPlayer().isOp() && !VaultHelper.hasPerm(event.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (!event.getPlayer().isOp() && !plugin.getPermissions().has(event.getPlayer(), Node.BYPASS_PROTECT)) {
                 Util.sendMessage(event.getPlayer(), plugin.getLocale(event.getPlayer().getUniqueId()).get("island.protected"));
                 event.setCancelled(true);
                 return;
@@ -225,7 +226,12 @@ public class NetherPortals implements Listener {
                                 if (nether != null) {
                                     if (DEBUG)
                                         plugin.getLogger().info("DEBUG: pasting at " + island.getCenter().toVector());
-                                    nether.pasteSchematic(netherIsland, event.getPlayer(), false, PasteReason.PARTNER, island);
+                                    event.setCancelled(true);
+                                    // Teleport once the island has been pasted
+                                    final Player player = event.getPlayer();
+                                    nether.pasteSchematic(netherIsland, player, false, PasteReason.PARTNER, island,
+                                            () -> new SafeSpotTeleport(plugin, player, netherIsland));
+                                    return;
                                 } else {
                                     plugin.getLogger().severe("Cannot teleport player to nether because there is no nether schematic");
                                     event.setCancelled(true);
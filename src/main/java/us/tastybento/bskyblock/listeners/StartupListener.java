@@ -0,0 +1,32 @@
+package us.tastybento.bskyblock.listeners;
+
+import org.bukkit.ChatColor;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import us.tastybento.bskyblock.BSkyBlock;
+
+/**
+ * Keeps players from joining until the islands have been loaded and BSkyBlock is ready
+ */
+public class StartupListener implements Listener {
+
+    private BSkyBlock plugin;
+
+    /**
+     * @param plugin
+     */
+    public StartupListener(BSkyBlock plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerPreLogin(final AsyncPlayerPreLoginEvent event) {
+        if (!plugin.isReady()) {
+            // Locales may not be loaded yet
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, ChatColor.RED + "The server is still loading islands. Please try again in a moment.");
+        }
+    }
+}
@@ -129,7 +129,7 @@ public class FlyingMobEvents implements Listener {
             plugin.getLogger().info(e.getEventName());
         }
         // Only cover withers in the island world
-        if (!Util.inWorld(e.getEntity()) || e.getEntity() == null) {
+        if (e.getEntity() == null || !Util.inWorld(e.getEntity())) {
             return;
         }
         // The wither or wither skulls can both blow up
@@ -63,6 +63,7 @@ import org.bukkit.event.player.PlayerEggThrowEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerShearEntityEvent;
 import org.bukkit.event.player.PlayerUnleashEntityEvent;
 import org.bukkit.event.vehicle.VehicleDamageEvent;
@@ -80,9 +81,10 @@ import us.tastybento.bskyblock.api.events.island.IslandEvent.Reason;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
-import us.tastybento.bskyblock.generators.IslandWorld;
+import us.tastybento.bskyblock.generators.WorldRegistry;
+import us.tastybento.bskyblock.generators.WorldRegistry.Role;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 /**
  * @author tastybento
@@ -97,8 +99,20 @@ public class IslandGuard implements Listener {
     private Set<Location> tntBlocks = new HashSet<>();
     private Set<UUID> litCreeper = new HashSet<>();
 
+    private final RegionTracker regionTracker;
+
     public IslandGuard(final BSkyBlock plugin) {
         this.plugin = plugin;
+        this.regionTracker = new RegionTracker(plugin);
+    }
+
+    /**
+     * Forgets where the player was
+     * @param e
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent e) {
+        regionTracker.remove(e.getPlayer().getUniqueId());
     }
 
     /**
@@ -138,7 +152,7 @@ public class IslandGuard implements Listener {
             return actionAllowed(location, flag);
         }
         // This permission bypasses protection
-        if (player.isOp() || VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (player.isOp() || plugin.getPermissions().has(player, Node.BYPASS_PROTECT)) {
             return true;
         }
         Island island = plugin.getIslands().getProtectedIslandAt(location);
@@ -225,10 +239,9 @@ public class IslandGuard implements Listener {
 
         if (islandTo != null && (islandTo.getOwner() != null || islandTo.isSpawn())) {
             // Lock check
-            if (islandTo.isLocked() || plugin.getPlayers().isBanned(islandTo.getOwner(),player.getUniqueId())) {
+            if (islandTo.isLocked() || plugin.getIslands().isBanned(islandTo, player.getUniqueId())) {
                 if (!islandTo.getMembers().contains(player.getUniqueId()) && !player.isOp()
-                        && !VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")
-                        && !VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypasslock")) {
+                        && !plugin.getIslands().getBanIndex().canBypassLock(player.getUniqueId())) {
                     Util.sendMessage(player, plugin.getLocale(player.getUniqueId()).get("lock.islandlocked"));
                     // Get the vector away from this island
                     Vector v = e.getVehicle().getLocation().toVector().subtract(islandTo.getCenter().toVector()).normalize().multiply(new Vector(1.2,0,1.2));
@@ -310,6 +323,10 @@ public class IslandGuard implements Listener {
      */
     @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void onPlayerMove(final PlayerMoveEvent e) {
+        // Only do something if there is a definite x or z movement
+        if (e.getTo().getBlockX() - e.getFrom().getBlockX() == 0 && e.getTo().getBlockZ() - e.getFrom().getBlockZ() == 0) {
+            return;
+        }
         if (e.getPlayer().isDead()) {
             return;
         }
@@ -319,13 +336,10 @@ public class IslandGuard implements Listener {
         if (plugin.getIslands() == null) {
             return;
         }
-        // Only do something if there is a definite x or z movement
-        if (e.getTo().getBlockX() - e.getFrom().getBlockX() == 0 && e.getTo().getBlockZ() - e.getFrom().getBlockZ() == 0) {
-            return;
-        }
-        final Island islandTo = plugin.getIslands().getProtectedIslandAt(e.getTo());
-        // Announcement entering
-        final Island islandFrom = plugin.getIslands().getProtectedIslandAt(e.getFrom());
+        // The tracked area usually covers both locations, so no island lookups are needed
+        final RegionTracker.Region regionFrom = regionTracker.getRegion(e.getPlayer(), e.getFrom());
+        final RegionTracker.Region regionTo = regionFrom.contains(e.getTo()) ? regionFrom : regionTracker.getRegion(e.getPlayer(), e.getTo());
+        regionTracker.setRegion(e.getPlayer().getUniqueId(), regionTo);
         // Only says something if there is a change in islands
         /*
          * Situations:
@@ -337,36 +351,37 @@ public class IslandGuard implements Listener {
          */
         // plugin.getLogger().info("islandTo = " + islandTo);
         // plugin.getLogger().info("islandFrom = " + islandFrom);
-        if (islandTo != null && (islandTo.getOwner() != null || islandTo.isSpawn())) {
-            // Lock check
-            if (islandTo.isLocked() || plugin.getPlayers().isBanned(islandTo.getOwner(),e.getPlayer().getUniqueId())) {
-                if (!islandTo.getMembers().contains(e.getPlayer().getUniqueId()) && !e.getPlayer().isOp()
-                        && !VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
-                        && !VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypasslock")) {
-                    Util.sendMessage(e.getPlayer(), plugin.getLocale(e.getPlayer().getUniqueId()).get("lock.islandlocked"));
-
-                    // Get the vector away from this island
-                    if (e.getPlayer().isInsideVehicle()) {
-                        if (e.getPlayer().getVehicle() instanceof LivingEntity) {
-                            // Dismount
-                            e.getPlayer().leaveVehicle();
-                            e.setCancelled(true);
-                        }
-
-                    } else {
-                        Vector v = e.getPlayer().getLocation().toVector().subtract(islandTo.getCenter().toVector()).normalize().multiply(new Vector(1.2,0,1.2));
-                        if (DEBUG)
-                            plugin.getLogger().info("DEBUG: direction vector = " + v);
-                        e.getPlayer().setVelocity(v);
-                    }
-                    return;
+        // Lock check
+        if (regionTo.isKeptOut() && !e.getPlayer().isOp()) {
+            Util.sendMessage(e.getPlayer(), plugin.getLocale(e.getPlayer().getUniqueId()).get("lock.islandlocked"));
+
+            // Get the vector away from this island
+            if (e.getPlayer().isInsideVehicle()) {
+                if (e.getPlayer().getVehicle() instanceof LivingEntity) {
+                    // Dismount
+                    e.getPlayer().leaveVehicle();
+                    e.setCancelled(true);
                 }
+
+            } else {
+                Vector v = e.getPlayer().getLocation().toVector().subtract(regionTo.getArea().getCenter().toVector()).normalize().multiply(new Vector(1.2,0,1.2));
+                if (DEBUG)
+                    plugin.getLogger().info("DEBUG: direction vector = " + v);
+                e.getPlayer().setVelocity(v);
             }
+            return;
+        }
+        if (regionTo == regionFrom) {
+            // Still in the same area
+            return;
         }
+        // Only now are the full islands needed
+        final Island islandTo = regionTracker.getIsland(regionTo);
+        final Island islandFrom = regionTracker.getIsland(regionFrom);
 
         if (islandTo != null && islandFrom == null && (islandTo.getOwner() != null || islandTo.isSpawn())) {
             // Entering
-            if (islandTo.isLocked() || plugin.getPlayers().isBanned(islandTo.getOwner(),e.getPlayer().getUniqueId())) {
+            if (islandTo.isLocked() || plugin.getIslands().isBanned(islandTo, e.getPlayer().getUniqueId())) {
                 Util.sendMessage(e.getPlayer(), plugin.getLocale(e.getPlayer().getUniqueId()).get("lock.islandlocked"));
             }
             if (islandTo.isSpawn()) {
@@ -778,7 +793,7 @@ public class IslandGuard implements Listener {
         // Get the island where the damage is occurring
         Island island = plugin.getIslands().getProtectedIslandAt(e.getEntity().getLocation());
         boolean inNether = false;
-        if (e.getEntity().getWorld().equals(IslandWorld.getNetherWorld())) {
+        if (WorldRegistry.getRole(e.getEntity().getWorld()) == Role.NETHER) {
             inNether = true;
         }
         // Stop TNT damage if it is disallowed
@@ -829,7 +844,7 @@ public class IslandGuard implements Listener {
         // Ops can do anything
         if (e.getDamager() instanceof Player) {
             Player p = (Player) e.getDamager();
-            if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
                 return;
             }
         }
@@ -976,7 +991,7 @@ public class IslandGuard implements Listener {
         // plugin.getLogger().info(e.getEventName());
         if (Util.inWorld(e.getPlayer())) {
             // This permission bypasses protection
-            if (e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                 return;
             }
             //plugin.getLogger().info("DEBUG: checking is inside protection area");
@@ -1037,7 +1052,7 @@ public class IslandGuard implements Listener {
         // plugin.getLogger().info(e.getEventName());
         if (Util.inWorld(e.getPlayer())) {
             // This permission bypasses protection
-            if (e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                 return;
             }
             Island island = plugin.getIslands().getProtectedIslandAt(e.getBlock().getLocation());
@@ -1115,7 +1130,7 @@ public class IslandGuard implements Listener {
         // plugin.getLogger().info(e.getEventName());
         if (Util.inWorld(e.getPlayer())) {
             // This permission bypasses protection
-            if (e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                 return;
             }
             Island island = plugin.getIslands().getProtectedIslandAt(e.getBlock().getLocation());
@@ -1208,7 +1223,7 @@ public class IslandGuard implements Listener {
             if (e.getRemover() instanceof Player) {
                 Player p = (Player) e.getRemover();
                 // This permission bypasses protection
-                if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+                if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
                     return;
                 }
                 if (actionAllowed(p,e.getEntity().getLocation(),SettingsFlag.BREAK_BLOCKS)) {
@@ -1368,7 +1383,7 @@ public class IslandGuard implements Listener {
         if (DEBUG) {
             plugin.getLogger().info(e.getEventName());
         }
-        if (!Util.inWorld(e.getBlock().getLocation()) || !e.getBlock().getBiome().equals(Biome.HELL)) {
+        if (!Util.inWorld(e.getBlock()) || !e.getBlock().getBiome().equals(Biome.HELL)) {
             return;
         }
         // plugin.getLogger().info("DEBUG: Item being dispensed is " +
@@ -1390,7 +1405,7 @@ public class IslandGuard implements Listener {
         }
         if (Util.inWorld(e.getPlayer())) {
             // This permission bypasses protection
-            if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                 return;
             }
             Island island = plugin.getIslands().getProtectedIslandAt(e.getBlockClicked().getLocation());
@@ -1451,7 +1466,7 @@ public class IslandGuard implements Listener {
         if (!Util.inWorld(e.getPlayer())) {
             return;
         }
-        if (e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
             return;
         }
         if ((e.getClickedBlock() != null && plugin.getIslands().locationIsOnIsland(e.getPlayer(), e.getClickedBlock().getLocation()))) {
@@ -1956,7 +1971,7 @@ public class IslandGuard implements Listener {
                     if (p.isSplash()) {
                         // Splash potions are allowed only if PVP is allowed
                         boolean inNether = false;
-                        if (e.getPlayer().getWorld().equals(IslandWorld.getNetherWorld())) {
+                        if (WorldRegistry.getRole(e.getPlayer().getWorld()) == Role.NETHER) {
                             inNether = true;
                         }
                         // Check PVP
@@ -1992,9 +2007,9 @@ public class IslandGuard implements Listener {
             plugin.getLogger().info(event.getEventName());
         }
         Player player = (Player) event.getWhoClicked();
-        if (Util.inWorld(player) || player.getWorld().equals(IslandWorld.getNetherWorld())) {
+        if (Util.inWorld(player) || WorldRegistry.getRole(player.getWorld()) == Role.NETHER) {
             if (event.getRecipe().getResult().getType() == Material.ENDER_CHEST) {
-                if (!(player.hasPermission(Settings.PERMPREFIX + "craft.enderchest"))) {
+                if (!plugin.getPermissions().has(player, Node.CRAFT_ENDERCHEST)) {
                     Util.sendMessage(player, plugin.getLocale(player.getUniqueId()).get("general.errors.no-permission"));
                     event.setCancelled(true);
                 }
@@ -2014,10 +2029,10 @@ public class IslandGuard implements Listener {
             plugin.getLogger().info("Ender chest " + event.getEventName());
         }
         Player player = (Player) event.getPlayer();
-        if (Util.inWorld(player) || player.getWorld().equals(IslandWorld.getNetherWorld())) {
+        if (Util.inWorld(player) || WorldRegistry.getRole(player.getWorld()) == Role.NETHER) {
             if (event.getAction() == Action.RIGHT_CLICK_BLOCK) {
                 if (event.getClickedBlock().getType() == Material.ENDER_CHEST) {
-                    if (!(event.getPlayer().hasPermission(Settings.PERMPREFIX + "craft.enderchest"))) {
+                    if (!plugin.getPermissions().has(event.getPlayer(), Node.CRAFT_ENDERCHEST)) {
                         Util.sendMessage(player, plugin.getLocale(player.getUniqueId()).get("general.errors.no-permission"));
                         event.setCancelled(true);
                     }
@@ -2040,7 +2055,7 @@ public class IslandGuard implements Listener {
         if (!Util.inWorld(p)) {
             return;
         }
-        if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
             // You can do anything if you are Op of have the bypass
             return;
         }
@@ -2255,7 +2270,7 @@ public class IslandGuard implements Listener {
                         //plugin.getLogger().info("DEBUG: target block = " + e.getPlayer().getTargetBlock(transparent, 10));
                     }
                     // Check if this is allowed
-                    if (e.getPlayer() != null && (e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypass"))) {
+                    if (e.getPlayer() != null && (e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS))) {
                         return;
                     }
                     if (!actionAllowed(e.getBlock().getLocation(), SettingsFlag.FIRE)) {
@@ -2314,7 +2329,7 @@ public class IslandGuard implements Listener {
             plugin.getLogger().info("action = " + e.getAction());
         }
         if (!Util.inWorld(e.getPlayer()) || !e.getAction().equals(Action.PHYSICAL)
-                || e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
+                || e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
                 || plugin.getIslands().playerIsOnIsland(e.getPlayer())) {
             //plugin.getLogger().info("DEBUG: Not in world");
             return;
@@ -2357,11 +2372,11 @@ public class IslandGuard implements Listener {
         if (DEBUG) {
             plugin.getLogger().info(e.getEventName());
         }
-        Location pistonLoc = e.getBlock().getLocation();
-        if (Settings.allowPistonPush || !Util.inWorld(pistonLoc)) {
+        if (Settings.allowPistonPush || !Util.inWorld(e.getBlock())) {
             //plugin.getLogger().info("DEBUG: Not in world");
             return;
         }
+        Location pistonLoc = e.getBlock().getLocation();
         Island island = plugin.getIslands().getProtectedIslandAt(pistonLoc);
         if (island == null || !island.onIsland(pistonLoc)) {
             //plugin.getLogger().info("DEBUG: Not on is island protection zone");
@@ -2386,7 +2401,7 @@ public class IslandGuard implements Listener {
         if (DEBUG) {
             plugin.getLogger().info("egg throwing = " + e.getEventName());
         }
-        if (!Util.inWorld(e.getPlayer()) || e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
+        if (!Util.inWorld(e.getPlayer()) || e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
                 || plugin.getIslands().playerIsOnIsland(e.getPlayer()) || plugin.getIslands().isAtSpawn(e.getPlayer().getLocation())) {
             return;
         }
@@ -2413,7 +2428,7 @@ public class IslandGuard implements Listener {
             plugin.getLogger().info(e.getEventName());
         }
         // Check world
-        if (!Util.inWorld(e.getLocation())) {
+        if (!Util.inWorld(e.getWorld())) {
             return;
         }
         // Check if this is on an island
@@ -2528,7 +2543,7 @@ public class IslandGuard implements Listener {
             plugin.getLogger().info("splash affected entities = " + e.getAffectedEntities());
             //plugin.getLogger().info("splash hit entity = " + e.getHitEntity());
         }
-        if (!Util.inWorld(e.getEntity().getLocation())) {
+        if (!Util.inWorld(e.getEntity())) {
             return;
         }
         // Try to get the shooter
@@ -2549,7 +2564,7 @@ public class IslandGuard implements Listener {
                 }
                 Island island = plugin.getIslands().getIslandAt(entity.getLocation());
                 boolean inNether = false;
-                if (entity.getWorld().equals(IslandWorld.getNetherWorld())) {
+                if (WorldRegistry.getRole(entity.getWorld()) == Role.NETHER) {
                     inNether = true;
                 }
                 // Monsters being hurt
@@ -19,8 +19,8 @@ import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 /**
  * @author tastybento
@@ -45,7 +45,7 @@ public class IslandGuard1_8 implements Listener {
      */
     private boolean actionAllowed(Player player, Location location, SettingsFlag flag) {
         // This permission bypasses protection
-        if (player.isOp() || VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (player.isOp() || plugin.getPermissions().has(player, Node.BYPASS_PROTECT)) {
             return true;
         }
         Island island = plugin.getIslands().getProtectedIslandAt(location);
@@ -105,8 +105,8 @@ public class IslandGuard1_8 implements Listener {
             return;
         }
         // This permission bypasses protection
-        if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
-                || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "craft.dirt")) {
+        if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
+                || plugin.getPermissions().has(e.getPlayer(), Node.CRAFT_DIRT)) {
             return;
         }
         // Prevents tilling of coarse dirt into dirt
@@ -135,7 +135,7 @@ public class IslandGuard1_8 implements Listener {
         if (!Util.inWorld(p)) {
             return;
         }
-        if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
             // You can do anything if you are Op
             return;
         }
@@ -188,7 +188,7 @@ public class IslandGuard1_8 implements Listener {
         }
         if (e.getDamager() instanceof Player) {
             Player p = (Player) e.getDamager();
-            if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
                 return;
             }
             // Check if on island
@@ -37,9 +37,10 @@ import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
-import us.tastybento.bskyblock.generators.IslandWorld;
+import us.tastybento.bskyblock.generators.WorldRegistry;
+import us.tastybento.bskyblock.generators.WorldRegistry.Role;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 /**
  * @author tastybento
@@ -74,7 +75,7 @@ public class IslandGuard1_9 implements Listener {
                 return;
             }
             // This permission bypasses protection
-            if (VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (plugin.getPermissions().has(player, Node.BYPASS_PROTECT)) {
                 return;
             }
             // Check island
@@ -110,7 +111,7 @@ public class IslandGuard1_9 implements Listener {
             return;
         }
         // This permission bypasses protection
-        if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
             return;
         }
         if (e.getRightClicked() != null && e.getRightClicked().getType().equals(EntityType.ENDER_CRYSTAL)) {
@@ -140,7 +141,7 @@ public class IslandGuard1_9 implements Listener {
         if (!Util.inWorld(p)) {
             return;
         }
-        if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
             // You can do anything if you are Op
             return;
         }
@@ -217,7 +218,7 @@ public class IslandGuard1_9 implements Listener {
             }
         }
         if (p != null) {
-            if (p.isOp() || VaultHelper.hasPerm(p, Settings.PERMPREFIX + "mod.bypassprotect")) {
+            if (p.isOp() || plugin.getPermissions().has(p, Node.BYPASS_PROTECT)) {
                 if (DEBUG) {
                     plugin.getLogger().info("1.9 " +"Bypassing protection");
                 }
@@ -324,8 +325,8 @@ public class IslandGuard1_9 implements Listener {
             return;
         }
         // This permission bypasses protection
-        if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
-                || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "craft.dirt")) {
+        if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
+                || plugin.getPermissions().has(e.getPlayer(), Node.CRAFT_DIRT)) {
             return;
         }
         // Prevents tilling of coarse dirt into dirt
@@ -354,7 +355,7 @@ public class IslandGuard1_9 implements Listener {
             plugin.getLogger().info("1.9 id = " + e.getAreaEffectCloud().getEntityId());
             plugin.getLogger().info("1.9 hit entity = " + e.getHitEntity());
         }
-        if (!Util.inWorld(e.getEntity().getLocation())) {
+        if (!Util.inWorld(e.getEntity())) {
             return;
         }
         // Try to get the shooter
@@ -377,7 +378,7 @@ public class IslandGuard1_9 implements Listener {
             plugin.getLogger().info("1.9 lingering potion cause = " + e.getCause());
             plugin.getLogger().info("1.9 lingering potion damager = " + e.getDamager());
         }
-        if (!Util.inWorld(e.getEntity().getLocation())) {
+        if (!Util.inWorld(e.getEntity())) {
             return;
         }
         if (e.getEntity() == null || e.getEntity().getUniqueId() == null) {
@@ -393,7 +394,7 @@ public class IslandGuard1_9 implements Listener {
             }
             Island island = plugin.getIslands().getIslandAt(e.getEntity().getLocation());
             boolean inNether = false;
-            if (e.getEntity().getWorld().equals(IslandWorld.getNetherWorld())) {
+            if (WorldRegistry.getRole(e.getEntity().getWorld()) == Role.NETHER) {
                 inNether = true;
             }
             // Monsters being hurt
@@ -453,7 +454,7 @@ public class IslandGuard1_9 implements Listener {
             return actionAllowed(location, flag);
         }
         // This permission bypasses protection
-        if (player.isOp() || VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")) {
+        if (player.isOp() || plugin.getPermissions().has(player, Node.BYPASS_PROTECT)) {
             return true;
         }
         Island island = plugin.getIslands().getProtectedIslandAt(location);
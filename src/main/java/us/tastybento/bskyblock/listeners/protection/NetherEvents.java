@@ -21,9 +21,11 @@ import org.bukkit.util.Vector;
 import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.generators.IslandWorld;
+import us.tastybento.bskyblock.generators.WorldRegistry;
+import us.tastybento.bskyblock.generators.WorldRegistry.Role;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.SafeSpotTeleport;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 public class NetherEvents implements Listener {
     private final BSkyBlock plugin;
@@ -115,9 +117,9 @@ public class NetherEvents implements Listener {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: " + e.getEventName());
         // plugin.getLogger().info("Block break");
-        if ((e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_nether") && !Settings.netherIslands)
-                || e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_the_end")) {
-            if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+        Role role = WorldRegistry.getRole(e.getPlayer().getWorld());
+        if ((role == Role.NETHER && !Settings.netherIslands) || role == Role.END) {
+            if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                 return;
             }
             if (DEBUG)
@@ -140,9 +142,9 @@ public class NetherEvents implements Listener {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: " + e.getEventName());
         if (!Settings.netherIslands) {
-            if (e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_nether")
-                    || e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_the_end")) {
-                if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            Role role = WorldRegistry.getRole(e.getPlayer().getWorld());
+            if (role == Role.NETHER || role == Role.END) {
+                if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                     return;
                 }
                 if (!awayFromSpawn(e.getPlayer()) && !e.getPlayer().isOp()) {
@@ -157,9 +159,9 @@ public class NetherEvents implements Listener {
         if (DEBUG)
             plugin.getLogger().info("DEBUG: " + e.getEventName());
         if (!Settings.netherIslands) {
-            if (e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_nether")
-                    || e.getPlayer().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_the_end")) {
-                if (VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")) {
+            Role role = WorldRegistry.getRole(e.getPlayer().getWorld());
+            if (role == Role.NETHER || role == Role.END) {
+                if (plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)) {
                     return;
                 }
                 if (!awayFromSpawn(e.getPlayer()) && !e.getPlayer().isOp()) {
@@ -186,8 +188,7 @@ public class NetherEvents implements Listener {
             return;
         }
         // Check world
-        if (!e.getEntity().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_nether")
-                || e.getEntity().getWorld().getName().equalsIgnoreCase(Settings.worldName + "_the_end")) {
+        if (WorldRegistry.getRole(expl.getWorld()) != Role.NETHER) {
             return;
         }
         Location spawn = e.getLocation().getWorld().getSpawnLocation();
@@ -214,7 +215,7 @@ public class NetherEvents implements Listener {
             return;
         }
         // Check world
-        if (!e.getLocation().getWorld().equals(IslandWorld.getNetherWorld())) {
+        if (WorldRegistry.getRole(e.getWorld()) != Role.NETHER) {
             return;
         }
         for (BlockState b : e.getBlocks()) {
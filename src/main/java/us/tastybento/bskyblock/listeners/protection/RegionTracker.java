@@ -0,0 +1,133 @@
+package us.tastybento.bskyblock.listeners.protection;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import us.tastybento.bskyblock.BSkyBlock;
+import us.tastybento.bskyblock.database.managers.island.IslandCache.ProtectedArea;
+import us.tastybento.bskyblock.database.objects.Island;
+
+/**
+ * Remembers which island protection area, if any, each online player is in and whether they are kept out of it.
+ * While a player stays inside the area worked out last time, and no island protection has changed since,
+ * a move can be checked with a few int comparisons instead of island lookups.
+ * Areas are worked out from the island records, so a move never loads an island. The full island is only
+ * loaded when it is needed, e.g., to say the player is entering, and by then it has usually been loaded in the background.
+ * Main thread only.
+ */
+class RegionTracker {
+
+    /**
+     * An area where the island protection is the same everywhere
+     */
+    static class Region {
+        private final World world;
+        private final int minX;
+        private final int minZ;
+        private final int maxX;
+        private final int maxZ;
+        private final int version;
+        // The island protected area this is, or null
+        private final ProtectedArea area;
+
+        private Region(World world, int[] bounds, int version, ProtectedArea area) {
+            this.world = world;
+            this.minX = bounds[0];
+            this.minZ = bounds[1];
+            this.maxX = bounds[2];
+            this.maxZ = bounds[3];
+            this.version = version;
+            this.area = area;
+        }
+
+        /**
+         * @param location
+         * @return true if the location is in this area
+         */
+        boolean contains(Location location) {
+            int x = location.getBlockX();
+            int z = location.getBlockZ();
+            return x >= minX && x <= maxX && z >= minZ && z <= maxZ && location.getWorld() == world;
+        }
+
+        /**
+         * @return true if no island protection has changed since this was worked out
+         */
+        boolean isCurrent() {
+            return version == Island.getProtectionVersion();
+        }
+
+        /**
+         * @return the island protected area this is, or null
+         */
+        ProtectedArea getArea() {
+            return area;
+        }
+
+        /**
+         * @return true if the player must be kept out of this area. Ops are not taken into account.
+         */
+        boolean isKeptOut() {
+            return area != null && area.isKeptOut();
+        }
+    }
+
+    private final BSkyBlock plugin;
+    private final HashMap<UUID, Region> regions = new HashMap<>();
+    // Reused for every lookup
+    private final int[] bounds = new int[4];
+
+    /**
+     * @param plugin
+     */
+    RegionTracker(BSkyBlock plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the area the player is in at location. The last area set for the player is used if it still holds,
+     * otherwise the islands are looked up.
+     * @param player
+     * @param location
+     * @return region
+     */
+    Region getRegion(Player player, Location location) {
+        Region region = regions.get(player.getUniqueId());
+        if (region != null && region.isCurrent() && region.contains(location)) {
+            return region;
+        }
+        // Read the version first, so that a change made during the lookup makes it look again next time
+        int version = Island.getProtectionVersion();
+        ProtectedArea area = plugin.getIslands().getProtectedAreaAt(location, player.getUniqueId(), bounds);
+        return new Region(location.getWorld(), bounds, version, area);
+    }
+
+    /**
+     * @param region
+     * @return the full island whose protected area the region is, or null. This may load the island.
+     */
+    Island getIsland(Region region) {
+        return region.getArea() == null ? null : plugin.getIslands().getIsland(region.getArea());
+    }
+
+    /**
+     * Remembers the area the player is now in
+     * @param playerUUID
+     * @param region
+     */
+    void setRegion(UUID playerUUID, Region region) {
+        regions.put(playerUUID, region);
+    }
+
+    /**
+     * Forgets the player, e.g., when they log out
+     * @param playerUUID
+     */
+    void remove(UUID playerUUID) {
+        regions.remove(playerUUID);
+    }
+}
@@ -17,8 +17,8 @@ import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
 import us.tastybento.bskyblock.database.objects.Island;
 import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
+import us.tastybento.bskyblock.util.PermissionCache.Node;
 import us.tastybento.bskyblock.util.Util;
-import us.tastybento.bskyblock.util.VaultHelper;
 
 /**
  * @author tastybento
@@ -86,7 +86,7 @@ public class VisitorGuard implements Listener {
         }
         Island island = plugin.getIslands().getIslandAt(e.getItemDrop().getLocation());
         if ((island != null && island.getFlag(SettingsFlag.ITEM_DROP)) 
-                || e.getPlayer().isOp() || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
+                || e.getPlayer().isOp() || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
                 || plugin.getIslands().locationIsOnIsland(e.getPlayer(), e.getItemDrop().getLocation())) {
             return;
         }
@@ -104,7 +104,7 @@ public class VisitorGuard implements Listener {
             plugin.getLogger().info("Visitor command " + e.getEventName() + ": " + e.getMessage());
         }
         if (!Util.inWorld(e.getPlayer()) || e.getPlayer().isOp()
-                || VaultHelper.hasPerm(e.getPlayer(), Settings.PERMPREFIX + "mod.bypassprotect")
+                || plugin.getPermissions().has(e.getPlayer(), Node.BYPASS_PROTECT)
                 || plugin.getIslands().locationIsOnIsland(e.getPlayer(), e.getPlayer().getLocation())) {
             //plugin.getLogger().info("player is not in world or op etc.");
             return;
@@ -177,7 +177,7 @@ public class VisitorGuard implements Listener {
             }
             Island island = plugin.getIslands().getIslandAt(e.getItem().getLocation());
             if ((island != null && island.getFlag(SettingsFlag.ITEM_PICKUP)) 
-                    || player.isOp() || VaultHelper.hasPerm(player, Settings.PERMPREFIX + "mod.bypassprotect")
+                    || player.isOp() || plugin.getPermissions().has(player, Node.BYPASS_PROTECT)
                     || plugin.getIslands().locationIsOnIsland(player, e.getItem().getLocation())) {
                 return;
             }
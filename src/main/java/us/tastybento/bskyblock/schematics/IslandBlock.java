@@ -250,6 +250,13 @@ public class IslandBlock {
         this.data = b;
     }
 
+    /**
+     * @return true if this block has a sign, banner, spawner or chest contents to paste
+     */
+    public boolean hasTileData() {
+        return signText != null || banner != null || spawnerBlockType != null || !chestContents.isEmpty();
+    }
+
     /**
      * Sets this block up with all the banner data required
      * @param map
@@ -560,4 +567,25 @@ public class IslandBlock {
     public Vector getVector() {
         return new Vector(x,y,z);
     }
+
+    /**
+     * @return x in the schematic
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return y in the schematic
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return z in the schematic
+     */
+    public int getZ() {
+        return z;
+    }
 }
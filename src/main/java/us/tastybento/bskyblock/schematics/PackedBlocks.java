@@ -0,0 +1,214 @@
+package us.tastybento.bskyblock.schematics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.util.Vector;
+
+import us.tastybento.bskyblock.util.nms.NMSAbstraction;
+
+/**
+ * The blocks of a schematic, in the order they are pasted, packed into arrays instead of one object per block.
+ * Each block is a position and an index into a palette of type id and data pairs. Blocks that carry tile entity
+ * data, e.g., signs, chests, banners and spawners, also have an IslandBlock in a side table.
+ */
+class PackedBlocks {
+
+    private final int width;
+    private final int length;
+    private int size;
+    // Position of each block as y * width * length + z * width + x
+    private int[] positions = new int[256];
+    // Palette index of each block
+    private short[] states = new short[256];
+    // Distinct blocks as typeId << 8 | data
+    private int[] palette = new int[0];
+    // Where each palette entry is, only while adding
+    private HashMap<Integer, Integer> paletteIndex = new HashMap<>();
+    // Paste order index of each block with tile entity data, ascending, and the data. Only the first tileCount are used.
+    private int[] tileSlots = new int[0];
+    private IslandBlock[] tiles = new IslandBlock[0];
+    private int tileCount;
+
+    /**
+     * @param width - schematic width
+     * @param length - schematic length
+     */
+    PackedBlocks(int width, int length) {
+        this.width = width;
+        this.length = length;
+    }
+
+    /**
+     * Adds a block to the end of the paste order
+     * @param x
+     * @param y
+     * @param z
+     * @param typeId
+     * @param data
+     * @param tile - tile entity data for this block, or null
+     */
+    void add(int x, int y, int z, int typeId, byte data, IslandBlock tile) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        positions[size] = (y * length + z) * width + x;
+        states[size] = (short)getState(typeId, data);
+        if (tile != null) {
+            if (tileCount == tileSlots.length) {
+                tileSlots = Arrays.copyOf(tileSlots, Math.max(16, tileCount * 2));
+                tiles = Arrays.copyOf(tiles, tileSlots.length);
+            }
+            tileSlots[tileCount] = size;
+            tiles[tileCount++] = tile;
+        }
+        size++;
+    }
+
+    private int getState(int typeId, byte data) {
+        int block = typeId << 8 | (data & 0xFF);
+        Integer state = paletteIndex.get(block);
+        if (state == null) {
+            state = palette.length;
+            palette = Arrays.copyOf(palette, state + 1);
+            palette[state] = block;
+            paletteIndex.put(block, state);
+        }
+        return state;
+    }
+
+    /**
+     * Frees the spare room left from adding blocks
+     */
+    void trim() {
+        positions = Arrays.copyOf(positions, size);
+        states = Arrays.copyOf(states, size);
+        tileSlots = Arrays.copyOf(tileSlots, tileCount);
+        tiles = Arrays.copyOf(tiles, tileCount);
+        paletteIndex = null;
+    }
+
+    /**
+     * @return number of blocks
+     */
+    int size() {
+        return size;
+    }
+
+    private int getTypeId(int i) {
+        return palette[states[i] & 0xFFFF] >>> 8;
+    }
+
+    /**
+     * Pastes blocks from to end in the paste order
+     * @param from - first block
+     * @param end - one after the last block
+     * @param nms
+     * @param blockLoc - where the schematic origin goes
+     * @param usePhysics
+     * @param biome
+     * @return end
+     */
+    int paste(int from, int end, NMSAbstraction nms, Location blockLoc, boolean usePhysics, Biome biome) {
+        World world = blockLoc.getWorld();
+        double originX = blockLoc.getX();
+        double originY = blockLoc.getY();
+        double originZ = blockLoc.getZ();
+        int area = width * length;
+        // Biomes are set per column, so only set them when the column changes
+        int lastColumn = -1;
+        int tile = Arrays.binarySearch(tileSlots, 0, tileCount, from);
+        if (tile < 0) {
+            tile = -tile - 1;
+        }
+        for (int i = from; i < end; i++) {
+            if (tile < tileCount && tileSlots[tile] == i) {
+                tiles[tile++].paste(nms, blockLoc, usePhysics, biome);
+                lastColumn = -1;
+                continue;
+            }
+            int position = positions[i];
+            int column = position % area;
+            int x = column % width;
+            int z = column / width;
+            int y = position / area;
+            int blockX = Location.locToBlock(originX + x);
+            int blockZ = Location.locToBlock(originZ + z);
+            if (column != lastColumn) {
+                world.setBiome(blockX, blockZ, biome);
+                lastColumn = column;
+            }
+            // Getting the block loads its chunk
+            Block block = world.getBlockAt(blockX, Location.locToBlock(originY + y), blockZ);
+            int state = palette[states[i] & 0xFFFF];
+            nms.setBlockSuperFast(block, state >>> 8, (byte)state, usePhysics);
+        }
+        return end;
+    }
+
+    /**
+     * Drops all the air blocks
+     */
+    void removeAir() {
+        int kept = 0;
+        int tile = 0;
+        int keptTiles = 0;
+        for (int i = 0; i < size; i++) {
+            boolean isTile = tile < tileCount && tileSlots[tile] == i;
+            if (isTile || getTypeId(i) != 0) {
+                if (isTile) {
+                    tileSlots[keptTiles] = kept;
+                    tiles[keptTiles++] = tiles[tile++];
+                }
+                positions[kept] = positions[i];
+                states[kept++] = states[i];
+            }
+        }
+        size = kept;
+        positions = Arrays.copyOf(positions, kept);
+        states = Arrays.copyOf(states, kept);
+        tileSlots = Arrays.copyOf(tileSlots, keptTiles);
+        tiles = Arrays.copyOf(tiles, keptTiles);
+        tileCount = keptTiles;
+    }
+
+    /**
+     * Finds the first block of this type in the paste order and turns it into air
+     * @param typeId
+     * @return position of the block in the schematic, or null if there is none
+     */
+    Vector replaceWithAir(int typeId) {
+        for (int i = 0; i < size; i++) {
+            if (getTypeId(i) == typeId) {
+                int air = -1;
+                for (int j = 0; j < palette.length; j++) {
+                    if (palette[j] == 0) {
+                        air = j;
+                        break;
+                    }
+                }
+                if (air < 0) {
+                    air = palette.length;
+                    palette = Arrays.copyOf(palette, air + 1);
+                }
+                states[i] = (short)air;
+                int tile = Arrays.binarySearch(tileSlots, 0, tileCount, i);
+                if (tile >= 0) {
+                    // Air has no tile entity
+                    System.arraycopy(tileSlots, tile + 1, tileSlots, tile, tileCount - tile - 1);
+                    System.arraycopy(tiles, tile + 1, tiles, tile, tileCount - tile - 1);
+                    tiles[--tileCount] = null;
+                }
+                int area = width * length;
+                int column = positions[i] % area;
+                return new Vector(column % width, positions[i] / area, column / width);
+            }
+        }
+        return null;
+    }
+}
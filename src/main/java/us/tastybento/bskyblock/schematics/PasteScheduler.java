@@ -0,0 +1,202 @@
+package us.tastybento.bskyblock.schematics;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.block.Biome;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import us.tastybento.bskyblock.BSkyBlock;
+import us.tastybento.bskyblock.config.Settings;
+import us.tastybento.bskyblock.util.Util;
+import us.tastybento.bskyblock.util.nms.NMSAbstraction;
+
+/**
+ * Pastes schematic blocks a few at a time so that making islands does not lag the server.
+ * Each tick, every pending paste gets one batch of blocks, then the pastes take turns a batch at a time
+ * until the paste budget in the config is used up. When all the blocks of a paste are down, its finishing
+ * task is run. Players waiting for a paste are told how far along it is every few seconds.
+ * Main thread only.
+ */
+public class PasteScheduler {
+
+    /**
+     * The blocks of one schematic being pasted at one place
+     */
+    private static class Job {
+        private final UUID owner;
+        private final PackedBlocks blocks;
+        private final NMSAbstraction nms;
+        private final Location blockLoc;
+        private final boolean usePhysics;
+        private final Biome biome;
+        private final Runnable whenPasted;
+        // Index of the next block to paste
+        private int next;
+
+        private Job(UUID owner, PackedBlocks blocks, NMSAbstraction nms, Location blockLoc, boolean usePhysics, Biome biome, Runnable whenPasted) {
+            this.owner = owner;
+            this.blocks = blocks;
+            this.nms = nms;
+            this.blockLoc = blockLoc;
+            this.usePhysics = usePhysics;
+            this.biome = biome;
+            this.whenPasted = whenPasted;
+        }
+
+        /**
+         * Pastes the next batch of blocks
+         * @return true if all the blocks are pasted
+         */
+        private boolean paste() {
+            int size = blocks.size();
+            next = blocks.paste(next, Math.min(next + BATCH, size), nms, blockLoc, usePhysics, biome);
+            return next >= size;
+        }
+
+        /**
+         * @return how much of the paste is done, 0 to 100
+         */
+        private int getProgress() {
+            return blocks.size() == 0 ? 100 : (int)(next * 100L / blocks.size());
+        }
+    }
+
+    private static final boolean DEBUG = false;
+    // Blocks pasted between looks at the clock
+    private static final int BATCH = 64;
+    // How often waiting players are told how far along their paste is, in ticks
+    private static final int PROGRESS_PERIOD = 40;
+    private BSkyBlock plugin;
+    private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+    private BukkitTask task;
+    private int ticks;
+
+    /**
+     * @param plugin
+     */
+    public PasteScheduler(BSkyBlock plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Queues blocks to be pasted. The blocks must not change until they are done.
+     * @param owner - player the paste is for, may be null
+     * @param blocks
+     * @param nms
+     * @param blockLoc - where the schematic origin goes
+     * @param usePhysics
+     * @param biome
+     * @param whenPasted - run on the main thread once all the blocks are down
+     */
+    void paste(UUID owner, PackedBlocks blocks, NMSAbstraction nms, Location blockLoc, boolean usePhysics, Biome biome, Runnable whenPasted) {
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: queueing paste of " + blocks.size() + " blocks at " + blockLoc);
+        jobs.add(new Job(owner, blocks, nms, blockLoc, usePhysics, biome, whenPasted));
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, () -> tick(), 0L, 1L);
+        }
+    }
+
+    /**
+     * Pastes all the pending blocks now, e.g., when BSkyBlock is being disabled, so that no island is left half made
+     */
+    public void finishAll() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            ticks = 0;
+        }
+        if (DEBUG)
+            plugin.getLogger().info("DEBUG: finishing " + jobs.size() + " pastes");
+        Job job;
+        while ((job = jobs.poll()) != null) {
+            try {
+                while (!job.paste()) {
+                    // Keep going until it is all down
+                }
+                job.whenPasted.run();
+            } catch (Exception e) {
+                plugin.getLogger().severe("Could not paste schematic at " + job.blockLoc);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void tick() {
+        long deadline = System.nanoTime() + Math.max(0, Settings.pasteBudget) * 1000000L;
+        // Every paste that was pending at the start of the tick gets one turn, whatever the budget
+        int firstRound = jobs.size();
+        Job job;
+        while ((job = jobs.poll()) != null) {
+            boolean done;
+            try {
+                done = job.paste();
+            } catch (Exception e) {
+                plugin.getLogger().severe("Could not paste schematic at " + job.blockLoc);
+                e.printStackTrace();
+                done = true;
+            }
+            if (done) {
+                if (DEBUG)
+                    plugin.getLogger().info("DEBUG: paste at " + job.blockLoc + " done");
+                job.whenPasted.run();
+            } else {
+                jobs.add(job);
+            }
+            if (--firstRound <= 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        if (jobs.isEmpty()) {
+            task.cancel();
+            task = null;
+            ticks = 0;
+        } else if (++ticks % PROGRESS_PERIOD == 0) {
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: " + jobs.size() + " pastes pending");
+            tellProgress();
+        }
+    }
+
+    /**
+     * Tells each online player with a pending paste how far along it is
+     */
+    private void tellProgress() {
+        Set<UUID> told = new HashSet<>();
+        for (Job job : jobs) {
+            if (job.owner != null && told.add(job.owner)) {
+                Player player = plugin.getServer().getPlayer(job.owner);
+                if (player != null) {
+                    Util.sendMessage(player, ChatColor.GREEN + plugin.getLocale(job.owner).get("island.pasting")
+                            .replace("[percent]", String.valueOf(getProgress(job.owner))));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param owner
+     * @return how much of the first pending paste for this player is done, 0 to 100, or -1 if there is none
+     */
+    public int getProgress(UUID owner) {
+        for (Job job : jobs) {
+            if (owner.equals(job.owner)) {
+                return job.getProgress();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of pastes waiting to finish
+     */
+    public int getPending() {
+        return jobs.size();
+    }
+}
@@ -1,14 +1,14 @@
 package us.tastybento.bskyblock.schematics;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -59,13 +59,13 @@ import us.tastybento.bskyblock.util.DeleteIslandChunks;
 import us.tastybento.bskyblock.util.Util;
 import us.tastybento.bskyblock.util.VaultHelper;
 import us.tastybento.bskyblock.util.nms.NMSAbstraction;
-import us.tastybento.org.jnbt.ByteArrayTag;
 import us.tastybento.org.jnbt.ByteTag;
 import us.tastybento.org.jnbt.CompoundTag;
 import us.tastybento.org.jnbt.FloatTag;
 import us.tastybento.org.jnbt.IntTag;
 import us.tastybento.org.jnbt.ListTag;
-import us.tastybento.org.jnbt.NBTInputStream;
+import us.tastybento.org.jnbt.NBTConstants;
+import us.tastybento.org.jnbt.NBTReader;
 import us.tastybento.org.jnbt.ShortTag;
 import us.tastybento.org.jnbt.StringTag;
 import us.tastybento.org.jnbt.Tag;
@@ -112,7 +112,7 @@ public class Schematic {
     private Map<String, Art> paintingList = new HashMap<String, Art>();
     private Map<Byte, BlockFace> facingList = new HashMap<Byte, BlockFace>();
     private Map<Byte, Rotation> rotationList = new HashMap<Byte, Rotation>();
-    private List<IslandBlock> islandBlocks;
+    private PackedBlocks islandBlocks;
     //private boolean pasteAir;
     private int durability;
     private int levelHandicap;
@@ -283,19 +283,99 @@ public class Schematic {
         this.file = file;
         // Try to load the file
         try {
-            FileInputStream stream = new FileInputStream(file);
-            // InputStream is = new DataInputStream(new
-            // GZIPInputStream(stream));
-            NBTInputStream nbtStream = new NBTInputStream(stream);
-
-            CompoundTag schematicTag = (CompoundTag) nbtStream.readTag();
-            nbtStream.close();
-            stream.close();
-            if (!schematicTag.getName().equals("Schematic")) {
-                throw new IllegalArgumentException("Tag \"Schematic\" does not exist or is not first");
-            }
+            Map<String, Tag> schematic;
+            SchematicCache cache = SchematicCache.read(file);
+            if (cache != null) {
+                // The blocks were cached the last time this file was loaded, so there is no need to parse it
+                width = cache.getWidth();
+                length = cache.getLength();
+                height = cache.getHeight();
+                blocks = cache.getBlocks();
+                data = cache.getData();
+                schematic = cache.getTags();
+            } else {
+                // Taken before the file is read, so a change while it is read is seen next time
+                long fileLength = file.length();
+                long lastModified = file.lastModified();
+                byte[] fileBytes = Files.readAllBytes(file.toPath());
+                // Stream the file so that the block arrays are read as they are and unused tags are skipped
+                schematic = new HashMap<String, Tag>();
+                byte[] blockId = null;
+                byte[] addId = new byte[0];
+                data = null;
+                NBTReader reader = new NBTReader(new ByteArrayInputStream(fileBytes));
+                try {
+                    if (reader.next() != NBTConstants.TYPE_COMPOUND || !reader.getName().equals("Schematic")) {
+                        throw new IllegalArgumentException("Tag \"Schematic\" does not exist or is not first");
+                    }
+                    reader.enterCompound();
+                    while (reader.next() != NBTConstants.TYPE_END) {
+                        switch (reader.getName()) {
+                        case "Blocks":
+                            blockId = reader.readByteArray();
+                            break;
+                        case "Data":
+                            data = reader.readByteArray();
+                            break;
+                        case "AddBlocks":
+                            addId = reader.readByteArray();
+                            break;
+                        case "Width":
+                        case "Length":
+                        case "Height":
+                        case "Materials":
+                        case "WEOriginX":
+                        case "WEOriginY":
+                        case "WEOriginZ":
+                        case "Entities":
+                        case "TileEntities":
+                            schematic.put(reader.getName(), reader.readTag());
+                            break;
+                        default:
+                            // e.g., Biomes and the WorldEdit offsets are not used
+                            reader.skip();
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
 
-            Map<String, Tag> schematic = schematicTag.getValue();
+                if (blockId == null) {
+                    throw new IllegalArgumentException("Schematic file is missing a \"Blocks\" tag");
+                }
+                if (data == null) {
+                    throw new IllegalArgumentException("Schematic file is missing a \"Data\" tag");
+                }
+
+                width = getChildTag(schematic, "Width", ShortTag.class).getValue();
+                length = getChildTag(schematic, "Length", ShortTag.class).getValue();
+                height = getChildTag(schematic, "Height", ShortTag.class).getValue();
+
+                String materials = getChildTag(schematic, "Materials", StringTag.class).getValue();
+                if (!materials.equals("Alpha")) {
+                    throw new IllegalArgumentException("Schematic file is not an Alpha schematic");
+                }
+
+                blocks = new short[blockId.length]; // Have to later combine IDs
+                // We support 4096 block IDs using the same method as vanilla
+                // Minecraft, where
+                // the highest 4 bits are stored in a separate byte array.
+                // Combine the AddBlocks data with the first 8-bit block ID
+                for (int index = 0; index < blockId.length; index++) {
+                    if ((index >> 1) >= addId.length) { // No corresponding
+                        // AddBlocks index
+                        blocks[index] = (short) (blockId[index] & 0xFF);
+                    } else {
+                        if ((index & 1) == 0) {
+                            blocks[index] = (short) (((addId[index >> 1] & 0x0F) << 8) + (blockId[index] & 0xFF));
+                        } else {
+                            blocks[index] = (short) (((addId[index >> 1] & 0xF0) << 4) + (blockId[index] & 0xFF));
+                        }
+                    }
+                }
+                // Cache the blocks for next time. The other tags are small, so keep them as they are.
+                new SchematicCache(width, length, height, blocks, data, schematic).write(file, fileLength, lastModified, SchematicCache.hash(fileBytes));
+            }
 
             Vector origin = null;
             try {
@@ -315,43 +395,6 @@ public class Schematic {
             //Bukkit.getLogger().info("Origin = " + origin);
 
 
-            if (!schematic.containsKey("Blocks")) {
-                throw new IllegalArgumentException("Schematic file is missing a \"Blocks\" tag");
-            }
-
-            width = getChildTag(schematic, "Width", ShortTag.class).getValue();
-            length = getChildTag(schematic, "Length", ShortTag.class).getValue();
-            height = getChildTag(schematic, "Height", ShortTag.class).getValue();
-
-            String materials = getChildTag(schematic, "Materials", StringTag.class).getValue();
-            if (!materials.equals("Alpha")) {
-                throw new IllegalArgumentException("Schematic file is not an Alpha schematic");
-            }
-
-            byte[] blockId = getChildTag(schematic, "Blocks", ByteArrayTag.class).getValue();
-            data = getChildTag(schematic, "Data", ByteArrayTag.class).getValue();
-            byte[] addId = new byte[0];
-            blocks = new short[blockId.length]; // Have to later combine IDs
-            // We support 4096 block IDs using the same method as vanilla
-            // Minecraft, where
-            // the highest 4 bits are stored in a separate byte array.
-            if (schematic.containsKey("AddBlocks")) {
-                addId = getChildTag(schematic, "AddBlocks", ByteArrayTag.class).getValue();
-            }
-
-            // Combine the AddBlocks data with the first 8-bit block ID
-            for (int index = 0; index < blockId.length; index++) {
-                if ((index >> 1) >= addId.length) { // No corresponding
-                    // AddBlocks index
-                    blocks[index] = (short) (blockId[index] & 0xFF);
-                } else {
-                    if ((index & 1) == 0) {
-                        blocks[index] = (short) (((addId[index >> 1] & 0x0F) << 8) + (blockId[index] & 0xFF));
-                    } else {
-                        blocks[index] = (short) (((addId[index >> 1] & 0xF0) << 4) + (blockId[index] & 0xFF));
-                    }
-                }
-            }
             // Entities
             List<Tag> entities = getChildTag(schematic, "Entities", ListTag.class).getValue();
             for (Tag tag : entities) {
@@ -550,7 +593,6 @@ public class Schematic {
         // Find top most bedrock - this is the key stone
         // Find top most chest
         // Find top most grass
-        List<Vector> grassBlocks = new ArrayList<Vector>();
         for (int x = 0; x < width; ++x) {
             for (int y = 0; y < height; ++y) {
                 for (int z = 0; z < length; ++z) {
@@ -581,8 +623,10 @@ public class Schematic {
                             // + welcomeSign.toString());
                         }
                     } else if (blocks[index] == 2) {
-                        // Grass
-                        grassBlocks.add(new Vector(x,y,z));
+                        // Top most grass
+                        if (topGrass == null || topGrass.getY() < y) {
+                            topGrass = new Vector(x, y, z);
+                        }
                     }
                 }
             }
@@ -591,31 +635,6 @@ public class Schematic {
             Bukkit.getLogger().severe("Schematic must have at least one bedrock in it!");
             throw new IOException();
         }
-        // Find other key blocks
-        if (!grassBlocks.isEmpty()) {
-            // Sort by height
-            List<Vector> sorted = new ArrayList<Vector>();
-            for (Vector v : grassBlocks) {
-                //if (GridManager.isSafeLocation(v.toLocation(world))) {
-                // Add to sorted list
-                boolean inserted = false;
-                for (int i = 0; i < sorted.size(); i++) {
-                    if (v.getBlockY() > sorted.get(i).getBlockY()) {
-                        sorted.add(i, v);
-                        inserted = true;
-                        break;
-                    }
-                }
-                if (!inserted) {
-                    // just add to the end of the list
-                    sorted.add(v);
-                }
-            }
-            topGrass = sorted.get(0);
-        } else {
-            topGrass = null;
-        }
-
         // Preload the blocks
         prePasteSchematic(blocks, data);
     }
@@ -766,6 +785,20 @@ public class Schematic {
      * @param partner
      */
     public void pasteSchematic(final Location loc, final Player player, boolean teleport, final PasteReason reason, Island oldIsland) {
+        pasteSchematic(loc, player, teleport, reason, oldIsland, null);
+    }
+
+    /**
+     * This method pastes a schematic. The blocks are pasted over the next few ticks, so anything that needs
+     * the island to be there must be done in whenPasted.
+     * @param loc
+     * @param player
+     * @param teleport
+     * @param reason
+     * @param oldIsland
+     * @param whenPasted - run once the island is pasted, may be null
+     */
+    public void pasteSchematic(final Location loc, final Player player, boolean teleport, final PasteReason reason, Island oldIsland, final Runnable whenPasted) {
         // If this is not a file schematic, paste the default island
         if (this.file == null) {
             if (Settings.GAMETYPE == GameType.ACIDISLAND) {
@@ -774,6 +807,9 @@ public class Schematic {
                 loc.getBlock().setType(Material.BEDROCK);
                 BSkyBlock.getPlugin().getLogger().severe("Missing schematic - using bedrock block only");
             }
+            if (whenPasted != null) {
+                whenPasted.run();
+            }
             return;
         }
         World world = loc.getWorld();
@@ -781,11 +817,32 @@ public class Schematic {
         //Location blockLoc = new Location(world, loc.getX(), Settings.island_level, loc.getZ());
         blockLoc.subtract(bedrock);
         //plugin.getLogger().info("DEBUG: blockloc = " + blockLoc);
-        // Paste the island blocks
-        //plugin.getLogger().info("DEBUG: islandBlock size (paste) = " + islandBlocks.size());
-        for (IslandBlock b : islandBlocks) {
-            b.paste(nms, blockLoc, this.usePhysics, biome);
+        if (teleport) {
+            // Keep the player's data in memory until they have been teleported
+            plugin.getPlayers().setInTeleport(player.getUniqueId());
         }
+        // Paste the island blocks over the next few ticks, then do the rest
+        //plugin.getLogger().info("DEBUG: islandBlock size (paste) = " + islandBlocks.size());
+        plugin.getSchematics().getPasteScheduler().paste(player.getUniqueId(), islandBlocks, nms, blockLoc, this.usePhysics, biome, () -> {
+            finishPaste(loc, blockLoc, player, teleport, reason, oldIsland);
+            if (whenPasted != null) {
+                whenPasted.run();
+            }
+        });
+    }
+
+    /**
+     * Pastes the entities and sets up the sign, chest and companion once the blocks of a schematic are down.
+     * Teleports the player to the island if required.
+     * @param loc
+     * @param blockLoc
+     * @param player
+     * @param teleport
+     * @param reason
+     * @param oldIsland
+     */
+    private void finishPaste(final Location loc, final Location blockLoc, final Player player, boolean teleport, final PasteReason reason, Island oldIsland) {
+        World world = loc.getWorld();
         // PASTE ENTS
         //Bukkit.getLogger().info("Block loc = " + blockLoc);
         if (pasteEntities) {
@@ -1024,8 +1081,8 @@ public class Schematic {
             }
         }
 
-        if (teleport) {
-            plugin.getPlayers().setInTeleport(player.getUniqueId());
+        // Nothing more can be scheduled if the paste was finished while BSkyBlock is being disabled
+        if (teleport && plugin.isEnabled()) {
             //player.setInvulnerable(true);
             // Check distance. If it's too close, warp to spawn to try to clear the client's cache
             //plugin.getLogger().info("DEBUG: view dist = " + plugin.getServer().getViewDistance());
@@ -1043,13 +1100,12 @@ public class Schematic {
 
                 @Override
                 public void run() {
-                    plugin.getIslands().homeTeleport(player);
                     plugin.getPlayers().removeInTeleport(player.getUniqueId());
-                    // Reset any inventory, etc. This is done AFTER the teleport because other plugins may switch out inventory based on world
-                    plugin.getPlayers().resetPlayer(player);
-                    // Reset money if required
-                    if (Settings.resetMoney) {
-                        resetMoney(player);
+                    if (player.isOnline()) {
+                        welcomeHome(player);
+                    } else {
+                        // They left while the island was being made, so do this when they are next back
+                        plugin.getPlayers().runOnJoin(player.getUniqueId(), joined -> welcomeHome(joined));
                     }
                     // Show fancy titles!
                     /*
@@ -1104,7 +1160,7 @@ public class Schematic {
                 }}, 10L);
 
         }
-        if (!islandCompanion.isEmpty() && grass != null) {
+        if (!islandCompanion.isEmpty() && grass != null && plugin.isEnabled()) {
             Bukkit.getServer().getScheduler().runTaskLater(BSkyBlock.getPlugin(), new Runnable() {
                 @Override
                 public void run() {
@@ -1126,13 +1182,15 @@ public class Schematic {
     }
     /**
      * This method prepares to pastes a schematic.
+     * The blocks are packed in the order they are pasted: a 16 x 16 column at a time, bottom up, so the paste scheduler
+     * works through the chunks in turn. Attachable blocks go after all the others.
      * @param blocks
      * @param data
      */
     @SuppressWarnings("deprecation")
     public void prePasteSchematic(short[] blocks, byte[] data) {
         //plugin.getLogger().info("DEBUG: prepaste ");
-        islandBlocks = new ArrayList<IslandBlock>();
+        islandBlocks = new PackedBlocks(width, length);
         Map<BlockVector, Map<String, Tag>> tileEntitiesMap = this.getTileEntitiesMap();
         // Start with non-attached blocks
         //plugin.getLogger().info("DEBUG: attachable size = " + attachable.size());
@@ -1140,42 +1198,47 @@ public class Schematic {
         //plugin.getLogger().info("DEBUG: non attachable");
         //plugin.getLogger().info("DEBUG: bedrock y = " + bedrock.getBlockY());
         //int count = 0;
-        for (int x = 0; x < width; ++x) {
-            for (int y = 0; y < height; ++y) {
-                for (int z = 0; z < length; ++z) {
-                    int index = y * width * length + z * width + x;
-                    // Only bother if this block is above ground zero and 
-                    // only bother with air if it is below sea level
-                    // TODO: need to check max world height too?
-                    int h = Settings.islandHeight + y - bedrock.getBlockY();
-                    if (h >= 0 && h < 255 && (blocks[index] != 0 || h < Settings.seaHeight)){
-                        // Only bother if the schematic blocks are within the range that y can be
-                        //plugin.getLogger().info("DEBUG: height " + (count++) + ":" +h);
-                        IslandBlock block = new IslandBlock(x, y, z);
-                        if (!attachable.contains((int)blocks[index]) || blocks[index] == 179) {
-                            if (Bukkit.getServer().getVersion().contains("(MC: 1.7") && blocks[index] == 179) {
-                                // Red sandstone - use red sand instead
-                                block.setBlock(12, (byte)1);
-                            } else {
-                                block.setBlock(blocks[index], data[index]);
-                            }
-                            // Tile Entities
-                            if (tileEntitiesMap.containsKey(new BlockVector(x, y, z))) {
-                                if (Util.isOnePointEight()) {
-                                    if (block.getTypeId() == Material.STANDING_BANNER.getId()) {
-                                        block.setBanner(tileEntitiesMap.get(new BlockVector(x, y, z)));
+        for (int columnX = 0; columnX < width; columnX += 16) {
+            for (int columnZ = 0; columnZ < length; columnZ += 16) {
+                for (int x = columnX; x < Math.min(columnX + 16, width); ++x) {
+                    for (int z = columnZ; z < Math.min(columnZ + 16, length); ++z) {
+                        for (int y = 0; y < height; ++y) {
+                            int index = y * width * length + z * width + x;
+                            // Only bother if this block is above ground zero and 
+                            // only bother with air if it is below sea level
+                            // TODO: need to check max world height too?
+                            int h = Settings.islandHeight + y - bedrock.getBlockY();
+                            if (h >= 0 && h < 255 && (blocks[index] != 0 || h < Settings.seaHeight)){
+                                // Only bother if the schematic blocks are within the range that y can be
+                                //plugin.getLogger().info("DEBUG: height " + (count++) + ":" +h);
+                                if (!attachable.contains((int)blocks[index]) || blocks[index] == 179) {
+                                    IslandBlock block = new IslandBlock(x, y, z);
+                                    if (Bukkit.getServer().getVersion().contains("(MC: 1.7") && blocks[index] == 179) {
+                                        // Red sandstone - use red sand instead
+                                        block.setBlock(12, (byte)1);
+                                    } else {
+                                        block.setBlock(blocks[index], data[index]);
                                     }
-                                }
-                                // Monster spawner blocks
-                                if (block.getTypeId() == Material.MOB_SPAWNER.getId()) {
-                                    block.setSpawnerType(tileEntitiesMap.get(new BlockVector(x, y, z)));
-                                } else if ((block.getTypeId() == Material.SIGN_POST.getId())) {
-                                    block.setSign(tileEntitiesMap.get(new BlockVector(x, y, z)));
-                                } else if (block.getTypeId() == Material.CHEST.getId()) {
-                                    block.setChest(nms, tileEntitiesMap.get(new BlockVector(x, y, z)));
+                                    // Tile Entities
+                                    Map<String, Tag> tileData = tileEntitiesMap.get(new BlockVector(x, y, z));
+                                    if (tileData != null) {
+                                        if (Util.isOnePointEight()) {
+                                            if (block.getTypeId() == Material.STANDING_BANNER.getId()) {
+                                                block.setBanner(tileData);
+                                            }
+                                        }
+                                        // Monster spawner blocks
+                                        if (block.getTypeId() == Material.MOB_SPAWNER.getId()) {
+                                            block.setSpawnerType(tileData);
+                                        } else if ((block.getTypeId() == Material.SIGN_POST.getId())) {
+                                            block.setSign(tileData);
+                                        } else if (block.getTypeId() == Material.CHEST.getId()) {
+                                            block.setChest(nms, tileData);
+                                        }
+                                    }
+                                    islandBlocks.add(x, y, z, block.getTypeId(), (byte)block.getData(), block.hasTileData() ? block : null);
                                 }
                             }
-                            islandBlocks.add(block);
                         }
                     }
                 }
@@ -1183,34 +1246,39 @@ public class Schematic {
         }
         //plugin.getLogger().info("Attachable blocks");
         // Second pass - just paste attachables and deal with chests etc.
-
-        for (int x = 0; x < width; ++x) {
-            for (int y = 0; y < height; ++y) {
-                for (int z = 0; z < length; ++z) {
-                    int h = Settings.islandHeight + y - bedrock.getBlockY();
-                    if (h >= 0 && h < 255){
-                        int index = y * width * length + z * width + x;
-                        IslandBlock block = new IslandBlock(x, y, z);
-                        if (attachable.contains((int)blocks[index])) {
-                            block.setBlock(blocks[index], data[index]);
-                            // Tile Entities
-                            if (tileEntitiesMap.containsKey(new BlockVector(x, y, z))) {
-                                if (Util.isOnePointEight()) {
-                                    if (block.getTypeId() == Material.WALL_BANNER.getId()) {
-                                        block.setBanner(tileEntitiesMap.get(new BlockVector(x, y, z)));
+        for (int columnX = 0; columnX < width; columnX += 16) {
+            for (int columnZ = 0; columnZ < length; columnZ += 16) {
+                for (int x = columnX; x < Math.min(columnX + 16, width); ++x) {
+                    for (int z = columnZ; z < Math.min(columnZ + 16, length); ++z) {
+                        for (int y = 0; y < height; ++y) {
+                            int h = Settings.islandHeight + y - bedrock.getBlockY();
+                            if (h >= 0 && h < 255){
+                                int index = y * width * length + z * width + x;
+                                if (attachable.contains((int)blocks[index])) {
+                                    IslandBlock block = new IslandBlock(x, y, z);
+                                    block.setBlock(blocks[index], data[index]);
+                                    // Tile Entities
+                                    Map<String, Tag> tileData = tileEntitiesMap.get(new BlockVector(x, y, z));
+                                    if (tileData != null) {
+                                        if (Util.isOnePointEight()) {
+                                            if (block.getTypeId() == Material.WALL_BANNER.getId()) {
+                                                block.setBanner(tileData);
+                                            }
+                                        }
+                                        // Wall Sign
+                                        if (block.getTypeId() == Material.WALL_SIGN.getId()) {
+                                            block.setSign(tileData);
+                                        }
                                     }
-                                }
-                                // Wall Sign
-                                if (block.getTypeId() == Material.WALL_SIGN.getId()) {
-                                    block.setSign(tileEntitiesMap.get(new BlockVector(x, y, z)));
+                                    islandBlocks.add(x, y, z, block.getTypeId(), (byte)block.getData(), block.hasTileData() ? block : null);
                                 }
                             }
-                            islandBlocks.add(block);
                         }
                     }
                 }
             }
         }
+        islandBlocks.trim();
         //plugin.getLogger().info("DEBUG: islandBlocks size = " + islandBlocks.size());
     }
 
@@ -1288,12 +1356,7 @@ public class Schematic {
      */
     public void setPasteAir(boolean pasteAir) {
         if (!pasteAir) {
-            Iterator<IslandBlock> it = islandBlocks.iterator();
-            while (it.hasNext()) {
-                if (it.next().getTypeId() == 0) {
-                    it.remove();
-                }
-            }
+            islandBlocks.removeAir();
         }
         //plugin.getLogger().info("DEBUG: islandBlocks after removing air blocks = " + islandBlocks.size());
     }
@@ -1651,14 +1714,11 @@ public class Schematic {
             return false;
         }
         playerSpawn = null;
-        // Run through the schematic and try and find the spawnBlock
-        for (IslandBlock islandBlock : islandBlocks) {
-            if (islandBlock.getTypeId() == playerSpawnBlock.getId()) {
-                playerSpawn = islandBlock.getVector().subtract(bedrock).add(new Vector(0.5D,0D,0.5D));
-                // Set the block to air
-                islandBlock.setTypeId((short)0);
-                return true;
-            }
+        // Run through the schematic and try and find the spawnBlock, and set it to air
+        Vector spawnBlock = islandBlocks.replaceWithAir(playerSpawnBlock.getId());
+        if (spawnBlock != null) {
+            playerSpawn = spawnBlock.subtract(bedrock).add(new Vector(0.5D,0D,0.5D));
+            return true;
         }
         return false;
     }
@@ -1693,6 +1753,20 @@ public class Schematic {
         return cost;
     }
 
+    /**
+     * Teleports the player to their new island and resets them
+     * @param player - must be online
+     */
+    private void welcomeHome(Player player) {
+        plugin.getIslands().homeTeleport(player);
+        // Reset any inventory, etc. This is done AFTER the teleport because other plugins may switch out inventory based on world
+        plugin.getPlayers().resetPlayer(player);
+        // Reset money if required
+        if (Settings.resetMoney) {
+            resetMoney(player);
+        }
+    }
+
     private void resetMoney(Player player) {
         if (!Settings.useEconomy) {
             return;
@@ -0,0 +1,198 @@
+package us.tastybento.bskyblock.schematics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bukkit.Bukkit;
+
+import us.tastybento.org.jnbt.CompoundTag;
+import us.tastybento.org.jnbt.NBTInputStream;
+import us.tastybento.org.jnbt.NBTOutputStream;
+import us.tastybento.org.jnbt.Tag;
+
+/**
+ * A copy of a schematic's block volume that can be read back without parsing NBT.
+ * It is kept next to the schematic as name.schematic.cache and is only used if it was made by the same version
+ * of this class from a schematic file with the same size and modified time, or failing that, the same hash.
+ * The tags other than the block arrays, e.g., entities and tile entities, are small and are kept as NBT.
+ */
+class SchematicCache {
+
+    private static final boolean DEBUG = false;
+    private static final int MAGIC = 0x42534253;
+    // Change this whenever the layout changes
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".cache";
+
+    private final short width;
+    private final short length;
+    private final short height;
+    private final short[] blocks;
+    private final byte[] data;
+    private final Map<String, Tag> tags;
+
+    /**
+     * @param width
+     * @param length
+     * @param height
+     * @param blocks - block ids, including the AddBlocks bits
+     * @param data
+     * @param tags - the other tags in the schematic
+     */
+    SchematicCache(short width, short length, short height, short[] blocks, byte[] data, Map<String, Tag> tags) {
+        this.width = width;
+        this.length = length;
+        this.height = height;
+        this.blocks = blocks;
+        this.data = data;
+        this.tags = tags;
+    }
+
+    short getWidth() {
+        return width;
+    }
+
+    short getLength() {
+        return length;
+    }
+
+    short getHeight() {
+        return height;
+    }
+
+    short[] getBlocks() {
+        return blocks;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the tags of the schematic other than the block arrays
+     */
+    Map<String, Tag> getTags() {
+        return tags;
+    }
+
+    /**
+     * @param schematicBytes - contents of the schematic file
+     * @return hash of the schematic file
+     */
+    static byte[] hash(byte[] schematicBytes) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(schematicBytes);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the cache of a schematic file. The schematic file is only read and hashed if its size or
+     * modified time are not the ones in the cache.
+     * @param schematicFile
+     * @return the cache, or null if there is none or it is stale or damaged
+     */
+    static SchematicCache read(File schematicFile) {
+        File cacheFile = new File(schematicFile.getParentFile(), schematicFile.getName() + SUFFIX);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long cachedLength = buffer.getLong();
+            long cachedModified = buffer.getLong();
+            byte[] cachedHash = new byte[buffer.get() & 0xFF];
+            buffer.get(cachedHash);
+            long fileLength = schematicFile.length();
+            long lastModified = schematicFile.lastModified();
+            boolean touched = fileLength != cachedLength || lastModified != cachedModified;
+            byte[] hash = cachedHash;
+            if (touched) {
+                // e.g., copied or saved again. Only the contents matter.
+                hash = hash(Files.readAllBytes(schematicFile.toPath()));
+                if (!Arrays.equals(hash, cachedHash)) {
+                    if (DEBUG)
+                        Bukkit.getLogger().info("DEBUG: " + schematicFile.getName() + " has changed");
+                    return null;
+                }
+            }
+            short width = buffer.getShort();
+            short length = buffer.getShort();
+            short height = buffer.getShort();
+            short[] blocks = new short[buffer.getInt()];
+            buffer.asShortBuffer().get(blocks);
+            buffer.position(buffer.position() + blocks.length * 2);
+            byte[] data = new byte[buffer.getInt()];
+            buffer.get(data);
+            NBTInputStream nbtStream = new NBTInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining()));
+            CompoundTag tags = (CompoundTag) nbtStream.readTag();
+            nbtStream.close();
+            SchematicCache cache = new SchematicCache(width, length, height, blocks, data, tags.getValue());
+            if (touched) {
+                // So that the file does not have to be hashed next time
+                cache.write(schematicFile, fileLength, lastModified, hash);
+            }
+            return cache;
+        } catch (Exception e) {
+            Bukkit.getLogger().warning("Could not read " + cacheFile.getName() + ", the schematic will be loaded from its file");
+            if (DEBUG)
+                e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Writes this cache for a schematic file. Errors are logged, since the schematic can always be loaded from its file.
+     * @param schematicFile
+     * @param fileLength - size of the schematic file, taken before it was read
+     * @param lastModified - modified time of the schematic file, taken before it was read
+     * @param hash - hash of the schematic file
+     */
+    void write(File schematicFile, long fileLength, long lastModified, byte[] hash) {
+        File cacheFile = new File(schematicFile.getParentFile(), schematicFile.getName() + SUFFIX);
+        File tmpFile = new File(schematicFile.getParentFile(), schematicFile.getName() + SUFFIX + ".tmp");
+        try {
+            ByteArrayOutputStream nbtBytes = new ByteArrayOutputStream();
+            NBTOutputStream nbtStream = new NBTOutputStream(nbtBytes);
+            nbtStream.writeTag(new CompoundTag("Schematic", new HashMap<>(tags)));
+            nbtStream.close();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 8 + 1 + hash.length + 6 + 4 + blocks.length * 2 + 4 + data.length);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            buffer.putLong(fileLength).putLong(lastModified);
+            buffer.put((byte)hash.length).put(hash);
+            buffer.putShort(width).putShort(length).putShort(height);
+            buffer.putInt(blocks.length);
+            buffer.asShortBuffer().put(blocks);
+            buffer.position(buffer.position() + blocks.length * 2);
+            buffer.putInt(data.length).put(data);
+            try (OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+                out.write(buffer.array());
+                nbtBytes.writeTo(out);
+            }
+            // Readers never see a half written cache
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (DEBUG)
+                Bukkit.getLogger().info("DEBUG: wrote " + cacheFile.getName());
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Could not write " + cacheFile.getName());
+            e.printStackTrace();
+            tmpFile.delete();
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package us.tastybento.bskyblock.schematics;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bukkit.Material;
 import org.bukkit.block.Biome;
@@ -18,7 +24,9 @@ import us.tastybento.bskyblock.util.VaultHelper;
 
 public class SchematicsMgr {
     private BSkyBlock plugin;
-    private static HashMap<String, Schematic> schematics = new HashMap<String, Schematic>();
+    // Replaced, never changed, when schematics are loaded
+    private static volatile HashMap<String, Schematic> schematics = new HashMap<String, Schematic>();
+    private PasteScheduler pasteScheduler;
 
     /**
      * Class to hold all schematics that are available
@@ -26,12 +34,22 @@ public class SchematicsMgr {
      */
     public SchematicsMgr(BSkyBlock plugin) {
         this.plugin = plugin;
+        pasteScheduler = new PasteScheduler(plugin);
         loadSchematics();
     }
 
+    /**
+     * @return the scheduler that pastes schematics a few blocks each tick
+     */
+    public PasteScheduler getPasteScheduler() {
+        return pasteScheduler;
+    }
+
     /**
      * Loads schematics. If the default
-     * island is not included, it will be made
+     * island is not included, it will be made.
+     * The schematic files are parsed at the same time on worker threads, which is safe because
+     * they do not touch the worlds until they are pasted. The new set of schematics replaces the old one in one go.
      */
     public void loadSchematics() {
         // Check if there is a schematic folder and make it if it does not exist
@@ -39,71 +57,32 @@ public class SchematicsMgr {
         if (!schematicFolder.exists()) {
             schematicFolder.mkdir();
         }
-        // Clear the schematic list that is kept in memory
-        schematics.clear();
         // Load the default schematic if it exists
         // Set up the default schematic
         File schematicFile = new File(schematicFolder, "island.schematic");
         File netherFile = new File(schematicFolder, "nether.schematic");
-        if (!schematicFile.exists()) {
-            //plugin.getLogger().info("Default schematic does not exist...");
-            // Only copy if the default exists
-            if (plugin.getResource("schematics/island.schematic") != null) {
-                plugin.getLogger().info("Default schematic does not exist, saving it...");
-                plugin.saveResource("schematics/island.schematic", false);
-                // Add it to schematics
-                try {
-                    schematics.put("default",new Schematic(plugin, schematicFile));
-                } catch (IOException e) {
-                    plugin.getLogger().severe("Could not load default schematic!");
-                    e.printStackTrace();
-                }
-                // If this is repeated later due to the schematic config, fine, it will only add info
-            } else {
-                // No islands.schematic in the jar, so just make the default using 
-                // built-in island generation
-                schematics.put("default",new Schematic(plugin));
-            }
-            //plugin.getLogger().info("Loaded default nether schematic");
-        } else {
-            // It exists, so load it
-            try {
-                schematics.put("default",new Schematic(plugin, schematicFile));
-                //plugin.getLogger().info("Loaded default island schematic.");
-            } catch (IOException e) {
-                plugin.getLogger().severe("Could not load default schematic!");
-                e.printStackTrace();
-            }
+        // Only copy if the default exists
+        if (!schematicFile.exists() && plugin.getResource("schematics/island.schematic") != null) {
+            plugin.getLogger().info("Default schematic does not exist, saving it...");
+            plugin.saveResource("schematics/island.schematic", false);
         }
-        // Add the nether default too
-        if (!netherFile.exists()) {
-            if (plugin.getResource("schematics/nether.schematic") != null) {
-                plugin.saveResource("schematics/nether.schematic", false);
-
-                // Add it to schematics
-                try {
-                    Schematic netherIsland = new Schematic(plugin, netherFile);
-                    netherIsland.setVisible(false);
-                    schematics.put("nether", netherIsland);
-                    //plugin.getLogger().info("Loaded default nether schematic.");
-                } catch (IOException e) {
-                    plugin.getLogger().severe("Could not load default nether schematic!");
-                    e.printStackTrace();
-                }
-            } else {
-                plugin.getLogger().severe("Could not find default nether schematic!");
-            }
+        if (!netherFile.exists() && plugin.getResource("schematics/nether.schematic") != null) {
+            plugin.saveResource("schematics/nether.schematic", false);
+        }
+        Map<String, File> files = new LinkedHashMap<>();
+        if (schematicFile.exists()) {
+            files.put("default", schematicFile);
+        }
+        if (netherFile.exists()) {
+            files.put("nether", netherFile);
         } else {
-            // It exists, so load it
-            try {
-                Schematic netherIsland = new Schematic(plugin, netherFile);
-                netherIsland.setVisible(false);
-                schematics.put("nether", netherIsland);
-                //plugin.getLogger().info("Loaded default nether schematic.");
-            } catch (IOException e) {
-                plugin.getLogger().severe("Could not load default nether schematic!");
-                e.printStackTrace();
-            }
+            plugin.getLogger().severe("Could not find default nether schematic!");
+        }
+        HashMap<String, Schematic> schematics = loadFiles(files);
+        if (!schematicFile.exists()) {
+            // No islands.schematic in the jar, so just make the default using 
+            // built-in island generation
+            schematics.put("default",new Schematic(plugin));
         }
         // Set up some basic settings
         if (schematics.containsKey("default")) {
@@ -131,6 +110,41 @@ public class SchematicsMgr {
         }
 
         // TODO: Load other settings from config.yml
+        SchematicsMgr.schematics = schematics;
+    }
+
+    /**
+     * Parses schematic files on worker threads
+     * @param files - files by schematic name
+     * @return the schematics that loaded, by name
+     */
+    private HashMap<String, Schematic> loadFiles(Map<String, File> files) {
+        HashMap<String, Schematic> loaded = new HashMap<String, Schematic>();
+        if (files.isEmpty()) {
+            return loaded;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            Map<String, Future<Schematic>> futures = new LinkedHashMap<>();
+            for (Entry<String, File> en : files.entrySet()) {
+                final File file = en.getValue();
+                futures.put(en.getKey(), pool.submit(() -> new Schematic(plugin, file)));
+            }
+            for (Entry<String, Future<Schematic>> en : futures.entrySet()) {
+                try {
+                    loaded.put(en.getKey(), en.getValue().get());
+                } catch (ExecutionException e) {
+                    plugin.getLogger().severe("Could not load " + en.getKey() + " schematic!");
+                    e.getCause().printStackTrace();
+                }
+            }
+        } catch (InterruptedException e) {
+            plugin.getLogger().severe("Interrupted while loading schematics!");
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        return loaded;
     }
 
     /**
@@ -0,0 +1,193 @@
+package us.tastybento.bskyblock.util;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import us.tastybento.bskyblock.BSkyBlock;
+import us.tastybento.bskyblock.config.Settings;
+import us.tastybento.bskyblock.database.objects.Island;
+
+/**
+ * Keeps a snapshot of the BSkyBlock permissions of each online player, so that event handlers do not have to ask
+ * the permission plugin through Vault every time. Snapshots are taken on join and world change and refreshed every
+ * few seconds, so a permission change takes effect within that time.
+ */
+public class PermissionCache implements Listener {
+
+    /**
+     * Permissions that are checked by event handlers
+     */
+    public enum Node {
+        BYPASS("mod.bypass"),
+        BYPASS_LOCK("mod.bypasslock"),
+        BYPASS_PROTECT("mod.bypassprotect"),
+        CRAFT_DIRT("craft.dirt"),
+        CRAFT_ENDERCHEST("craft.enderchest"),
+        NO_BAN("admin.noban");
+
+        private final String permission;
+        private final long mask;
+
+        Node(String permission) {
+            this.permission = Settings.PERMPREFIX + permission;
+            this.mask = 1L << ordinal();
+        }
+
+        /**
+         * @return the full permission, including the prefix
+         */
+        public String getPermission() {
+            return permission;
+        }
+    }
+
+    /**
+     * Value permissions, e.g., island.maxhomes.5
+     */
+    public enum ValueNode {
+        MAX_HOMES("island.maxhomes", () -> Settings.maxHomes);
+
+        private final String permission;
+        // Read when the value is worked out, as it comes from the config
+        private final IntSupplier defaultValue;
+
+        ValueNode(String permission, IntSupplier defaultValue) {
+            this.permission = Settings.PERMPREFIX + permission;
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * @return the full permission without the value, including the prefix
+         */
+        public String getPermission() {
+            return permission;
+        }
+    }
+
+    /**
+     * The permissions of one player when they were last checked
+     */
+    private static class Snapshot {
+        private final long bits;
+        // Results of value permissions by ordinal, or null if not worked out yet
+        private final Integer[] values = new Integer[ValueNode.values().length];
+
+        private Snapshot(long bits) {
+            this.bits = bits;
+        }
+    }
+
+    private static final boolean DEBUG = false;
+    // How often the snapshots of online players are refreshed, in ticks
+    private static final long REFRESH_PERIOD = 100L;
+    private BSkyBlock plugin;
+    private final ConcurrentHashMap<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin
+     */
+    public PermissionCache(BSkyBlock plugin) {
+        this.plugin = plugin;
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
+            for (Player player : plugin.getServer().getOnlinePlayers()) {
+                refresh(player);
+            }
+        }, REFRESH_PERIOD, REFRESH_PERIOD);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(final PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent event) {
+        snapshots.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Takes a new snapshot of the player's permissions
+     * @param player
+     * @return the snapshot
+     */
+    private Snapshot refresh(Player player) {
+        long bits = 0L;
+        for (Node node : Node.values()) {
+            if (VaultHelper.hasPerm(player, node.permission)) {
+                bits |= node.mask;
+            }
+        }
+        Snapshot snapshot = new Snapshot(bits);
+        if (!player.isOnline()) {
+            // e.g., a fake player made by another plugin. Do not keep it.
+            return snapshot;
+        }
+        Snapshot previous = snapshots.put(player.getUniqueId(), snapshot);
+        if (previous == null || previous.bits != bits) {
+            if (DEBUG)
+                plugin.getLogger().info("DEBUG: permissions of " + player.getName() + " are now " + Long.toBinaryString(bits));
+            // Cached protection checks, e.g., lock bypass, must look again
+            Island.protectionChanged();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param player
+     * @param node
+     * @return true if the player has the permission
+     */
+    public boolean has(Player player, Node node) {
+        Snapshot snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot == null) {
+            snapshot = refresh(player);
+        }
+        return (snapshot.bits & node.mask) != 0;
+    }
+
+    /**
+     * Checks the snapshot only, so players who are offline have no permissions
+     * @param playerUUID
+     * @param node
+     * @return true if the player is online and has the permission
+     */
+    public boolean has(UUID playerUUID, Node node) {
+        Snapshot snapshot = snapshots.get(playerUUID);
+        return snapshot != null && (snapshot.bits & node.mask) != 0;
+    }
+
+    /**
+     * Gets the value of a value permission, e.g., island.maxhomes.5, until the next refresh.
+     * See {@link Util#getPermValue(Player, String, int)}.
+     * @param player
+     * @param node
+     * @return the value
+     */
+    public int getPermValue(Player player, ValueNode node) {
+        Snapshot snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot == null) {
+            snapshot = refresh(player);
+        }
+        Integer value = snapshot.values[node.ordinal()];
+        if (value == null) {
+            // Two threads may both work it out, but they get the same answer
+            value = Util.getPermValue(player, node.permission, node.defaultValue.getAsInt());
+            snapshot.values[node.ordinal()] = value;
+        }
+        return value;
+    }
+}
@@ -30,7 +30,7 @@ import org.bukkit.plugin.Plugin;
 
 import us.tastybento.bskyblock.BSkyBlock;
 import us.tastybento.bskyblock.config.Settings;
-import us.tastybento.bskyblock.generators.IslandWorld;
+import us.tastybento.bskyblock.generators.WorldRegistry;
 import us.tastybento.bskyblock.util.nms.NMSAbstraction;
 import us.tastybento.bskyblock.util.placeholders.PlaceholderHandler;
 
@@ -263,18 +263,16 @@ public class Util {
      * @return true if in the island world
      */
     public static boolean inWorld(Location loc) {
-        if (loc != null) {
-            if (loc.getWorld().equals(IslandWorld.getIslandWorld())) {
-                return true;
-            }
-            if (Settings.netherIslands && loc.getWorld().equals(IslandWorld.getNetherWorld())) {
-                return true;
-            }
-            if (Settings.endIslands && loc.getWorld().equals(IslandWorld.getEndWorld())) {
-                return true;
-            }
-        }
-        return false;
+        return loc != null && WorldRegistry.inWorld(loc.getWorld());
+    }
+
+    /**
+     * Determines if a world is the island world or a nether or end with islands
+     * @param world
+     * @return true if in the island world
+     */
+    public static boolean inWorld(World world) {
+        return WorldRegistry.inWorld(world);
     }
 
     /**
@@ -284,7 +282,7 @@ public class Util {
      * @return
      */
     public static boolean inWorld(Entity entity) {
-        return inWorld(entity.getLocation());
+        return WorldRegistry.inWorld(entity.getWorld());
     }
 
     /**
@@ -293,7 +291,7 @@ public class Util {
      * @return true if in the island world
      */
     public static boolean inWorld(Block block) {
-        return inWorld(block.getLocation());
+        return WorldRegistry.inWorld(block.getWorld());
     }
 
     /**
@@ -0,0 +1,296 @@
+package us.tastybento.org.jnbt;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * <p>
+ * Reads a gzipped <strong>NBT</strong> stream one tag at a time, without
+ * making an object graph of the whole stream.
+ * </p>
+ *
+ * <p>
+ * Call {@link #next()} to move to the next tag, then read, skip or enter its
+ * payload before calling {@link #next()} again. The first tag is the root tag.
+ * After {@link #enterCompound()}, {@link #next()} moves through the children of
+ * the compound and returns {@link NBTConstants#TYPE_END} after the last one.
+ * Payloads that are not needed can be skipped without making any objects, and
+ * {@link #readTag()} makes a <code>Tag</code> of the payload when it is needed.
+ * </p>
+ */
+public final class NBTReader implements Closeable {
+
+    /**
+     * Size of the inflater and read buffers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The data input stream.
+     */
+    private final DataInputStream is;
+
+    /**
+     * Type of the current tag.
+     */
+    private int type = NBTConstants.TYPE_END;
+
+    /**
+     * Name of the current tag.
+     */
+    private String name = "";
+
+    /**
+     * Creates a new <code>NBTReader</code>, which will source its data from
+     * the specified gzipped input stream.
+     *
+     * @param is
+     *            The input stream.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public NBTReader(InputStream is) throws IOException {
+        this.is = new DataInputStream(new BufferedInputStream(new GZIPInputStream(is, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * Moves to the next tag. The payload of the current tag must have been
+     * read, skipped or entered.
+     *
+     * @return The type of the tag, or {@link NBTConstants#TYPE_END} at the end
+     *         of a compound.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public int next() throws IOException {
+        type = is.readByte() & 0xFF;
+        name = type == NBTConstants.TYPE_END ? "" : readString();
+        return type;
+    }
+
+    /**
+     * @return The type of the current tag.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * @return The name of the current tag.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Moves into the current compound tag. Its children are read with
+     * {@link #next()} until it returns {@link NBTConstants#TYPE_END}.
+     *
+     * @throws IOException
+     *             if the current tag is not a compound.
+     */
+    public void enterCompound() throws IOException {
+        expect(NBTConstants.TYPE_COMPOUND);
+    }
+
+    /**
+     * Reads the payload of the current tag as a tag.
+     *
+     * @return The tag.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public Tag readTag() throws IOException {
+        return readTagPayload(type, name);
+    }
+
+    /**
+     * Reads the payload of the current byte array tag, without wrapping it in a
+     * tag.
+     *
+     * @return The bytes.
+     * @throws IOException
+     *             if an I/O error occurs or the tag is not a byte array.
+     */
+    public byte[] readByteArray() throws IOException {
+        expect(NBTConstants.TYPE_BYTE_ARRAY);
+        byte[] bytes = new byte[is.readInt()];
+        is.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Skips the payload of the current tag, including any children, without
+     * making any tags.
+     *
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void skip() throws IOException {
+        skipPayload(type);
+    }
+
+    private void expect(int expected) throws IOException {
+        if (type != expected) {
+            throw new IOException("Tag " + name + " is of type " + NBTUtils.getTypeName(NBTUtils.getTypeClass(type)) + ", not "
+                    + NBTUtils.getTypeName(NBTUtils.getTypeClass(expected)) + ".");
+        }
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[is.readShort() & 0xFFFF];
+        is.readFully(bytes);
+        return new String(bytes, NBTConstants.CHARSET);
+    }
+
+    /**
+     * Reads the payload of a tag, given the type and name.
+     *
+     * @param type
+     *            The type.
+     * @param name
+     *            The name.
+     * @return The tag.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private Tag readTagPayload(int type, String name) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            return new EndTag();
+        case NBTConstants.TYPE_BYTE:
+            return new ByteTag(name, is.readByte());
+        case NBTConstants.TYPE_SHORT:
+            return new ShortTag(name, is.readShort());
+        case NBTConstants.TYPE_INT:
+            return new IntTag(name, is.readInt());
+        case NBTConstants.TYPE_LONG:
+            return new LongTag(name, is.readLong());
+        case NBTConstants.TYPE_FLOAT:
+            return new FloatTag(name, is.readFloat());
+        case NBTConstants.TYPE_DOUBLE:
+            return new DoubleTag(name, is.readDouble());
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            byte[] bytes = new byte[is.readInt()];
+            is.readFully(bytes);
+            return new ByteArrayTag(name, bytes);
+        case NBTConstants.TYPE_STRING:
+            return new StringTag(name, readString());
+        case NBTConstants.TYPE_LIST:
+            int childType = is.readByte();
+            int length = is.readInt();
+
+            List<Tag> tagList = new ArrayList<Tag>(Math.max(0, Math.min(length, BUFFER_SIZE)));
+            for (int i = 0; i < length; i++) {
+                Tag tag = readTagPayload(childType, "");
+                if (tag instanceof EndTag) {
+                    throw new IOException("TAG_End not permitted in a list.");
+                }
+                tagList.add(tag);
+            }
+
+            return new ListTag(name, NBTUtils.getTypeClass(childType), tagList);
+        case NBTConstants.TYPE_COMPOUND:
+            Map<String, Tag> tagMap = new HashMap<String, Tag>();
+            int childTagType;
+            while ((childTagType = is.readByte() & 0xFF) != NBTConstants.TYPE_END) {
+                String childName = readString();
+                tagMap.put(childName, readTagPayload(childTagType, childName));
+            }
+
+            return new CompoundTag(name, tagMap);
+        case NBTConstants.TYPE_INT_ARRAY:
+            int[] data = new int[is.readInt()];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = is.readInt();
+            }
+            return new IntArrayTag(name, data);
+
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    /**
+     * Skips the payload of a tag, given the type.
+     *
+     * @param type
+     *            The type.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    private void skipPayload(int type) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            return;
+        case NBTConstants.TYPE_BYTE:
+            skipFully(1);
+            return;
+        case NBTConstants.TYPE_SHORT:
+            skipFully(2);
+            return;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skipFully(4);
+            return;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skipFully(8);
+            return;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            skipFully(is.readInt());
+            return;
+        case NBTConstants.TYPE_STRING:
+            skipFully(is.readShort() & 0xFFFF);
+            return;
+        case NBTConstants.TYPE_LIST:
+            int childType = is.readByte();
+            int length = is.readInt();
+            for (int i = 0; i < length; i++) {
+                skipPayload(childType);
+            }
+            return;
+        case NBTConstants.TYPE_COMPOUND:
+            int childTagType;
+            while ((childTagType = is.readByte() & 0xFF) != NBTConstants.TYPE_END) {
+                skipFully(is.readShort() & 0xFFFF);
+                skipPayload(childTagType);
+            }
+            return;
+        case NBTConstants.TYPE_INT_ARRAY:
+            skipFully(is.readInt() * 4L);
+            return;
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long skipped = is.skip(n);
+            if (skipped <= 0) {
+                // skip may stop early, so make sure this is really the end
+                if (is.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+}
@@ -0,0 +1,172 @@
+package us.tastybento.bskyblock.database.mysql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import us.tastybento.bskyblock.database.DatabaseConnectionSettingsImpl;
+import us.tastybento.bskyblock.database.objects.Island;
+import us.tastybento.bskyblock.database.objects.Island.SettingsFlag;
+
+/**
+ * Saves and loads islands through the MySQL handler, against an embedded MariaDB
+ */
+public class MySQLDatabaseHandlerTest {
+
+    private static DB db;
+    private static MySQLDatabaseConnecter connecter;
+    private static MySQLDatabaseHandler<Island> handler;
+    private static World world;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        // Locations and worlds are looked up by name through the server
+        world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Server server = mock(Server.class);
+        when(server.getLogger()).thenReturn(Logger.getAnonymousLogger());
+        when(server.getWorld("world")).thenReturn(world);
+        Bukkit.setServer(server);
+        Plugin plugin = mock(Plugin.class);
+        when(plugin.getLogger()).thenReturn(Logger.getAnonymousLogger());
+
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        // Any free port
+        config.setPort(0);
+        db = DB.newEmbeddedDB(config.build());
+        db.start();
+        db.createDB("bskyblock");
+        int port = db.getConfiguration().getPort();
+        connecter = new MySQLDatabaseConnecter(new DatabaseConnectionSettingsImpl("localhost:" + port, port, "bskyblock", "root", ""));
+        // Make values that do not fit an error, as they are on most servers, so a save can fail part way through
+        try (Connection connection = connecter.createConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SET GLOBAL sql_mode = 'STRICT_ALL_TABLES'");
+        }
+        handler = new MySQLDatabaseHandler<>(plugin, Island.class, connecter);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if (connecter != null) {
+            connecter.close();
+        }
+        if (db != null) {
+            db.stop();
+        }
+    }
+
+    /**
+     * @param x
+     * @return an island with an owner, a member, a ban and some flags
+     */
+    private static Island makeIsland(int x) {
+        Island island = new Island(new Location(world, x, 120, 0), UUID.randomUUID(), 50);
+        island.setName("Island " + x);
+        island.addMember(UUID.randomUUID());
+        island.addToBanList(UUID.randomUUID());
+        island.setFlag(SettingsFlag.PVP_OVERWORLD, true);
+        island.setFlag(SettingsFlag.ANIMAL_SPAWN, false);
+        return island;
+    }
+
+    /**
+     * @param islands
+     * @param uniqueId
+     * @return the island with this uniqueId, or null
+     */
+    private static Island find(List<Island> islands, String uniqueId) {
+        for (Island island : islands) {
+            if (island.getUniqueId().equals(uniqueId)) {
+                return island;
+            }
+        }
+        return null;
+    }
+
+    private static void assertIslandEquals(Island expected, Island actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getOwner(), actual.getOwner());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCenter(), actual.getCenter());
+        assertEquals(expected.getMembers(), actual.getMembers());
+        assertEquals(expected.getBanned(), actual.getBanned());
+        assertEquals(expected.getFlags(), actual.getFlags());
+    }
+
+    @Test
+    public void testSaveAndLoadObjects() throws Exception {
+        Island first = makeIsland(0);
+        Island second = makeIsland(400);
+        second.addMember(UUID.randomUUID());
+        handler.saveObjects(Arrays.asList(first, second));
+
+        List<Island> loaded = handler.loadObjects();
+        assertIslandEquals(first, find(loaded, first.getUniqueId()));
+        assertIslandEquals(second, find(loaded, second.getUniqueId()));
+        assertIslandEquals(first, handler.loadObject(first.getUniqueId()));
+
+        // Saving again replaces the collections rather than adding to them
+        UUID gone = second.getMembers().iterator().next();
+        Set<UUID> members = new HashSet<>(second.getMembers());
+        members.remove(gone);
+        second.setMembers(members);
+        second.setFlags(new HashMap<SettingsFlag, Boolean>());
+        handler.saveObjects(Arrays.asList(second));
+        Island reloaded = handler.loadObject(second.getUniqueId());
+        assertIslandEquals(second, reloaded);
+        assertFalse(reloaded.getMembers().contains(gone));
+        assertTrue(reloaded.getFlags().isEmpty());
+    }
+
+    @Test
+    public void testFailedSaveRollsBack() throws Exception {
+        Island saved = makeIsland(800);
+        handler.saveObjects(Arrays.asList(saved));
+        Set<UUID> members = new HashSet<>(saved.getMembers());
+
+        // The member rows are written before the main table, which then fails on the second island's name
+        saved.addMember(UUID.randomUUID());
+        Island bad = makeIsland(1200);
+        char[] name = new char[300];
+        Arrays.fill(name, 'x');
+        bad.setName(new String(name));
+        try {
+            handler.saveObjects(Arrays.asList(saved, bad));
+            fail("Saving a name that is too long should fail");
+        } catch (SQLException e) {
+            // Expected
+        }
+
+        Island reloaded = handler.loadObject(saved.getUniqueId());
+        assertNotNull(reloaded);
+        assertEquals(members, reloaded.getMembers());
+        assertNull(handler.loadObject(bad.getUniqueId()));
+    }
+}